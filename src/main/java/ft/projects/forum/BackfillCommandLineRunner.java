@@ -0,0 +1,20 @@
+package ft.projects.forum;
+
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.repository.ForumThreadRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class BackfillCommandLineRunner implements CommandLineRunner {
+
+    private final ForumThreadRepository threadRepository;
+
+    @Override
+    public void run(String... args) throws Exception {
+        threadRepository.backfillExcerpts(ForumThread.EXCERPT_LENGTH);
+        threadRepository.backfillClosedAt();
+    }
+}
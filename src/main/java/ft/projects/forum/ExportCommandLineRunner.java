@@ -0,0 +1,37 @@
+package ft.projects.forum;
+
+import ft.projects.forum.service.ForumExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+@ConditionalOnProperty("export-path")
+public class ExportCommandLineRunner implements CommandLineRunner {
+
+    private final ForumExportService exportService;
+    private final ApplicationContext context;
+    private final Path exportPath;
+
+    public ExportCommandLineRunner(ForumExportService exportService, ApplicationContext context, @Value("${export-path}") Path exportPath) {
+        this.exportService = exportService;
+        this.context = context;
+        this.exportPath = exportPath;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        try(var out = Files.newOutputStream(exportPath)) {
+            exportService.export(out);
+        }
+        // closing the context stops the web server, so the JVM exits once the export is written;
+        // a failed export propagates out of run and fails startup with a non-zero exit code
+        SpringApplication.exit(context);
+    }
+}
@@ -0,0 +1,442 @@
+package ft.projects.forum.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class ArchiveSegmentStore implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String USERS_SUFFIX = ".usr";
+    private static final int INDEX_ENTRY_BYTES = 48;
+    private static final int USER_ENTRY_BYTES = 40;
+    private static final long TOMBSTONE = -1;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean writable;
+    private final Clock clock;
+    private final long compactionDelay;
+    private final ConcurrentMap<UUID, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> indexPositions = new HashMap<>();
+    private final List<Garbage> garbage = new ArrayList<>();
+    private final Map<Integer, Long> retired = new TreeMap<>();
+    private int segment;
+    private FileChannel data;
+    private FileChannel indexData;
+    private FileChannel userData;
+    private long position;
+    private volatile long bytes;
+
+    public ArchiveSegmentStore(Path directory, long segmentSize) throws IOException {
+        this(directory, segmentSize, true);
+    }
+
+    public ArchiveSegmentStore(Path directory, long segmentSize, boolean writable) throws IOException {
+        this(directory, segmentSize, writable, Clock.systemUTC(), 0);
+    }
+
+    // dead records outlive compactionDelay so readers on an older index can still read them
+    public ArchiveSegmentStore(Path directory, long segmentSize, boolean writable, Clock clock, long compactionDelay) throws IOException {
+        if(segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) throw new IllegalArgumentException("segmentSize must be in (0, 2^31)");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.writable = writable;
+        this.clock = clock;
+        this.compactionDelay = compactionDelay;
+        if(writable) Files.createDirectories(directory);
+        refresh();
+        if(writable) open(segment);
+    }
+
+    public void append(UUID key, UUID owner, byte[] value) throws IOException {
+        append(key, owner, Set.of(), value);
+    }
+
+    // users besides the owner that the record mentions, found again by findKeys without reading the record
+    public synchronized void append(UUID key, UUID owner, Collection<UUID> users, byte[] value) throws IOException {
+        if(!writable) throw new IllegalStateException("Archive store is read-only");
+        var compressed = deflate(value);
+        var previous = write(key, owner, users, compressed, value.length);
+        bytes += compressed.length - (previous != null ? previous.length() : 0);
+        if(previous != null) garbage.add(new Garbage(previous, clock.millis()));
+    }
+
+    public synchronized boolean remove(UUID key) throws IOException {
+        if(!writable) throw new IllegalStateException("Archive store is read-only");
+        var location = index.get(key);
+        if(location == null) return false;
+        writeIndexEntry(key, location.owner(), TOMBSTONE, 0, 0);
+        index.remove(key);
+        bytes -= location.length();
+        garbage.add(new Garbage(location, clock.millis()));
+        return true;
+    }
+
+    public synchronized void compact() throws IOException {
+        if(!writable) throw new IllegalStateException("Archive store is read-only");
+        var cutoff = clock.millis() - compactionDelay;
+        var kept = new ArrayList<Garbage>();
+        for(var entry : garbage) {
+            if(retired.containsKey(entry.location().segment())) continue;
+            if(entry.at() > cutoff) kept.add(entry);
+            else erase(entry.location());
+        }
+        garbage.clear();
+        garbage.addAll(kept);
+        var expired = retired.entrySet().iterator();
+        while(expired.hasNext()) {
+            var entry = expired.next();
+            if(entry.getValue() > cutoff) break;
+            delete(entry.getKey());
+            expired.remove();
+        }
+        var oldest = oldestSealedSegment();
+        if(oldest < 0) return;
+        var live = index.entrySet().stream()
+                .filter(e -> e.getValue().segment() == oldest)
+                .toList();
+        var liveBytes = live.stream().mapToLong(e -> e.getValue().length()).sum();
+        if(liveBytes * 2 > Files.size(segmentPath(oldest))) return;
+        var users = new HashMap<UUID, List<UUID>>();
+        forEachUser(oldest, (key, user) -> users.computeIfAbsent(key, k -> new ArrayList<>()).add(user));
+        for(var entry : live) {
+            var location = entry.getValue();
+            var compressed = new byte[location.length()];
+            map(location).get((int) location.offset(), compressed);
+            write(entry.getKey(), location.owner(), users.getOrDefault(entry.getKey(), List.of()), compressed, location.rawLength());
+        }
+        retired.put(oldest, clock.millis());
+    }
+
+    public synchronized void refresh() throws IOException {
+        if(!Files.isDirectory(directory)) return;
+        var segments = listSegments();
+        for(var id : segments) {
+            loadIndex(id);
+            segment = Math.max(segment, id);
+        }
+        var present = Arrays.stream(segments).boxed().collect(Collectors.toSet());
+        mapped.keySet().retainAll(present);
+        indexPositions.keySet().retainAll(present);
+    }
+
+    public Set<UUID> getKeys() {
+        return Set.copyOf(index.keySet());
+    }
+
+    public synchronized Set<UUID> findKeys(Set<UUID> users) throws IOException {
+        var keys = new HashSet<UUID>();
+        index.forEach((key, location) -> {
+            if(users.contains(location.owner())) keys.add(key);
+        });
+        for(var id : listSegments()) {
+            if(retired.containsKey(id)) continue;
+            forEachUser(id, (key, user) -> {
+                if(users.contains(user)) keys.add(key);
+            });
+        }
+        return keys;
+    }
+
+    public byte[] read(UUID key) throws IOException {
+        var location = index.get(key);
+        if(location == null) return null;
+        var compressed = new byte[location.length()];
+        map(location).get((int) location.offset(), compressed);
+        return inflate(compressed, location.rawLength());
+    }
+
+    public UUID getOwner(UUID key) {
+        var location = index.get(key);
+        return location != null ? location.owner() : null;
+    }
+
+    public boolean contains(UUID key) {
+        return index.containsKey(key);
+    }
+
+    public int getSize() {
+        return index.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(writable) {
+            data.close();
+            indexData.close();
+            userData.close();
+        }
+        mapped.clear();
+    }
+
+    private void loadIndex(int id) throws IOException {
+        var segmentPath = segmentPath(id);
+        var segmentBytes = Files.exists(segmentPath) ? Files.size(segmentPath) : 0;
+        var position = indexPositions.getOrDefault(id, 0L);
+        ByteBuffer buffer;
+        try(var channel = FileChannel.open(indexPath(id), StandardOpenOption.READ)) {
+            var available = channel.size() - position;
+            buffer = ByteBuffer.allocate((int) (available - available % INDEX_ENTRY_BYTES));
+            while(buffer.hasRemaining()) {
+                var n = channel.read(buffer, position + buffer.position());
+                if(n < 0) break;
+            }
+            buffer.flip();
+        }
+        indexPositions.put(id, position + buffer.remaining());
+        while(buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            var key = new UUID(buffer.getLong(), buffer.getLong());
+            var owner = new UUID(buffer.getLong(), buffer.getLong());
+            var offset = buffer.getLong();
+            var length = buffer.getInt();
+            var rawLength = buffer.getInt();
+            if(offset == TOMBSTONE) {
+                var removed = index.remove(key);
+                if(removed != null) superseded(removed);
+                continue;
+            }
+            if(offset + length > segmentBytes) continue;
+            var previous = index.put(key, new Location(id, owner, offset, length, rawLength));
+            bytes += length;
+            if(previous != null) superseded(previous);
+        }
+    }
+
+    private Location write(UUID key, UUID owner, Collection<UUID> users, byte[] compressed, int rawLength) throws IOException {
+        if(position > 0 && position + compressed.length > segmentSize) roll();
+        var offset = position;
+        writeFully(data, ByteBuffer.wrap(compressed), offset);
+        data.force(false);
+        position += compressed.length;
+        writeUserEntries(key, offset, users);
+        writeIndexEntry(key, owner, offset, compressed.length, rawLength);
+        return index.put(key, new Location(segment, owner, offset, compressed.length, rawLength));
+    }
+
+    private int[] listSegments() throws IOException {
+        try(var files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(INDEX_SUFFIX))
+                    .mapToInt(name -> Integer.parseInt(name.substring(0, name.length() - INDEX_SUFFIX.length())))
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    private int oldestSealedSegment() throws IOException {
+        for(var id : listSegments()) {
+            if(id >= segment) return -1;
+            if(!retired.containsKey(id)) return id;
+        }
+        return -1;
+    }
+
+    private void delete(int id) throws IOException {
+        // the index goes first: a crash in between leaves a segment no index points into
+        Files.deleteIfExists(indexPath(id));
+        Files.deleteIfExists(usersPath(id));
+        Files.deleteIfExists(segmentPath(id));
+        mapped.remove(id);
+        indexPositions.remove(id);
+        garbage.removeIf(entry -> entry.location().segment() == id);
+    }
+
+    private void superseded(Location location) {
+        bytes -= location.length();
+        // a restarted writer erases whatever an earlier run had not erased yet
+        if(writable) garbage.add(new Garbage(location, clock.millis()));
+    }
+
+    private void writeIndexEntry(UUID key, UUID owner, long offset, int length, int rawLength) throws IOException {
+        var entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+                .putLong(key.getMostSignificantBits())
+                .putLong(key.getLeastSignificantBits())
+                .putLong(owner.getMostSignificantBits())
+                .putLong(owner.getLeastSignificantBits())
+                .putLong(offset)
+                .putInt(length)
+                .putInt(rawLength)
+                .flip();
+        var position = indexData.size();
+        writeFully(indexData, entry, position);
+        indexData.force(false);
+        indexPositions.put(segment, position + INDEX_ENTRY_BYTES);
+    }
+
+    private void writeUserEntries(UUID key, long offset, Collection<UUID> users) throws IOException {
+        if(users.isEmpty()) return;
+        var entries = ByteBuffer.allocate(users.size() * USER_ENTRY_BYTES);
+        for(var user : users) {
+            entries.putLong(key.getMostSignificantBits())
+                    .putLong(key.getLeastSignificantBits())
+                    .putLong(user.getMostSignificantBits())
+                    .putLong(user.getLeastSignificantBits())
+                    .putLong(offset);
+        }
+        writeFully(userData, entries.flip(), userData.size());
+        userData.force(false);
+    }
+
+    private void forEachUser(int id, BiConsumer<UUID, UUID> action) throws IOException {
+        var path = usersPath(id);
+        if(!Files.exists(path)) return;
+        ByteBuffer buffer;
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            buffer = ByteBuffer.allocate((int) (size - size % USER_ENTRY_BYTES));
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, buffer.position()) < 0) break;
+            }
+            buffer.flip();
+        }
+        while(buffer.remaining() >= USER_ENTRY_BYTES) {
+            var key = new UUID(buffer.getLong(), buffer.getLong());
+            var user = new UUID(buffer.getLong(), buffer.getLong());
+            var offset = buffer.getLong();
+            // entries of superseded or removed versions are skipped
+            var location = index.get(key);
+            if(location != null && location.segment() == id && location.offset() == offset) action.accept(key, user);
+        }
+    }
+
+    private void erase(Location location) throws IOException {
+        var zeros = ByteBuffer.allocate(location.length());
+        if(location.segment() == segment) {
+            writeFully(data, zeros, location.offset());
+            data.force(false);
+            return;
+        }
+        try(var channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.WRITE)) {
+            writeFully(channel, zeros, location.offset());
+            channel.force(false);
+        }
+    }
+
+    private void open(int id) throws IOException {
+        data = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexData = FileChannel.open(indexPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexData.truncate(indexData.size() - indexData.size() % INDEX_ENTRY_BYTES);
+        userData = FileChannel.open(usersPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        userData.truncate(userData.size() - userData.size() % USER_ENTRY_BYTES);
+        indexPositions.put(id, indexData.size());
+        position = data.size();
+    }
+
+    private void roll() throws IOException {
+        data.close();
+        indexData.close();
+        userData.close();
+        open(++segment);
+    }
+
+    private MappedByteBuffer map(Location location) throws IOException {
+        var buffer = mapped.get(location.segment());
+        if(buffer == null || buffer.capacity() < location.offset() + location.length()) {
+            try(var channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mapped.put(location.segment(), buffer);
+        }
+        return buffer;
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(id + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(int id) {
+        return directory.resolve(id + INDEX_SUFFIX);
+    }
+
+    private Path usersPath(int id) {
+        return directory.resolve(id + USERS_SUFFIX);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while(buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static byte[] deflate(byte[] value) {
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(Math.max(64, value.length / 2));
+            var chunk = new byte[8192];
+            while(!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            var value = new byte[rawLength];
+            var read = 0;
+            while(read < rawLength && !inflater.finished()) {
+                var n = inflater.inflate(value, read, rawLength - read);
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += n;
+            }
+            if(read != rawLength) throw new IOException("Corrupt archive record");
+            return value;
+        } catch(DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private record Garbage(
+            Location location,
+            long at
+    ) {
+    }
+
+    private record Location(
+            int segment,
+            UUID owner,
+            long offset,
+            int length,
+            int rawLength
+    ) {
+    }
+}
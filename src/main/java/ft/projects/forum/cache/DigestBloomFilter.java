@@ -0,0 +1,37 @@
+package ft.projects.forum.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class DigestBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long mask;
+    private final int hashes;
+
+    public DigestBloomFilter(int bits, int hashes) {
+        if(Integer.bitCount(bits) != 1 || bits < 64) throw new IllegalArgumentException("bits must be a power of two >= 64");
+        this.words = new AtomicLongArray(bits >>> 6);
+        this.mask = bits - 1;
+        this.hashes = hashes;
+    }
+
+    public void put(long high, long low) {
+        for(int i = 0; i < hashes; i++) {
+            var bit = (high + i * (low | 1)) & mask;
+            var index = (int) (bit >>> 6);
+            var flag = 1L << bit;
+            var word = words.get(index);
+            while((word & flag) == 0 && !words.weakCompareAndSetVolatile(index, word, word | flag)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    public boolean mightContain(long high, long low) {
+        for(int i = 0; i < hashes; i++) {
+            var bit = (high + i * (low | 1)) & mask;
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package ft.projects.forum.cache;
+
+import java.time.Clock;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Node<K, V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxSize;
+    private final int lowWaterMark;
+    private final Clock clock;
+
+    public ExpiringCache(int maxSize, Clock clock) {
+        this.maxSize = maxSize;
+        this.lowWaterMark = maxSize - maxSize / 16;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        var entry = entries.get(key);
+        if(entry == null) {
+            misses.increment();
+            return null;
+        }
+        if(entry.expiresAt() <= clock.millis()) {
+            if(entries.remove(key, entry)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAt) {
+        if(expiresAt <= clock.millis()) return;
+        var entry = new Entry<>(value, expiresAt);
+        entries.put(key, entry);
+        order.offer(new Node<>(key, entry));
+        if(queued.incrementAndGet() > maxSize * 2 || entries.size() > maxSize) sweep();
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        order.clear();
+        queued.set(0);
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void sweep() {
+        if(!sweepLock.tryLock()) return;
+        try {
+            if(queued.get() > maxSize * 2) compact();
+            Node<K, V> node;
+            while(entries.size() > lowWaterMark && (node = order.poll()) != null) {
+                queued.decrementAndGet();
+                if(entries.remove(node.key(), node.entry())) evictions.increment();
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void compact() {
+        var now = clock.millis();
+        for(var iterator = order.iterator(); iterator.hasNext();) {
+            var node = iterator.next();
+            var expired = node.entry().expiresAt() <= now;
+            if(entries.get(node.key()) != node.entry() || expired) {
+                iterator.remove();
+                queued.decrementAndGet();
+                if(expired && entries.remove(node.key(), node.entry())) evictions.increment();
+            }
+        }
+    }
+
+    private record Entry<V>(
+            V value,
+            long expiresAt
+    ) {
+    }
+
+    private record Node<K, V>(
+            K key,
+            Entry<V> entry
+    ) {
+    }
+}
@@ -0,0 +1,111 @@
+package ft.projects.forum.cache;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+public class LoadingCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final int maxSize;
+    private final long ttl;
+    private final Clock clock;
+
+    public LoadingCache(int maxSize, long ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        var now = clock.millis();
+        var entry = entries.get(key);
+        if(entry == null || entry.expiresAt() <= now) {
+            if(entry == null && entries.size() >= maxSize) {
+                misses.increment();
+                return load(loader);
+            }
+            var created = new Entry<V>(new CompletableFuture<>(), now + ttl);
+            entry = entries.compute(key, (k, current) -> current == null || current.expiresAt() <= now ? created : current);
+            if(entry == created) {
+                misses.increment();
+                try {
+                    var value = load(loader);
+                    created.value().complete(value);
+                    return value;
+                } catch (RuntimeException e) {
+                    entries.remove(key, created);
+                    created.value().completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        hits.increment();
+        try {
+            return entry.value().join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    public void patchAll(UnaryOperator<V> patch) {
+        entries.forEach((key, entry) -> {
+            var value = entry.value().getNow(null);
+            if(value == null) {
+                entries.remove(key, entry);
+                return;
+            }
+            entries.replace(key, entry, new Entry<>(CompletableFuture.completedFuture(patch.apply(value)), entry.expiresAt()));
+        });
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public double getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    private V load(Supplier<V> loader) {
+        var start = System.nanoTime();
+        try {
+            return loader.get();
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+            loads.increment();
+        }
+    }
+
+    private record Entry<V>(
+            CompletableFuture<V> value,
+            long expiresAt
+    ) {
+    }
+}
@@ -0,0 +1,167 @@
+package ft.projects.forum.config;
+
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.cache.LoadingCache;
+import ft.projects.forum.security.crypto.BoundedPasswordEncoder;
+import ft.projects.forum.security.service.ForumPrincipalService;
+import ft.projects.forum.security.service.RateLimitService;
+import ft.projects.forum.service.ForumArchiveService;
+import ft.projects.forum.service.ForumCommentQueueService;
+import ft.projects.forum.service.ForumDeletionService;
+import ft.projects.forum.service.ForumImportService;
+import ft.projects.forum.service.ForumThreadService;
+import ft.projects.forum.security.service.TokenRevocationService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder tokenRevocationMetrics(TokenRevocationService revocationService) {
+        return registry -> {
+            Gauge.builder("forum.token.revocations.size", revocationService, TokenRevocationService::getSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.token.revocations.evictions", revocationService, TokenRevocationService::getEvictions)
+                    .register(registry);
+            FunctionCounter.builder("forum.token.revocations.bloom.false.positives", revocationService, TokenRevocationService::getBloomFalsePositives)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(BoundedPasswordEncoder passwordEncoder) {
+        return registry -> {
+            Gauge.builder("forum.password.hashing.queue", passwordEncoder, BoundedPasswordEncoder::getQueueSize)
+                    .register(registry);
+            Gauge.builder("forum.password.hashing.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("forum.password.hashing.rejections", passwordEncoder, BoundedPasswordEncoder::getRejections)
+                    .register(registry);
+            FunctionTimer.builder("forum.password.hashing.latency", passwordEncoder, BoundedPasswordEncoder::getHashes, BoundedPasswordEncoder::getHashNanos, TimeUnit.NANOSECONDS)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitService rateLimitService) {
+        return registry -> {
+            Gauge.builder("forum.rate.limit.buckets", rateLimitService, RateLimitService::getSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.rate.limit.rejections", rateLimitService, RateLimitService::getRejections)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder frontPageCacheMetrics(ForumThreadService threadService) {
+        var cache = threadService.getFrontPageCache();
+        return registry -> {
+            Gauge.builder("forum.front.page.cache.size", cache, LoadingCache::getSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.front.page.cache.hits", cache, LoadingCache::getHits)
+                    .register(registry);
+            FunctionCounter.builder("forum.front.page.cache.misses", cache, LoadingCache::getMisses)
+                    .register(registry);
+            FunctionTimer.builder("forum.front.page.cache.rebuilds", cache, LoadingCache::getLoads, LoadingCache::getLoadNanos, TimeUnit.NANOSECONDS)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder threadStatusCacheMetrics(ForumThreadService threadService) {
+        var cache = threadService.getThreadStatusCache();
+        return registry -> {
+            Gauge.builder("forum.thread.status.cache.size", cache, ExpiringCache::getSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.thread.status.cache.hits", cache, ExpiringCache::getHits)
+                    .register(registry);
+            FunctionCounter.builder("forum.thread.status.cache.misses", cache, ExpiringCache::getMisses)
+                    .register(registry);
+            FunctionCounter.builder("forum.thread.status.cache.evictions", cache, ExpiringCache::getEvictions)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder commentQueueMetrics(ForumCommentQueueService commentQueueService) {
+        return registry -> {
+            Gauge.builder("forum.comment.queue.size", commentQueueService, ForumCommentQueueService::getQueueSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.comment.queue.rejections", commentQueueService, ForumCommentQueueService::getRejections)
+                    .register(registry);
+            FunctionCounter.builder("forum.comment.queue.written", commentQueueService, ForumCommentQueueService::getWritten)
+                    .register(registry);
+            FunctionCounter.builder("forum.comment.queue.dropped", commentQueueService, ForumCommentQueueService::getDropped)
+                    .register(registry);
+            FunctionTimer.builder("forum.comment.queue.batches", commentQueueService, ForumCommentQueueService::getBatches, ForumCommentQueueService::getBatchNanos, TimeUnit.NANOSECONDS)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder deletionMetrics(ForumDeletionService deletionService) {
+        return registry -> {
+            Gauge.builder("forum.deletion.active", deletionService, ForumDeletionService::getActiveJobs)
+                    .register(registry);
+            FunctionCounter.builder("forum.deletion.rows", deletionService, ForumDeletionService::getDeletedRows)
+                    .register(registry);
+            FunctionCounter.builder("forum.deletion.background", deletionService, ForumDeletionService::getBackgroundJobs)
+                    .register(registry);
+            FunctionCounter.builder("forum.deletion.failures", deletionService, ForumDeletionService::getFailedJobs)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder archiveMetrics(ForumArchiveService archiveService) {
+        return registry -> {
+            Gauge.builder("forum.archive.size", archiveService, ForumArchiveService::getSize)
+                    .register(registry);
+            Gauge.builder("forum.archive.bytes", archiveService, ForumArchiveService::getBytes)
+                    .register(registry);
+            FunctionCounter.builder("forum.archive.threads", archiveService, ForumArchiveService::getArchivedThreads)
+                    .register(registry);
+            FunctionCounter.builder("forum.archive.comments", archiveService, ForumArchiveService::getArchivedComments)
+                    .register(registry);
+            FunctionCounter.builder("forum.archive.purged.users", archiveService, ForumArchiveService::getPurgedUsers)
+                    .register(registry);
+            FunctionCounter.builder("forum.archive.failures", archiveService, ForumArchiveService::getFailures)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder importMetrics(ForumImportService importService) {
+        return registry -> {
+            FunctionCounter.builder("forum.import.users", importService, ForumImportService::getImportedUsers)
+                    .register(registry);
+            FunctionCounter.builder("forum.import.threads", importService, ForumImportService::getImportedThreads)
+                    .register(registry);
+            FunctionCounter.builder("forum.import.comments", importService, ForumImportService::getImportedComments)
+                    .register(registry);
+            FunctionCounter.builder("forum.import.rejected", importService, ForumImportService::getRejected)
+                    .register(registry);
+            FunctionTimer.builder("forum.import.chunks", importService, ForumImportService::getChunks, ForumImportService::getChunkNanos, TimeUnit.NANOSECONDS)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder principalCacheMetrics(ForumPrincipalService principalService) {
+        return registry -> {
+            Gauge.builder("forum.principal.cache.size", principalService, ForumPrincipalService::getSize)
+                    .register(registry);
+            FunctionCounter.builder("forum.principal.cache.hits", principalService, ForumPrincipalService::getHits)
+                    .register(registry);
+            FunctionCounter.builder("forum.principal.cache.misses", principalService, ForumPrincipalService::getMisses)
+                    .register(registry);
+        };
+    }
+}
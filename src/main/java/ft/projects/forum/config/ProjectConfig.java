@@ -1,15 +1,25 @@
 package ft.projects.forum.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.time.Clock;
 import java.time.format.DateTimeFormatter;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class ProjectConfig {
 
     @Bean
     public DateTimeFormatter dateTimeFormatter() {
         return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
 }
@@ -0,0 +1,21 @@
+package ft.projects.forum.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(
+        long evictionInterval,
+        List<Group> groups
+) {
+
+    public record Group(
+            String name,
+            List<String> methods,
+            List<String> paths,
+            int capacity,
+            long period
+    ) {
+    }
+}
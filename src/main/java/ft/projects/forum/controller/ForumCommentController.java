@@ -1,8 +1,10 @@
 package ft.projects.forum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumExceptionResponse;
 import ft.projects.forum.model.ForumCommentRequest;
 import ft.projects.forum.model.ForumCommentResponse;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.service.ForumCommentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,11 +14,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -26,32 +30,51 @@ import java.util.UUID;
 public class ForumCommentController {
 
     private final ForumCommentService commentService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Create", description = "Create Comment", tags = { "comment" })
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Accepted for asynchronous write", content = { @Content() }),
             @ApiResponse(responseCode = "204", description = "Successfully created", content = { @Content() }),
             @ApiResponse(responseCode = "400", description = "Invalid Request Body", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
-            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() }),
+            @ApiResponse(responseCode = "503", description = "Comment queue full", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) })
         }
     )
     @SecurityRequirement(name = "JwtAuth")
     @PostMapping(path = "/create")
-    @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void createComment(@RequestBody ForumCommentRequest commentRequest) {
-        commentService.createComment(commentRequest);
+    public ResponseEntity<Void> createComment(@RequestBody ForumCommentRequest commentRequest) {
+        var queued = commentService.createComment(commentRequest);
+        return ResponseEntity.status(queued ? HttpStatus.ACCEPTED : HttpStatus.NO_CONTENT).build();
     }
 
-    @Operation(summary = "Get", description = "Get Comments For Thread", tags = { "comment" })
+    @Operation(summary = "Get", description = "Get Comments For Thread. Without cursor and size, returns every comment as one streamed array (deprecated and unbounded, page with cursor instead). With either, returns one keyset page of at most size comments (default 20, max comment-max-size) and a nextCursor; omit cursor for the first page", tags = { "comment" })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully fetched comments for thread", content = { @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ForumCommentResponse.class))) }),
-            @ApiResponse(responseCode = "400", description = "Invalid Request Param", content = { @Content() }),
+            @ApiResponse(responseCode = "200", description = "Successfully fetched comments for thread", content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ForumCommentResponse.class))),
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ForumPageResponse.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid Request Param", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
             @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
         }
     )
     @SecurityRequirement(name = "JwtAuth")
     @GetMapping
-    public List<ForumCommentResponse> getCommentsForThread(@RequestParam(name = "id") UUID threadId) {
-        return commentService.getCommentsForThread(threadId);
+    public void getCommentsForThread(
+            @RequestParam(name = "id") UUID threadId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletResponse response) throws IOException {
+        if(cursor == null && size == null) {
+            try(var generator = ForumResponseStreams.open(objectMapper, response)) {
+                commentService.writeCommentsForThread(threadId, generator);
+            }
+            return;
+        }
+        var page = commentService.getCommentsForThread(threadId, cursor, size != null ? size : 20);
+        try(var generator = ForumResponseStreams.open(objectMapper, response)) {
+            objectMapper.writeValue(generator, page);
+        }
     }
 
     @Operation(summary = "Update", description = "Update Content", tags = { "comment" })
@@ -64,8 +87,8 @@ public class ForumCommentController {
     @SecurityRequirement(name = "JwtAuth")
     @PutMapping(path = "/content")
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void updateContent(@RequestParam(name = "id") UUID commentId, @RequestParam String content) {
-        commentService.updateContent(commentId, content);
+    public void updateContent(@RequestParam(name = "id") UUID commentId, @RequestParam String content, @RequestParam(required = false) Long version) {
+        commentService.updateContent(commentId, content, version);
     }
 
     @Operation(summary = "Delete", description = "Delete Comment", tags = { "comment" })
@@ -0,0 +1,40 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.exception.ForumExceptionResponse;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.service.ForumDeletionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping(path = "/api/deletions")
+@RequiredArgsConstructor
+@Tag(name = "deletion", description = "Deletion API")
+public class ForumDeletionController {
+
+    private final ForumDeletionService deletionService;
+
+    @Operation(summary = "Get", description = "Get Background Deletion Progress", tags = { "deletion" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched deletion progress", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumDeletionResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Deletion not found", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @GetMapping(path = "/{id}")
+    @ResponseStatus(value = HttpStatus.OK)
+    public ForumDeletionResponse getDeletion(@PathVariable UUID id) {
+        return deletionService.getJob(id);
+    }
+}
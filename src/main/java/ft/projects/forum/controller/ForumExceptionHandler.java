@@ -2,6 +2,9 @@ package ft.projects.forum.controller;
 
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptionResponse;
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.exception.ForumUnauthorizedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,4 +17,16 @@ public class ForumExceptionHandler {
     public ResponseEntity<ForumExceptionResponse> handleForumException(ForumException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ForumExceptionResponse(e.getMessage()));
     }
+
+    @ExceptionHandler(value = ForumUnauthorizedException.class)
+    public ResponseEntity<ForumExceptionResponse> handleForumUnauthorizedException(ForumUnauthorizedException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ForumExceptionResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(value = ForumOverloadException.class)
+    public ResponseEntity<ForumExceptionResponse> handleForumOverloadException(ForumOverloadException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ForumExceptionResponse(e.getMessage()));
+    }
 }
@@ -0,0 +1,42 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.service.ForumExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping(path = "/api/export")
+@RequiredArgsConstructor
+@Tag(name = "export", description = "Export API")
+public class ForumExportController {
+
+    private final ForumExportService exportService;
+
+    @Operation(summary = "Export", description = "Export Threads And Comments, Including Archived Threads, As Gzip NDJSON", tags = { "export" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully exported", content = { @Content(mediaType = "application/gzip") }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() }),
+            @ApiResponse(responseCode = "403", description = "Invalid User Authorization (Admin Role Required)", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @GetMapping
+    @ResponseStatus(value = HttpStatus.OK)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("forum-export.ndjson.gz").build().toString());
+        exportService.export(response.getOutputStream());
+    }
+}
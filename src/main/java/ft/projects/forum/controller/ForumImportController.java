@@ -0,0 +1,40 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.model.ForumImportResponse;
+import ft.projects.forum.service.ForumImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping(path = "/api/import")
+@RequiredArgsConstructor
+@Tag(name = "import", description = "Import API")
+public class ForumImportController {
+
+    private final ForumImportService importService;
+
+    @Operation(summary = "Import", description = "Import Users, Threads And Comments From NDJSON", tags = { "import" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully imported", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumImportResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() }),
+            @ApiResponse(responseCode = "403", description = "Invalid User Authorization (Admin Role Required)", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @PostMapping(consumes = "application/x-ndjson")
+    @ResponseStatus(value = HttpStatus.OK)
+    public ForumImportResponse importNdjson(HttpServletRequest request) throws IOException {
+        return importService.importNdjson(request.getInputStream());
+    }
+}
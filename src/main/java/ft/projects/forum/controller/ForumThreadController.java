@@ -1,8 +1,14 @@
 package ft.projects.forum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumExceptionResponse;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.model.ForumPageResponse;
+import ft.projects.forum.model.ForumThreadDetailResponse;
 import ft.projects.forum.model.ForumThreadRequest;
 import ft.projects.forum.model.ForumThreadResponse;
+import ft.projects.forum.model.ForumThreadSummaryResponse;
 import ft.projects.forum.service.ForumThreadService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,11 +18,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -26,6 +34,7 @@ import java.util.UUID;
 public class ForumThreadController {
 
     private final ForumThreadService threadService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Create", description = "Create Thread", tags = { "thread" })
     @ApiResponses(value = {
@@ -51,11 +60,65 @@ public class ForumThreadController {
     @SecurityRequirement(name = "JwtAuth")
     @GetMapping
     @ResponseStatus(value = HttpStatus.OK)
-    public List<ForumThreadResponse> getThreads(
+    public void getThreads(
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "5") int size,
+            @RequestParam(required = false, defaultValue = "true") boolean descending,
+            @RequestParam(required = false, defaultValue = "published") String sort,
+            HttpServletResponse response) throws IOException {
+        try(var generator = ForumResponseStreams.open(objectMapper, response)) {
+            threadService.writeThreads(page, size, descending, sort, generator);
+        }
+    }
+
+    @Operation(summary = "Get", description = "Get Threads By Cursor", tags = { "thread" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched threads", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumPageResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid Request Param", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @GetMapping(params = { "cursor", "view!=summary" })
+    @ResponseStatus(value = HttpStatus.OK)
+    public ForumPageResponse<ForumThreadResponse> getThreadsByCursor(
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "5") int size,
             @RequestParam(required = false, defaultValue = "true") boolean descending) {
-        return threadService.getThreads(page, size, descending);
+        return threadService.getThreads(cursor, size, descending);
+    }
+
+    @Operation(summary = "Get", description = "Get Thread Summaries", tags = { "thread" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched thread summaries", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumPageResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid Request Param", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @GetMapping(params = "view=summary")
+    @ResponseStatus(value = HttpStatus.OK)
+    public ForumPageResponse<ForumThreadSummaryResponse> getThreadSummaries(
+            @RequestParam(required = false, defaultValue = "") String cursor,
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false, defaultValue = "true") boolean descending) {
+        return threadService.getThreadSummaries(cursor, size, descending);
+    }
+
+    @Operation(summary = "Get", description = "Get Thread With First Comment Page", tags = { "thread" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched thread", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumThreadDetailResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Thread not found", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @GetMapping(path = "/{id}")
+    @ResponseStatus(value = HttpStatus.OK)
+    public ForumThreadDetailResponse getThread(
+            @PathVariable UUID id,
+            @RequestParam(required = false, defaultValue = "20") int size) {
+        return threadService.getThreadDetail(id, size);
     }
 
     @Operation(summary = "Update", description = "Update Content", tags = { "thread" })
@@ -68,8 +131,8 @@ public class ForumThreadController {
     @SecurityRequirement(name = "JwtAuth")
     @PutMapping(path = "/content")
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void updateContent(@RequestParam UUID id, @RequestParam String content) {
-        threadService.updateContent(id, content);
+    public void updateContent(@RequestParam UUID id, @RequestParam String content, @RequestParam(required = false) Long version) {
+        threadService.updateContent(id, content, version);
     }
 
     @Operation(summary = "Update", description = "Update Closed", tags = { "thread" })
@@ -88,15 +151,17 @@ public class ForumThreadController {
 
     @Operation(summary = "Delete", description = "Delete Thread", tags = { "thread" })
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Deletion running in background", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumDeletionResponse.class)) }),
             @ApiResponse(responseCode = "204", description = "Successfully deleted thread", content = { @Content() }),
-            @ApiResponse(responseCode = "400", description = "Thread not found / You are not owner", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Thread not found / You are not owner / Thread archived", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
             @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
         }
     )
     @SecurityRequirement(name = "JwtAuth")
     @DeleteMapping(path = "/delete")
-    @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void deleteThread(@RequestParam UUID id) {
-        threadService.deleteThread(id);
+    public ResponseEntity<ForumDeletionResponse> deleteThread(@RequestParam UUID id) {
+        var deletion = threadService.deleteThread(id);
+        if(deletion.status() == ForumDeletionStatus.DONE) return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted().body(deletion);
     }
 }
@@ -1,8 +1,13 @@
 package ft.projects.forum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumExceptionResponse;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.model.ForumUserRequest;
 import ft.projects.forum.model.ForumUserResponse;
+import ft.projects.forum.model.RefreshTokenRequest;
 import ft.projects.forum.model.TokenResponse;
 import ft.projects.forum.service.ForumUserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,11 +18,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping(path = "/api/users")
@@ -26,6 +33,7 @@ import java.util.List;
 public class ForumUserController {
 
     private final ForumUserService userService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Register", description = "Register User", tags = { "user" })
     @ApiResponses(value = {
@@ -52,9 +60,38 @@ public class ForumUserController {
         return userService.login();
     }
 
-    @Operation(summary = "Users", description = "Get Users", tags = { "user" })
+    @Operation(summary = "Refresh", description = "Refresh Token", tags = { "user" })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully fetched users", content = { @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ForumUserResponse.class))) }),
+            @ApiResponse(responseCode = "200", description = "Successfully refreshed token", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = TokenResponse.class)) }),
+            @ApiResponse(responseCode = "401", description = "Invalid Refresh Token", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) })
+        }
+    )
+    @PostMapping(path = "/refresh")
+    @ResponseStatus(value = HttpStatus.OK)
+    public TokenResponse refresh(@RequestBody RefreshTokenRequest refreshRequest) {
+        return userService.refresh(refreshRequest);
+    }
+
+    @Operation(summary = "Logout", description = "Logout User", tags = { "user" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Successfully logged out", content = { @Content() }),
+            @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() })
+        }
+    )
+    @SecurityRequirement(name = "JwtAuth")
+    @PostMapping(path = "/logout")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public void logout() {
+        userService.logout();
+    }
+
+    @Operation(summary = "Users", description = "Get Users. Without cursor and size, streams every user as an array. With either, returns one keyset page of at most size users (default 100, max user-max-size) and a nextCursor; omit cursor for the first page", tags = { "user" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched users", content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ForumUserResponse.class))),
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ForumPageResponse.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid Request Param", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumExceptionResponse.class)) }),
             @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {  @Content() }),
             @ApiResponse(responseCode = "403", description = "Invalid User Authorization (Admin Role Required)", content = {  @Content() })
         }
@@ -62,8 +99,21 @@ public class ForumUserController {
     @SecurityRequirement(name = "JwtAuth")
     @GetMapping
     @ResponseStatus(value = HttpStatus.OK)
-    public List<ForumUserResponse> getUsers() {
-        return userService.getUsers();
+    public void getUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            HttpServletResponse response) throws IOException {
+        if(cursor == null && size == null) {
+            try(var generator = ForumResponseStreams.open(objectMapper, response)) {
+                userService.writeUsers(prefix, generator);
+            }
+            return;
+        }
+        var page = userService.getUsers(cursor, size != null ? size : 100, prefix);
+        try(var generator = ForumResponseStreams.open(objectMapper, response)) {
+            objectMapper.writeValue(generator, page);
+        }
     }
 
     @Operation(summary = "Update", description = "Update Username", tags = { "user" })
@@ -96,14 +146,16 @@ public class ForumUserController {
 
     @Operation(summary = "Delete", description = "Delete User", tags = { "user" })
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Deletion running in background", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ForumDeletionResponse.class)) }),
             @ApiResponse(responseCode = "204", description = "Successfully deleted user", content = {@Content()}),
             @ApiResponse(responseCode = "401", description = "Invalid JWT Authentication", content = {@Content()})
         }
     )
     @SecurityRequirement(name = "JwtAuth")
     @DeleteMapping(path = "/delete")
-    @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void delete() {
-        userService.delete();
+    public ResponseEntity<ForumDeletionResponse> delete() {
+        var deletion = userService.delete();
+        if(deletion.status() == ForumDeletionStatus.DONE) return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted().body(deletion);
     }
 }
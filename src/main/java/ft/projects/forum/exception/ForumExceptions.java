@@ -11,5 +11,16 @@ public enum ForumExceptions {
     INVALID_SIZE,
     INVALID_ID,
     INVALID_OWNER,
-    THREAD_CLOSED
+    THREAD_CLOSED,
+    PASSWORD_HASHING_OVERLOADED,
+    INVALID_REFRESH_TOKEN,
+    RATE_LIMITED,
+    INVALID_CURSOR,
+    INVALID_SORT,
+    INVALID_IMPORT_LINE,
+    COMMENT_QUEUE_FULL,
+    VERSION_CONFLICT,
+    IMPORT_CHUNK_FAILED,
+    THREAD_ARCHIVED,
+    DELETION_QUEUE_FULL
 }
@@ -0,0 +1,14 @@
+package ft.projects.forum.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ForumOverloadException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ForumOverloadException(ForumExceptions message, long retryAfterSeconds) {
+        super(message.name());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
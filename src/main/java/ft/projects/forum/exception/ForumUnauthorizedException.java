@@ -0,0 +1,8 @@
+package ft.projects.forum.exception;
+
+public class ForumUnauthorizedException extends RuntimeException {
+
+    public ForumUnauthorizedException(ForumExceptions message) {
+        super(message.name());
+    }
+}
@@ -0,0 +1,13 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumArchivedComment(
+        UUID uuid,
+        UUID userId,
+        String creator,
+        String content,
+        Instant publishedAt
+) {
+}
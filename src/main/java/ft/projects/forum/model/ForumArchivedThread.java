@@ -0,0 +1,18 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record ForumArchivedThread(
+        UUID uuid,
+        UUID ownerId,
+        String creator,
+        String title,
+        String content,
+        Instant publishedAt,
+        Instant closedAt,
+        Instant lastActivityAt,
+        List<ForumArchivedComment> comments
+) {
+}
@@ -7,7 +7,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(columnList = "thread_uuid, published_at, uuid"))
 @Getter
 @Setter
 @Builder
@@ -18,6 +18,8 @@ public class ForumComment {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID uuid;
+    @Version
+    private long version;
     private String content;
     private Instant publishedAt;
     @ManyToOne
@@ -4,7 +4,9 @@ import java.util.UUID;
 
 public record ForumCommentResponse(
         UUID uuid,
+        String creator,
         String content,
-        String publishedAt
+        String publishedAt,
+        long version
 ) {
 }
@@ -0,0 +1,47 @@
+package ft.projects.forum.model;
+
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+public record ForumCursor(
+        Instant publishedAt,
+        UUID uuid,
+        boolean descending
+) {
+
+    private static final int LENGTH = 29;
+
+    public String encode() {
+        var buffer = ByteBuffer.allocate(LENGTH)
+                .putLong(publishedAt.getEpochSecond())
+                .putInt(publishedAt.getNano())
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .put((byte) (descending ? 1 : 0));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static ForumCursor decode(String cursor, boolean descending) {
+        try {
+            var bytes = Base64.getUrlDecoder().decode(cursor);
+            if(bytes.length != LENGTH) throw new ForumException(ForumExceptions.INVALID_CURSOR);
+            var buffer = ByteBuffer.wrap(bytes);
+            var decoded = new ForumCursor(
+                    Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()),
+                    new UUID(buffer.getLong(), buffer.getLong()),
+                    buffer.get() == 1
+            );
+            if(decoded.descending() != descending) throw new ForumException(ForumExceptions.INVALID_CURSOR);
+            return decoded;
+        } catch (IllegalArgumentException | BufferUnderflowException | DateTimeException e) {
+            throw new ForumException(ForumExceptions.INVALID_CURSOR);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ft.projects.forum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(
+        name = "deletion_jobs",
+        uniqueConstraints = @UniqueConstraint(columnNames = "target_id"),
+        indexes = @Index(columnList = "claimed_at")
+)
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ForumDeletionJob {
+
+    @Id
+    private UUID uuid;
+    @Enumerated(value = EnumType.STRING)
+    @Column(length = 32)
+    private ForumDeletionTarget target;
+    private UUID targetId;
+    private UUID ownerId;
+    private Instant claimedAt;
+    private boolean purgePending;
+}
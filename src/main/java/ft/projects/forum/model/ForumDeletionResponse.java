@@ -0,0 +1,11 @@
+package ft.projects.forum.model;
+
+import java.util.UUID;
+
+public record ForumDeletionResponse(
+        UUID uuid,
+        ForumDeletionStatus status,
+        long total,
+        long deleted
+) {
+}
@@ -0,0 +1,5 @@
+package ft.projects.forum.model;
+
+public enum ForumDeletionStatus {
+    QUEUED, RUNNING, DONE, FAILED
+}
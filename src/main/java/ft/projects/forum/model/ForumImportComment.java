@@ -0,0 +1,10 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+
+public record ForumImportComment(
+        String creator,
+        String content,
+        Instant publishedAt
+) {
+}
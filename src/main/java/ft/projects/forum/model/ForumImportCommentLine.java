@@ -0,0 +1,15 @@
+package ft.projects.forum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@JsonIgnoreProperties({ "uuid" })
+public record ForumImportCommentLine(
+        UUID threadId,
+        String creator,
+        String content,
+        Instant publishedAt
+) implements ForumImportLine {
+}
@@ -0,0 +1,13 @@
+package ft.projects.forum.model;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = ForumImportUser.class, name = "user"),
+        @JsonSubTypes.Type(value = ForumImportThread.class, name = "thread"),
+        @JsonSubTypes.Type(value = ForumImportCommentLine.class, name = "comment")
+})
+public sealed interface ForumImportLine permits ForumImportUser, ForumImportThread, ForumImportCommentLine {
+}
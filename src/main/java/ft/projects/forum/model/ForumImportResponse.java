@@ -0,0 +1,13 @@
+package ft.projects.forum.model;
+
+import java.util.List;
+
+public record ForumImportResponse(
+        long users,
+        long threads,
+        long comments,
+        long rejected,
+        List<String> errors,
+        boolean aborted
+) {
+}
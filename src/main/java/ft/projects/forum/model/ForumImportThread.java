@@ -0,0 +1,19 @@
+package ft.projects.forum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@JsonIgnoreProperties({ "commentCount", "lastActivityAt", "archived" })
+public record ForumImportThread(
+        UUID uuid,
+        String creator,
+        String title,
+        String content,
+        Instant publishedAt,
+        boolean closed,
+        List<ForumImportComment> comments
+) implements ForumImportLine {
+}
@@ -0,0 +1,8 @@
+package ft.projects.forum.model;
+
+public record ForumImportUser(
+        String username,
+        String password,
+        String timezone
+) implements ForumImportLine {
+}
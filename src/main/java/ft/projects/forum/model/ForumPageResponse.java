@@ -0,0 +1,9 @@
+package ft.projects.forum.model;
+
+import java.util.List;
+
+public record ForumPageResponse<T>(
+        List<T> items,
+        String nextCursor
+) {
+}
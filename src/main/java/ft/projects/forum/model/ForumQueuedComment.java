@@ -0,0 +1,12 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumQueuedComment(
+        UUID threadId,
+        UUID userId,
+        String content,
+        Instant publishedAt
+) {
+}
@@ -4,11 +4,10 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "threads")
+@Table(name = "threads", indexes = { @Index(columnList = "published_at, uuid"), @Index(columnList = "last_activity_at, uuid"), @Index(columnList = "is_closed, closed_at") })
 @Getter
 @Setter
 @Builder
@@ -16,15 +15,27 @@ import java.util.UUID;
 @NoArgsConstructor
 public class ForumThread {
 
+    public static final int EXCERPT_LENGTH = 160;
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID uuid;
+    @Version
+    private long version;
     private String title;
     private String content;
+    @Column(length = EXCERPT_LENGTH)
+    private String excerpt;
     private Instant publishedAt;
     private boolean isClosed;
+    private Instant closedAt;
+    private long commentCount;
+    private Instant lastActivityAt;
     @ManyToOne
     private ForumUser user;
-    @OneToMany(mappedBy = "thread", cascade = CascadeType.REMOVE)
-    private List<ForumComment> comments;
+
+    public static String excerptOf(String content) {
+        if(content == null || content.codePointCount(0, content.length()) <= EXCERPT_LENGTH) return content;
+        return content.substring(0, content.offsetByCodePoints(0, EXCERPT_LENGTH));
+    }
 }
@@ -0,0 +1,17 @@
+package ft.projects.forum.model;
+
+import java.util.UUID;
+
+public record ForumThreadDetailResponse(
+        UUID uuid,
+        String creator,
+        String title,
+        String content,
+        String publishedAt,
+        long version,
+        boolean closed,
+        long commentCount,
+        String lastActivityAt,
+        ForumPageResponse<ForumCommentResponse> comments
+) {
+}
@@ -0,0 +1,17 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumThreadDetailView(
+        UUID uuid,
+        String creator,
+        String title,
+        String content,
+        Instant publishedAt,
+        long version,
+        boolean closed,
+        long commentCount,
+        Instant lastActivityAt
+) {
+}
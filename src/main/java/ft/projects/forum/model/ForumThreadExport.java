@@ -0,0 +1,16 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumThreadExport(
+        UUID uuid,
+        String creator,
+        String title,
+        String content,
+        Instant publishedAt,
+        boolean closed,
+        long commentCount,
+        Instant lastActivityAt
+) {
+}
@@ -7,6 +7,7 @@ public record ForumThreadResponse(
         String creator,
         String title,
         String content,
-        String publishedAt
+        String publishedAt,
+        long version
 ) {
 }
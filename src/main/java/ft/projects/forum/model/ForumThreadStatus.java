@@ -0,0 +1,12 @@
+package ft.projects.forum.model;
+
+import java.util.UUID;
+
+public record ForumThreadStatus(
+        boolean exists,
+        boolean closed,
+        UUID ownerId
+) {
+
+    public static final ForumThreadStatus MISSING = new ForumThreadStatus(false, false, null);
+}
@@ -0,0 +1,15 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumThreadSummary(
+        UUID uuid,
+        String creator,
+        String title,
+        String excerpt,
+        Instant publishedAt,
+        long commentCount,
+        Instant lastActivityAt
+) {
+}
@@ -0,0 +1,14 @@
+package ft.projects.forum.model;
+
+import java.util.UUID;
+
+public record ForumThreadSummaryResponse(
+        UUID uuid,
+        String creator,
+        String title,
+        String excerpt,
+        String publishedAt,
+        long commentCount,
+        String lastActivityAt
+) {
+}
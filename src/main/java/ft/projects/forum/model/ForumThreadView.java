@@ -0,0 +1,14 @@
+package ft.projects.forum.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ForumThreadView(
+        UUID uuid,
+        String creator,
+        String title,
+        String content,
+        Instant publishedAt,
+        long version
+) {
+}
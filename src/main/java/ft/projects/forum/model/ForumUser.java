@@ -3,11 +3,10 @@ package ft.projects.forum.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(columnList = "username"))
 @Getter
 @Setter
 @Builder
@@ -24,8 +23,5 @@ public class ForumUser {
     @Enumerated(value = EnumType.STRING)
     @Column(length = 32)
     private ForumRole role;
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
-    private List<ForumThread> threads;
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
-    private List<ForumComment> comments;
+    private long tokenVersion;
 }
@@ -0,0 +1,9 @@
+package ft.projects.forum.model;
+
+import java.util.UUID;
+
+public record ForumUserView(
+        UUID uuid,
+        String username
+) {
+}
@@ -0,0 +1,30 @@
+package ft.projects.forum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(
+        name = "refresh_tokens",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "digest_high", "digest_low" }),
+        indexes = { @Index(columnList = "user_uuid"), @Index(columnList = "expires_at") }
+)
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private long digestHigh;
+    private long digestLow;
+    private UUID userUuid;
+    private long tokenVersion;
+    private Instant expiresAt;
+}
@@ -0,0 +1,6 @@
+package ft.projects.forum.model;
+
+public record RefreshTokenRequest(
+        String refreshToken
+) {
+}
@@ -0,0 +1,28 @@
+package ft.projects.forum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(
+        name = "revoked_tokens",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "digest_high", "digest_low" }),
+        indexes = @Index(columnList = "expires_at")
+)
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private long digestHigh;
+    private long digestLow;
+    private Instant expiresAt;
+    private Instant revokedAt;
+}
@@ -2,6 +2,8 @@ package ft.projects.forum.model;
 
 public record TokenResponse(
         String token,
-        String expiration
+        String expiration,
+        String refreshToken,
+        String refreshExpiration
 ) {
 }
@@ -1,10 +1,94 @@
 package ft.projects.forum.repository;
 
+import ft.projects.forum.model.ForumArchivedComment;
 import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumCommentExport;
+import ft.projects.forum.model.ForumCommentView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface ForumCommentRepository extends JpaRepository<ForumComment, UUID> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new ft.projects.forum.model.ForumCommentView(c.uuid, u.username, c.content, c.publishedAt, c.version) from ForumComment c join c.user u where c.thread.uuid = :threadId order by c.publishedAt, c.uuid")
+    Stream<ForumCommentView> streamViewsByThread(UUID threadId);
+    @Query("select new ft.projects.forum.model.ForumCommentView(c.uuid, u.username, c.content, c.publishedAt, c.version) from ForumComment c join c.user u where c.thread.uuid = :threadId order by c.publishedAt, c.uuid")
+    List<ForumCommentView> findViewsByThread(UUID threadId, Limit limit);
+    @Query("select new ft.projects.forum.model.ForumCommentView(c.uuid, u.username, c.content, c.publishedAt, c.version) from ForumComment c join c.user u where c.thread.uuid = :threadId and (c.publishedAt > :publishedAt or (c.publishedAt = :publishedAt and c.uuid > :uuid)) order by c.publishedAt, c.uuid")
+    List<ForumCommentView> findViewsByThreadAfter(UUID threadId, Instant publishedAt, UUID uuid, Limit limit);
+    @Transactional(readOnly = true)
+    default void forEachViewByThread(UUID threadId, Consumer<ForumCommentView> action) {
+        try(var views = streamViewsByThread(threadId)) {
+            views.forEach(action);
+        }
+    }
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new ft.projects.forum.model.ForumCommentExport(c.uuid, t.uuid, u.username, c.content, c.publishedAt) from ForumComment c join c.thread t join c.user u order by t.uuid")
+    Stream<ForumCommentExport> streamExports();
+    @Transactional(readOnly = true)
+    default void forEachExport(Consumer<ForumCommentExport> action) {
+        try(var exports = streamExports()) {
+            exports.forEach(action);
+        }
+    }
+    @Query("select new ft.projects.forum.model.ForumArchivedComment(c.uuid, u.uuid, u.username, c.content, c.publishedAt) from ForumComment c join c.user u where c.thread.uuid = :threadId order by c.publishedAt, c.uuid")
+    List<ForumArchivedComment> findArchivedByThread(UUID threadId);
+    @Query("select c.user.uuid from ForumComment c where c.uuid = :uuid")
+    Optional<UUID> findOwnerIdByUuid(UUID uuid);
+    @Query("select c.thread.uuid from ForumComment c where c.uuid = :uuid")
+    Optional<UUID> findThreadIdByUuid(UUID uuid);
+    @Modifying
+    @Transactional
+    @Query("update ForumComment c set c.content = :content, c.version = c.version + 1 where c.uuid = :uuid and c.user.uuid = :userId and (:version is null or c.version = :version)")
+    int updateContent(UUID uuid, UUID userId, String content, Long version);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumComment c where c.uuid = :uuid and c.user.uuid = :userId")
+    int deleteOwned(UUID uuid, UUID userId);
+    @Query("select c.uuid from ForumComment c where c.thread.uuid = :threadId")
+    List<UUID> findIdsByThread(UUID threadId, Limit limit);
+    @Query("select c.uuid from ForumComment c where c.thread.uuid = :threadId and c.thread.user.uuid = :userId")
+    List<UUID> findIdsByOwnedThread(UUID threadId, UUID userId, Limit limit);
+    @Query("select c.uuid from ForumComment c where c.user.uuid = :userId")
+    List<UUID> findIdsByUser(UUID userId, Limit limit);
+    @Query("select c.uuid from ForumComment c where c.thread.user.uuid = :userId")
+    List<UUID> findIdsByThreadOwner(UUID userId, Limit limit);
+    @Query("select distinct c.thread.uuid from ForumComment c where c.uuid in :uuids")
+    List<UUID> findThreadIdsByUuids(Collection<UUID> uuids);
+    @Query("select count(c) from ForumComment c where c.thread.uuid = :threadId")
+    long countByThread(UUID threadId);
+    @Query("select count(c) from ForumComment c where c.thread.uuid = :threadId and c.thread.user.uuid = :userId")
+    long countByOwnedThread(UUID threadId, UUID userId);
+    @Query("select count(c) from ForumComment c where c.user.uuid = :userId or c.thread.user.uuid = :userId")
+    long countByUserOrThreadOwner(UUID userId);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumComment c where c.uuid in :uuids")
+    int deleteByUuids(Collection<UUID> uuids);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumComment c where c.thread.uuid = :threadId")
+    int deleteByThread(UUID threadId);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumComment c where c.thread.uuid = :threadId and exists (select t.uuid from ForumThread t where t.uuid = :threadId and t.user.uuid = :userId)")
+    int deleteByOwnedThread(UUID threadId, UUID userId);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumComment c where c.thread.uuid in :threadIds")
+    int deleteByThreads(Collection<UUID> threadIds);
 }
@@ -0,0 +1,45 @@
+package ft.projects.forum.repository;
+
+import ft.projects.forum.model.ForumDeletionJob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ForumDeletionJobRepository extends JpaRepository<ForumDeletionJob, UUID> {
+
+    boolean existsByTargetId(UUID targetId);
+    @Query("select j from ForumDeletionJob j where j.purgePending = false and j.claimedAt < :expiredBefore order by j.claimedAt")
+    List<ForumDeletionJob> findExpired(Instant expiredBefore, Limit limit);
+    @Modifying
+    @Transactional
+    @Query("update ForumDeletionJob j set j.claimedAt = :now where j.uuid = :uuid and j.purgePending = false and j.claimedAt < :expiredBefore")
+    int claim(UUID uuid, Instant now, Instant expiredBefore);
+    @Modifying
+    @Transactional
+    @Query("update ForumDeletionJob j set j.claimedAt = :now where j.uuid = :uuid")
+    int renew(UUID uuid, Instant now);
+    default int release(UUID uuid) {
+        return renew(uuid, Instant.EPOCH);
+    }
+    @Modifying
+    @Transactional
+    @Query("update ForumDeletionJob j set j.purgePending = true where j.uuid = :uuid")
+    int markPurgePending(UUID uuid);
+    @Query("select j.targetId from ForumDeletionJob j where j.purgePending = true")
+    List<UUID> findPurgePendingTargetIds();
+    @Modifying
+    @Transactional
+    @Query("delete from ForumDeletionJob j where j.uuid = :uuid")
+    int deleteByUuid(UUID uuid);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumDeletionJob j where j.purgePending = true and j.targetId in :targetIds")
+    int deletePurged(Collection<UUID> targetIds);
+}
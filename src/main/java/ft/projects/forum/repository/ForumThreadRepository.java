@@ -1,10 +1,138 @@
 package ft.projects.forum.repository;
 
 import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadDetailView;
+import ft.projects.forum.model.ForumThreadExport;
+import ft.projects.forum.model.ForumThreadStatus;
+import ft.projects.forum.model.ForumThreadSummary;
+import ft.projects.forum.model.ForumThreadView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface ForumThreadRepository extends JpaRepository<ForumThread, UUID> {
 
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u")
+    List<ForumThreadView> findViews(Pageable pageable);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u")
+    Stream<ForumThreadView> streamViews(Pageable pageable);
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u order by t.publishedAt desc, t.uuid desc")
+    List<ForumThreadView> findLatestViews(Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u order by t.publishedAt, t.uuid")
+    List<ForumThreadView> findEarliestViews(Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u where t.publishedAt < :publishedAt or (t.publishedAt = :publishedAt and t.uuid < :uuid) order by t.publishedAt desc, t.uuid desc")
+    List<ForumThreadView> findViewsBefore(Instant publishedAt, UUID uuid, Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version) from ForumThread t join t.user u where t.publishedAt > :publishedAt or (t.publishedAt = :publishedAt and t.uuid > :uuid) order by t.publishedAt, t.uuid")
+    List<ForumThreadView> findViewsAfter(Instant publishedAt, UUID uuid, Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadDetailView(t.uuid, u.username, t.title, t.content, t.publishedAt, t.version, t.isClosed, t.commentCount, coalesce(t.lastActivityAt, t.publishedAt)) from ForumThread t join t.user u where t.uuid = :uuid")
+    Optional<ForumThreadDetailView> findDetailById(UUID uuid);
+    @Query("select new ft.projects.forum.model.ForumThreadStatus(true, t.isClosed, t.user.uuid) from ForumThread t where t.uuid = :uuid")
+    Optional<ForumThreadStatus> findStatusById(UUID uuid);
+    @Query("select new ft.projects.forum.model.ForumThreadSummary(t.uuid, u.username, t.title, t.excerpt, t.publishedAt, t.commentCount, coalesce(t.lastActivityAt, t.publishedAt)) from ForumThread t join t.user u order by t.publishedAt desc, t.uuid desc")
+    List<ForumThreadSummary> findLatestSummaries(Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadSummary(t.uuid, u.username, t.title, t.excerpt, t.publishedAt, t.commentCount, coalesce(t.lastActivityAt, t.publishedAt)) from ForumThread t join t.user u order by t.publishedAt, t.uuid")
+    List<ForumThreadSummary> findEarliestSummaries(Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadSummary(t.uuid, u.username, t.title, t.excerpt, t.publishedAt, t.commentCount, coalesce(t.lastActivityAt, t.publishedAt)) from ForumThread t join t.user u where t.publishedAt < :publishedAt or (t.publishedAt = :publishedAt and t.uuid < :uuid) order by t.publishedAt desc, t.uuid desc")
+    List<ForumThreadSummary> findSummariesBefore(Instant publishedAt, UUID uuid, Limit limit);
+    @Query("select new ft.projects.forum.model.ForumThreadSummary(t.uuid, u.username, t.title, t.excerpt, t.publishedAt, t.commentCount, coalesce(t.lastActivityAt, t.publishedAt)) from ForumThread t join t.user u where t.publishedAt > :publishedAt or (t.publishedAt = :publishedAt and t.uuid > :uuid) order by t.publishedAt, t.uuid")
+    List<ForumThreadSummary> findSummariesAfter(Instant publishedAt, UUID uuid, Limit limit);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.content = :content, t.excerpt = :excerpt, t.version = t.version + 1 where t.uuid = :uuid and t.user.uuid = :userId and (:version is null or t.version = :version)")
+    int updateContent(UUID uuid, UUID userId, String content, String excerpt, Long version);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.closedAt = case when t.isClosed = :closed then t.closedAt else :closedAt end, t.isClosed = :closed, t.version = t.version + 1 where t.uuid = :uuid and t.user.uuid = :userId")
+    int updateClosed(UUID uuid, UUID userId, boolean closed, Instant closedAt);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.commentCount = t.commentCount + :count, t.lastActivityAt = case when t.lastActivityAt is null or t.lastActivityAt < :at then :at else t.lastActivityAt end where t.uuid = :uuid")
+    int incrementCommentCount(UUID uuid, long count, Instant at);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.commentCount = t.commentCount - 1 where t.uuid = :uuid and t.commentCount > 0")
+    int decrementCommentCount(UUID uuid);
+    @Modifying
+    @Transactional
+    @Query("""
+            update ForumThread t
+            set t.commentCount = (select count(c) from ForumComment c where c.thread = t),
+                t.lastActivityAt = coalesce((select max(c.publishedAt) from ForumComment c where c.thread = t), t.publishedAt)
+            where t.uuid in :uuids and (t.lastActivityAt is null
+                or t.commentCount <> (select count(c) from ForumComment c where c.thread = t)
+                or t.lastActivityAt <> coalesce((select max(c.publishedAt) from ForumComment c where c.thread = t), t.publishedAt))
+            """)
+    int reconcileCommentCounters(Collection<UUID> uuids);
+    @Query("select t.uuid from ForumThread t where t.uuid > :after order by t.uuid")
+    List<UUID> findIdsAfter(UUID after, Limit limit);
+    @Modifying
+    @Transactional
+    @Query("""
+            update ForumThread t
+            set t.commentCount = (select count(c) from ForumComment c where c.thread = t),
+                t.lastActivityAt = coalesce((select max(c.publishedAt) from ForumComment c where c.thread = t), t.publishedAt)
+            where t.uuid in :uuids
+            """)
+    int recountComments(Collection<UUID> uuids);
+    @Query("select count(t) from ForumThread t where t.user.uuid = :userId")
+    long countByUser(UUID userId);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumThread t where t.uuid = :uuid")
+    int deleteByUuid(UUID uuid);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumThread t where t.uuid = :uuid and t.user.uuid = :userId")
+    int deleteOwned(UUID uuid, UUID userId);
+    @Query("select t.uuid from ForumThread t where t.user.uuid = :userId")
+    List<UUID> findIdsByUser(UUID userId, Limit limit);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumThread t where t.uuid in :uuids")
+    int deleteByUuids(Collection<UUID> uuids);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.excerpt = substring(t.content, 1, :length) where t.excerpt is null and t.content is not null")
+    int backfillExcerpts(int length);
+    @Modifying
+    @Transactional
+    @Query("update ForumThread t set t.closedAt = coalesce(t.lastActivityAt, t.publishedAt) where t.isClosed = true and t.closedAt is null")
+    int backfillClosedAt();
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from ForumThread t where t.uuid = :uuid")
+    Optional<ForumThread> findLockedById(UUID uuid);
+    @Query("select t.uuid from ForumThread t where t.isClosed = true and t.closedAt < :cutoff order by t.closedAt")
+    List<UUID> findArchivableIds(Instant cutoff, Limit limit);
+    @Transactional(readOnly = true)
+    default void forEachView(Pageable pageable, Consumer<ForumThreadView> action) {
+        try(var views = streamViews(pageable)) {
+            views.forEach(action);
+        }
+    }
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new ft.projects.forum.model.ForumThreadExport(t.uuid, u.username, t.title, t.content, t.publishedAt, t.isClosed, t.commentCount, t.lastActivityAt) from ForumThread t join t.user u order by t.uuid")
+    Stream<ForumThreadExport> streamExports();
+    @Transactional(readOnly = true)
+    default void forEachExport(Consumer<ForumThreadExport> action) {
+        try(var exports = streamExports()) {
+            exports.forEach(action);
+        }
+    }
 }
@@ -1,12 +1,49 @@
 package ft.projects.forum.repository;
 
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.model.ForumUserResponse;
+import ft.projects.forum.model.ForumUserView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface ForumUserRepository extends JpaRepository<ForumUser, UUID> {
 
     Optional<ForumUser> findByUsername(String username);
+    @Query("select u.tokenVersion from ForumUser u where u.uuid = :uuid")
+    Optional<Long> findTokenVersionByUuid(UUID uuid);
+    @Query("select u.uuid from ForumUser u where u.username = :username")
+    Optional<UUID> findUuidByUsername(String username);
+    @Query("select new ft.projects.forum.model.ForumUserView(u.uuid, u.username) from ForumUser u where u.username like :prefix escape '!' and not (u.password is null and u.username like 'deleted-%') and (u.username > :username or (u.username = :username and u.uuid > :uuid)) order by u.username, u.uuid")
+    List<ForumUserView> findViewsAfter(String prefix, String username, UUID uuid, Limit limit);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new ft.projects.forum.model.ForumUserResponse(u.username) from ForumUser u where u.username like :prefix escape '!' and not (u.password is null and u.username like 'deleted-%') order by u.username, u.uuid")
+    Stream<ForumUserResponse> streamResponses(String prefix);
+    @Transactional(readOnly = true)
+    default void forEachResponse(String prefix, Consumer<ForumUserResponse> action) {
+        try(var responses = streamResponses(prefix)) {
+            responses.forEach(action);
+        }
+    }
+    @Query("select u.uuid from ForumUser u where u.password is null and u.username like 'deleted-%'")
+    List<UUID> findTombstonedIds();
+    @Modifying
+    @Transactional
+    @Query("update ForumUser u set u.username = :username, u.password = null, u.tokenVersion = u.tokenVersion + 1 where u.uuid = :uuid")
+    int tombstone(UUID uuid, String username);
+    @Modifying
+    @Transactional
+    @Query("delete from ForumUser u where u.uuid = :uuid")
+    int deleteByUuid(UUID uuid);
 }
@@ -0,0 +1,28 @@
+package ft.projects.forum.repository;
+
+import ft.projects.forum.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByDigestHighAndDigestLow(long digestHigh, long digestLow);
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.id = :id")
+    int deleteIfPresent(Long id);
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.userUuid = :userUuid")
+    int deleteByUserUuid(UUID userUuid);
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.expiresAt <= :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,20 @@
+package ft.projects.forum.repository;
+
+import ft.projects.forum.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    @Query("select r from RevokedToken r where (r.id > :highWaterMark or r.revokedAt >= :since) and r.expiresAt > :now order by r.id")
+    List<RevokedToken> findActiveSince(long highWaterMark, Instant since, Instant now);
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedToken r where r.expiresAt <= :now")
+    int deleteExpired(Instant now);
+}
@@ -1,8 +1,14 @@
 package ft.projects.forum.security.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.security.crypto.BoundedPasswordEncoder;
 import ft.projects.forum.security.filter.JwtFilter;
+import ft.projects.forum.security.filter.OverloadFilter;
+import ft.projects.forum.security.filter.RateLimitFilter;
+import ft.projects.forum.security.service.RateLimitService;
 import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -14,7 +20,6 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
@@ -25,6 +30,8 @@ import org.springframework.security.web.authentication.www.BasicAuthenticationFi
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
 
     @Bean
     @Order(2)
@@ -34,12 +41,14 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(c -> c.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterAt(jwtFilter, BasicAuthenticationFilter.class)
+                .addFilterAfter(new RateLimitFilter(rateLimitService, objectMapper), JwtFilter.class)
                 .exceptionHandling(c -> c.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .logout(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(c -> c
                         .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
-                        .requestMatchers("/api/users/register").permitAll()
-                        .requestMatchers("/api/users").hasRole("ADMIN")
+                        .requestMatchers("/api/users/register", "/api/users/refresh").permitAll()
+                        .requestMatchers("/api/users", "/api/export", "/api/import").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 );
         return http.build();
@@ -53,6 +62,8 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(c -> c.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new RateLimitFilter(rateLimitService, objectMapper), BasicAuthenticationFilter.class)
+                .addFilterBefore(new OverloadFilter(objectMapper), BasicAuthenticationFilter.class)
                 .httpBasic(c -> c.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(c -> c
                         .anyRequest().authenticated()
@@ -61,8 +72,12 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${password-hashing-threads}") int threads,
+            @Value("${password-hashing-queue-capacity}") int queueCapacity,
+            @Value("${password-hashing-timeout}") long timeout,
+            @Value("${password-hashing-retry-after}") long retryAfter) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, timeout, retryAfter);
     }
 
     @Bean
@@ -1,5 +1,7 @@
 package ft.projects.forum.security.filter;
 
+import ft.projects.forum.security.model.VerifiedToken;
+import ft.projects.forum.security.service.ForumPrincipalService;
 import ft.projects.forum.security.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -8,7 +10,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -18,7 +19,7 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
-    private final UserDetailsService userDetailsService;
+    private final ForumPrincipalService principalService;
     private final JwtService jwtService;
 
     @Override
@@ -28,16 +29,21 @@ public class JwtFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
             return;
         }
-        String token = auth.substring(7);
+        VerifiedToken token;
+        try {
+            token = jwtService.verify(auth.substring(7));
+        } catch (Exception e) {
+            response.setStatus(401);
+            return;
+        }
         if(jwtService.isInvalidated(token)) {
             response.setStatus(401);
             return;
         }
         try {
-            String username = jwtService.getUsername(token);
-            var user = userDetailsService.loadUserByUsername(username);
+            var principal = principalService.getPrincipal(token);
             SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
-                    user, null, user.getAuthorities()
+                    principal, null, principal.getAuthorities()
             ));
             jwtService.setToken(token);
         } catch (Exception e) {
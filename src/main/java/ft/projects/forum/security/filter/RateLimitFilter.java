@@ -0,0 +1,47 @@
+package ft.projects.forum.security.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.exception.ForumExceptionResponse;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final ForumExceptionResponse RATE_LIMITED = new ForumExceptionResponse(ForumExceptions.RATE_LIMITED.name());
+
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        // with forward-headers-strategy native, Tomcat's RemoteIpValve resolves getRemoteAddr to the
+        // X-Forwarded-For client when the peer is a trusted proxy (server.tomcat.remoteip.internal-proxies)
+        Object key = authentication != null && authentication.getPrincipal() instanceof ForumPrincipal principal
+                ? principal.uuid()
+                : request.getRemoteAddr();
+        var retryAfter = rateLimitService.tryAcquire(request, key);
+        if(retryAfter == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter + 999) / 1000));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), RATE_LIMITED);
+    }
+}
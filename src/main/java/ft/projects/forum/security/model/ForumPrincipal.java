@@ -0,0 +1,26 @@
+package ft.projects.forum.security.model;
+
+import ft.projects.forum.model.ForumRole;
+import ft.projects.forum.model.ForumUser;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ForumPrincipal(
+        UUID uuid,
+        String username,
+        ForumRole role,
+        String timezone,
+        long tokenVersion
+) {
+
+    public static ForumPrincipal from(ForumUser user) {
+        return new ForumPrincipal(user.getUuid(), user.getUsername(), user.getRole(), user.getTimezone(), user.getTokenVersion());
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+}
@@ -0,0 +1,9 @@
+package ft.projects.forum.security.model;
+
+import java.time.Instant;
+
+public record IssuedRefreshToken(
+        String token,
+        Instant expiration
+) {
+}
@@ -0,0 +1,7 @@
+package ft.projects.forum.security.model;
+
+public record RefreshTokenRotation(
+        ForumPrincipal principal,
+        IssuedRefreshToken refreshToken
+) {
+}
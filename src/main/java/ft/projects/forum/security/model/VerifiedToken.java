@@ -0,0 +1,13 @@
+package ft.projects.forum.security.model;
+
+import java.time.Instant;
+
+public record VerifiedToken(
+        String token,
+        TokenDigest digest,
+        String subject,
+        Instant expiration,
+        String id,
+        ForumPrincipal principal
+) {
+}
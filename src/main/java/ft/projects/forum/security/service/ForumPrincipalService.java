@@ -0,0 +1,17 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.VerifiedToken;
+
+import java.util.UUID;
+
+public interface ForumPrincipalService {
+
+    ForumPrincipal getPrincipal(VerifiedToken token);
+    ForumPrincipal getPrincipal(String username);
+    long getTokenVersion(UUID uuid);
+    void invalidate(UUID uuid, String username);
+    int getSize();
+    long getHits();
+    long getMisses();
+}
@@ -0,0 +1,96 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.VerifiedToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.UUID;
+
+@Service
+public class ForumPrincipalServiceImpl implements ForumPrincipalService {
+
+    private final ForumUserRepository userRepository;
+    private final Clock clock;
+    private final long ttl;
+    private final boolean statelessTokens;
+    private final ExpiringCache<String, ForumPrincipal> principals;
+    private final ExpiringCache<UUID, Long> tokenVersions;
+
+    public ForumPrincipalServiceImpl(
+            ForumUserRepository userRepository,
+            Clock clock,
+            @Value("${principal-cache-size}") int size,
+            @Value("${principal-cache-ttl}") long ttl,
+            @Value("${revocation-refresh-interval}") long refreshInterval,
+            @Value("${stateless-tokens}") boolean statelessTokens) {
+        this.userRepository = userRepository;
+        this.clock = clock;
+        this.ttl = Math.min(ttl, refreshInterval);
+        this.statelessTokens = statelessTokens;
+        this.principals = new ExpiringCache<>(size, clock);
+        this.tokenVersions = new ExpiringCache<>(size, clock);
+    }
+
+    @Override
+    public ForumPrincipal getPrincipal(VerifiedToken token) {
+        var claims = token.principal();
+        if(claims == null) throw new CredentialsExpiredException("");
+        if(statelessTokens) {
+            if(claims.tokenVersion() != getTokenVersion(claims.uuid())) throw new CredentialsExpiredException("");
+            return claims;
+        }
+        var principal = getPrincipal(token.subject());
+        if(!principal.uuid().equals(claims.uuid()) || principal.tokenVersion() != claims.tokenVersion()) {
+            throw new CredentialsExpiredException("");
+        }
+        return principal;
+    }
+
+    @Override
+    public ForumPrincipal getPrincipal(String username) {
+        var cached = principals.get(username);
+        if(cached != null) return cached;
+        var principal = userRepository.findByUsername(username)
+                .map(ForumPrincipal::from)
+                .orElseThrow(() -> new UsernameNotFoundException(""));
+        principals.put(username, principal, clock.millis() + ttl);
+        return principal;
+    }
+
+    @Override
+    public long getTokenVersion(UUID uuid) {
+        var cached = tokenVersions.get(uuid);
+        if(cached != null) return cached;
+        var tokenVersion = userRepository.findTokenVersionByUuid(uuid)
+                .orElseThrow(() -> new UsernameNotFoundException(""));
+        tokenVersions.put(uuid, tokenVersion, clock.millis() + ttl);
+        return tokenVersion;
+    }
+
+    @Override
+    public void invalidate(UUID uuid, String username) {
+        principals.invalidate(username);
+        tokenVersions.invalidate(uuid);
+    }
+
+    @Override
+    public int getSize() {
+        return principals.getSize();
+    }
+
+    @Override
+    public long getHits() {
+        return principals.getHits() + tokenVersions.getHits();
+    }
+
+    @Override
+    public long getMisses() {
+        return principals.getMisses() + tokenVersions.getMisses();
+    }
+}
@@ -1,14 +1,14 @@
 package ft.projects.forum.security.service;
 
-import java.util.Date;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.VerifiedToken;
 
 public interface JwtService {
 
-    String getToken(String username);
-    String getUsername(String jwt);
-    Date getDate(String jwt);
+    VerifiedToken getToken(ForumPrincipal principal);
+    VerifiedToken verify(String jwt);
     void invalidate();
-    boolean isInvalidated(String jwt);
-    void setToken(String jwt);
+    boolean isInvalidated(VerifiedToken token);
+    void setToken(VerifiedToken token);
     void clearToken();
 }
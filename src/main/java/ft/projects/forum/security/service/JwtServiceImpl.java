@@ -1,60 +1,101 @@
 package ft.projects.forum.security.service;
 
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.model.ForumRole;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.TokenDigest;
+import ft.projects.forum.security.model.VerifiedToken;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.Date;
-import java.util.List;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Service
 public class JwtServiceImpl implements JwtService {
 
-    private static final List<String> INVALIDATED = new ArrayList<>();
-    private static final ThreadLocal<String> JWT = new ThreadLocal<>();
-    @Value("${signing-key}")
-    private String signingKey;
-    @Value("${token-expiration}")
-    private Long tokenExpiration;
+    private static final ThreadLocal<VerifiedToken> JWT = new ThreadLocal<>();
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
+    private static final String TIMEZONE_CLAIM = "tz";
+    private static final String TOKEN_VERSION_CLAIM = "ver";
+    private final TokenRevocationService revocationService;
+    private final Clock clock;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Long tokenExpiration;
+    private final ExpiringCache<TokenDigest, VerifiedToken> verifiedTokens;
 
-    @Override
-    public String getToken(String username) {
-        return Jwts.builder()
-                .subject(username)
-                .expiration(new Date(System.currentTimeMillis() + tokenExpiration))
-                .signWith(Keys.hmacShaKeyFor(signingKey.getBytes(StandardCharsets.UTF_8)))
-                .compact();
+    public JwtServiceImpl(
+            TokenRevocationService revocationService,
+            Clock clock,
+            @Value("${signing-key}") String signingKey,
+            @Value("${token-expiration}") Long tokenExpiration,
+            @Value("${verified-token-cache-size}") int verifiedTokenCacheSize) {
+        this.revocationService = revocationService;
+        this.clock = clock;
+        this.signingKey = Keys.hmacShaKeyFor(signingKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(this.signingKey)
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+        this.tokenExpiration = tokenExpiration;
+        this.verifiedTokens = new ExpiringCache<>(verifiedTokenCacheSize, clock);
     }
 
     @Override
-    public String getUsername(String jwt) {
-        return extractClaim(jwt, Claims::getSubject);
+    public VerifiedToken getToken(ForumPrincipal principal) {
+        var expiration = Instant.ofEpochSecond((clock.millis() + tokenExpiration) / 1000);
+        var id = UUID.randomUUID().toString();
+        var jwt = Jwts.builder()
+                .id(id)
+                .subject(principal.username())
+                .claim(USER_ID_CLAIM, principal.uuid().toString())
+                .claim(ROLE_CLAIM, principal.role().name())
+                .claim(TIMEZONE_CLAIM, principal.timezone())
+                .claim(TOKEN_VERSION_CLAIM, principal.tokenVersion())
+                .expiration(Date.from(expiration))
+                .signWith(signingKey)
+                .compact();
+        var token = new VerifiedToken(jwt, TokenDigest.of(jwt), principal.username(), expiration, id, principal);
+        verifiedTokens.put(token.digest(), token, expiration.toEpochMilli());
+        return token;
     }
 
     @Override
-    public Date getDate(String jwt) {
-        return extractClaim(jwt, Claims::getExpiration);
+    public VerifiedToken verify(String jwt) {
+        var digest = TokenDigest.of(jwt);
+        var cached = verifiedTokens.get(digest);
+        if(cached != null && cached.token().equals(jwt)) return cached;
+        var claims = parser.parseSignedClaims(jwt).getPayload();
+        var token = new VerifiedToken(jwt, digest, claims.getSubject(), claims.getExpiration().toInstant(), claims.getId(), extractPrincipal(claims));
+        verifiedTokens.put(digest, token, token.expiration().toEpochMilli());
+        return token;
     }
 
     @Override
     public void invalidate() {
-        INVALIDATED.add(JWT.get());
+        var token = JWT.get();
+        revocationService.revoke(token.digest(), token.expiration());
+        verifiedTokens.invalidate(token.digest());
     }
 
     @Override
-    public boolean isInvalidated(String jwt) {
-        return INVALIDATED.stream()
-                .anyMatch(p -> p.equals(jwt));
+    public boolean isInvalidated(VerifiedToken token) {
+        return revocationService.isRevoked(token.digest());
     }
 
     @Override
-    public void setToken(String jwt) {
-        JWT.set(jwt);
+    public void setToken(VerifiedToken token) {
+        JWT.set(token);
     }
 
     @Override
@@ -62,12 +103,12 @@ public class JwtServiceImpl implements JwtService {
         JWT.remove();
     }
 
-    private <T> T extractClaim(String jwt, Function<Claims, T> extractor) {
-        var claims = Jwts.parser()
-                .setSigningKey(Keys.hmacShaKeyFor(signingKey.getBytes(StandardCharsets.UTF_8)))
-                .build()
-                .parseClaimsJws(jwt)
-                .getBody();
-        return extractor.apply(claims);
+    private ForumPrincipal extractPrincipal(Claims claims) {
+        var uuid = claims.get(USER_ID_CLAIM, String.class);
+        var role = claims.get(ROLE_CLAIM, String.class);
+        var timezone = claims.get(TIMEZONE_CLAIM, String.class);
+        var tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Long.class);
+        if(uuid == null || role == null || timezone == null || tokenVersion == null) return null;
+        return new ForumPrincipal(UUID.fromString(uuid), claims.getSubject(), ForumRole.valueOf(role), timezone, tokenVersion);
     }
 }
@@ -0,0 +1,11 @@
+package ft.projects.forum.security.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public interface RateLimitService {
+
+    long tryAcquire(HttpServletRequest request, Object key);
+    void evictIdle();
+    int getSize();
+    long getRejections();
+}
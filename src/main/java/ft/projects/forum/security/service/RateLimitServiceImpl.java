@@ -0,0 +1,99 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.config.RateLimitProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class RateLimitServiceImpl implements RateLimitService {
+
+    private final List<Limit> limits;
+    private final Clock clock;
+    private final LongAdder rejections = new LongAdder();
+
+    public RateLimitServiceImpl(RateLimitProperties properties, Clock clock) {
+        this.clock = clock;
+        this.limits = properties.groups() == null ? List.of() : properties.groups()
+                .stream()
+                .map(Limit::new)
+                .toList();
+    }
+
+    @Override
+    public long tryAcquire(HttpServletRequest request, Object key) {
+        for(var limit : limits) {
+            if(limit.matcher.matches(request)) return limit.tryAcquire(key, clock.millis() * 1000);
+        }
+        return 0;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval}")
+    public void evictIdle() {
+        var now = clock.millis() * 1000;
+        for(var limit : limits) {
+            for(var key : limit.buckets.keySet()) {
+                limit.buckets.computeIfPresent(key, (k, bucket) -> bucket.get() <= now ? null : bucket);
+            }
+        }
+    }
+
+    @Override
+    public int getSize() {
+        var size = 0;
+        for(var limit : limits) size += limit.buckets.size();
+        return size;
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    private final class Limit {
+
+        private final ConcurrentMap<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final RequestMatcher matcher;
+        private final long emissionInterval;
+        private final long tolerance;
+
+        private Limit(RateLimitProperties.Group group) {
+            var matchers = new ArrayList<RequestMatcher>();
+            var methods = group.methods() == null || group.methods().isEmpty() ? List.<String>of() : group.methods();
+            for(var path : group.paths()) {
+                if(methods.isEmpty()) matchers.add(new AntPathRequestMatcher(path));
+                for(var method : methods) matchers.add(new AntPathRequestMatcher(path, HttpMethod.valueOf(method).name()));
+            }
+            this.matcher = new OrRequestMatcher(matchers);
+            this.emissionInterval = group.period() * 1000 / group.capacity();
+            this.tolerance = group.period() * 1000;
+        }
+
+        private long tryAcquire(Object key, long now) {
+            var bucket = buckets.computeIfAbsent(key, k -> new AtomicLong());
+            while(true) {
+                var tat = bucket.get();
+                var next = Math.max(tat, now) + emissionInterval;
+                var wait = next - now - tolerance;
+                if(wait > 0) {
+                    rejections.increment();
+                    return (wait + 999) / 1000;
+                }
+                if(bucket.compareAndSet(tat, next)) return 0;
+            }
+        }
+    }
+}
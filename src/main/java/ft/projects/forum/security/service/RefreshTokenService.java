@@ -0,0 +1,15 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.IssuedRefreshToken;
+import ft.projects.forum.security.model.RefreshTokenRotation;
+
+import java.util.UUID;
+
+public interface RefreshTokenService {
+
+    IssuedRefreshToken issue(ForumPrincipal principal);
+    RefreshTokenRotation rotate(String refreshToken);
+    void revokeAll(UUID uuid);
+    void purgeExpired();
+}
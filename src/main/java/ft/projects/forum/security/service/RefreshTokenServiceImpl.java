@@ -0,0 +1,85 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumUnauthorizedException;
+import ft.projects.forum.model.RefreshToken;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.repository.RefreshTokenRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.IssuedRefreshToken;
+import ft.projects.forum.security.model.RefreshTokenRotation;
+import ft.projects.forum.security.model.TokenDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private final SecureRandom random = new SecureRandom();
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final ForumUserRepository userRepository;
+    private final Clock clock;
+    private final long expiration;
+
+    public RefreshTokenServiceImpl(
+            RefreshTokenRepository refreshTokenRepository,
+            ForumUserRepository userRepository,
+            Clock clock,
+            @Value("${refresh-token-expiration}") long expiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.clock = clock;
+        this.expiration = expiration;
+    }
+
+    @Override
+    public IssuedRefreshToken issue(ForumPrincipal principal) {
+        var bytes = new byte[32];
+        random.nextBytes(bytes);
+        var token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        var digest = TokenDigest.of(token);
+        var expiresAt = clock.instant().plusMillis(expiration);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .digestHigh(digest.high())
+                .digestLow(digest.low())
+                .userUuid(principal.uuid())
+                .tokenVersion(principal.tokenVersion())
+                .expiresAt(expiresAt)
+                .build()
+        );
+        return new IssuedRefreshToken(token, expiresAt);
+    }
+
+    @Override
+    public RefreshTokenRotation rotate(String refreshToken) {
+        if(refreshToken == null || refreshToken.isEmpty()) throw new ForumUnauthorizedException(ForumExceptions.INVALID_REFRESH_TOKEN);
+        var digest = TokenDigest.of(refreshToken);
+        var stored = refreshTokenRepository.findByDigestHighAndDigestLow(digest.high(), digest.low())
+                .orElseThrow(() -> new ForumUnauthorizedException(ForumExceptions.INVALID_REFRESH_TOKEN));
+        if(refreshTokenRepository.deleteIfPresent(stored.getId()) == 0 || !stored.getExpiresAt().isAfter(clock.instant())) {
+            throw new ForumUnauthorizedException(ForumExceptions.INVALID_REFRESH_TOKEN);
+        }
+        var principal = userRepository.findById(stored.getUserUuid())
+                .map(ForumPrincipal::from)
+                .filter(p -> p.tokenVersion() == stored.getTokenVersion())
+                .orElseThrow(() -> new ForumUnauthorizedException(ForumExceptions.INVALID_REFRESH_TOKEN));
+        return new RefreshTokenRotation(principal, issue(principal));
+    }
+
+    @Override
+    public void revokeAll(UUID uuid) {
+        refreshTokenRepository.deleteByUserUuid(uuid);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${revocation-purge-interval}")
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(clock.instant());
+    }
+}
@@ -1,8 +1,11 @@
 package ft.projects.forum.security.service;
 
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.security.model.ForumPrincipal;
 
 public interface SecurityContextService {
 
+    ForumPrincipal getPrincipalFromContext();
     ForumUser getUserFromContext();
+    ForumUser getUserReferenceFromContext();
 }
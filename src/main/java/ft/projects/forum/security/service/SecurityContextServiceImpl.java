@@ -1,19 +1,55 @@
 package ft.projects.forum.security.service;
 
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.model.UserDetailsImpl;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 @Service
+@RequiredArgsConstructor
 public class SecurityContextServiceImpl implements SecurityContextService {
 
+    private final ForumUserRepository userRepository;
+
+    @Override
+    public ForumPrincipal getPrincipalFromContext() {
+        var principal = getAuthenticationPrincipal();
+        if(principal instanceof ForumPrincipal forumPrincipal) {
+            return forumPrincipal;
+        } else if(principal instanceof UserDetailsImpl userDetails) {
+            return ForumPrincipal.from(userDetails.getCurrentUser());
+        }
+        throw new IllegalStateException();
+    }
+
     @Override
     public ForumUser getUserFromContext() {
-        var authentication = SecurityContextHolder.getContext().getAuthentication();
-        if(authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+        var principal = getAuthenticationPrincipal();
+        if(principal instanceof UserDetailsImpl userDetails) {
+            return userDetails.getCurrentUser();
+        } else if(principal instanceof ForumPrincipal forumPrincipal) {
+            return userRepository.findById(forumPrincipal.uuid())
+                    .orElseThrow(IllegalStateException::new);
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public ForumUser getUserReferenceFromContext() {
+        var principal = getAuthenticationPrincipal();
+        if(principal instanceof UserDetailsImpl userDetails) {
             return userDetails.getCurrentUser();
+        } else if(principal instanceof ForumPrincipal forumPrincipal) {
+            return userRepository.getReferenceById(forumPrincipal.uuid());
         }
         throw new IllegalStateException();
     }
+
+    private Object getAuthenticationPrincipal() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getPrincipal() : null;
+    }
 }
@@ -0,0 +1,16 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.security.model.TokenDigest;
+
+import java.time.Instant;
+
+public interface TokenRevocationService {
+
+    void revoke(TokenDigest digest, Instant expiration);
+    boolean isRevoked(TokenDigest digest);
+    void refresh();
+    void purgeExpired();
+    int getSize();
+    long getEvictions();
+    long getBloomFalsePositives();
+}
@@ -0,0 +1,129 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.cache.DigestBloomFilter;
+import ft.projects.forum.model.RevokedToken;
+import ft.projects.forum.repository.RevokedTokenRepository;
+import ft.projects.forum.security.model.TokenDigest;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private final ConcurrentMap<TokenDigest, Long> revoked = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bloomFalsePositives = new LongAdder();
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Clock clock;
+    private final int bloomBits;
+    private final int bloomHashes;
+    private final long refreshLookback;
+    private volatile DigestBloomFilter bloomFilter;
+    private long highWaterMark;
+
+    public TokenRevocationServiceImpl(
+            RevokedTokenRepository revokedTokenRepository,
+            Clock clock,
+            @Value("${revocation-bloom-bits}") int bloomBits,
+            @Value("${revocation-bloom-hashes}") int bloomHashes,
+            @Value("${revocation-refresh-interval}") long refreshInterval) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.clock = clock;
+        this.bloomBits = bloomBits;
+        this.bloomHashes = bloomHashes;
+        this.refreshLookback = refreshInterval * 2;
+        this.bloomFilter = new DigestBloomFilter(bloomBits, bloomHashes);
+    }
+
+    @Override
+    public void revoke(TokenDigest digest, Instant expiration) {
+        var now = clock.instant();
+        if(!expiration.isAfter(now)) return;
+        addLocally(digest, expiration.toEpochMilli());
+        try {
+            revokedTokenRepository.save(RevokedToken.builder()
+                    .digestHigh(digest.high())
+                    .digestLow(digest.low())
+                    .expiresAt(expiration)
+                    .revokedAt(now)
+                    .build()
+            );
+        } catch (DataIntegrityViolationException ignored) {
+        }
+    }
+
+    @Override
+    public boolean isRevoked(TokenDigest digest) {
+        if(!bloomFilter.mightContain(digest.high(), digest.low())) return false;
+        var expiresAt = revoked.get(digest);
+        if(expiresAt == null) {
+            bloomFalsePositives.increment();
+            return false;
+        }
+        if(expiresAt > clock.millis()) return true;
+        if(revoked.remove(digest, expiresAt)) evictions.increment();
+        return false;
+    }
+
+    @Override
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${revocation-refresh-interval}")
+    public synchronized void refresh() {
+        var now = clock.instant();
+        var rows = revokedTokenRepository.findActiveSince(highWaterMark, now.minusMillis(refreshLookback), now);
+        for(var row : rows) {
+            addLocally(new TokenDigest(row.getDigestHigh(), row.getDigestLow()), row.getExpiresAt().toEpochMilli());
+            highWaterMark = Math.max(highWaterMark, row.getId());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${revocation-purge-interval}")
+    public void purgeExpired() {
+        var now = clock.millis();
+        var purged = new LongAdder();
+        revoked.forEach((digest, expiresAt) -> {
+            if(expiresAt <= now && revoked.remove(digest, expiresAt)) purged.increment();
+        });
+        evictions.add(purged.sum());
+        revokedTokenRepository.deleteExpired(Instant.ofEpochMilli(now));
+        rebuildBloomFilter();
+    }
+
+    @Override
+    public int getSize() {
+        return revoked.size();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getBloomFalsePositives() {
+        return bloomFalsePositives.sum();
+    }
+
+    private void addLocally(TokenDigest digest, long expiresAt) {
+        revoked.merge(digest, expiresAt, Math::max);
+        bloomFilter.put(digest.high(), digest.low());
+    }
+
+    private void rebuildBloomFilter() {
+        var rebuilt = new DigestBloomFilter(bloomBits, bloomHashes);
+        revoked.keySet().forEach(digest -> rebuilt.put(digest.high(), digest.low()));
+        bloomFilter = rebuilt;
+        // second pass picks up digests revoked into the old filter between the first pass and the swap
+        revoked.keySet().forEach(digest -> rebuilt.put(digest.high(), digest.low()));
+    }
+}
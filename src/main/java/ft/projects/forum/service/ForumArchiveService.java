@@ -0,0 +1,25 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.model.ForumArchivedThread;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface ForumArchiveService {
+
+    int archive();
+    void refresh();
+    boolean isEnabled();
+    boolean isArchived(UUID uuid);
+    Optional<ForumArchivedThread> getArchivedThread(UUID uuid);
+    Optional<UUID> getArchivedOwner(UUID uuid);
+    void forEachArchivedThread(Consumer<ForumArchivedThread> consumer);
+    int getSize();
+    long getBytes();
+    long getArchivedThreads();
+    long getArchivedComments();
+    long getPurgedUsers();
+    long getFailures();
+    void shutdown();
+}
@@ -0,0 +1,296 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.archive.ArchiveSegmentStore;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumArchivedThread;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumDeletionJobRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+public class ForumArchiveServiceImpl implements ForumArchiveService {
+
+    private final ForumThreadRepository threadRepository;
+    private final ForumCommentRepository commentRepository;
+    private final ForumDeletionJobRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final long archiveAfter;
+    private final int batchSize;
+    private final boolean writer;
+    private final ArchiveSegmentStore store;
+    private final LongAdder archivedThreads = new LongAdder();
+    private final LongAdder archivedComments = new LongAdder();
+    private final LongAdder purgedUsers = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ForumArchiveServiceImpl(
+            ForumThreadRepository threadRepository,
+            ForumCommentRepository commentRepository,
+            ForumDeletionJobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            Clock clock,
+            @Value("${archive-enabled}") boolean enabled,
+            @Value("${archive-writer}") boolean writer,
+            @Value("${archive-directory}") String directory,
+            @Value("${archive-after}") long archiveAfter,
+            @Value("${archive-batch-size}") int batchSize,
+            @Value("${archive-segment-size}") long segmentSize,
+            @Value("${archive-compaction-delay}") long compactionDelay) throws IOException {
+        this.threadRepository = threadRepository;
+        this.commentRepository = commentRepository;
+        this.jobRepository = jobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.archiveAfter = archiveAfter;
+        this.batchSize = batchSize;
+        this.writer = writer;
+        this.store = enabled ? new ArchiveSegmentStore(Path.of(directory), segmentSize, writer, clock, compactionDelay) : null;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${archive-interval}")
+    public int archive() {
+        if(store == null || !writer) return 0;
+        var cutoff = clock.instant().minusMillis(archiveAfter);
+        var archived = 0;
+        for(var uuid : threadRepository.findArchivableIds(cutoff, Limit.of(batchSize))) {
+            if(archive(uuid)) archived++;
+        }
+        purgeDeletedUsers();
+        try {
+            store.compact();
+        } catch(IOException e) {
+            failures.increment();
+        }
+        return archived;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${archive-refresh-interval}")
+    public void refresh() {
+        if(store == null || writer) return;
+        try {
+            store.refresh();
+        } catch(IOException e) {
+            failures.increment();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    @Override
+    public boolean isArchived(UUID uuid) {
+        return store != null && store.contains(uuid);
+    }
+
+    @Override
+    public Optional<ForumArchivedThread> getArchivedThread(UUID uuid) {
+        if(!isArchived(uuid)) return Optional.empty();
+        try {
+            return Optional.ofNullable(read(uuid));
+        } catch(IOException e) {
+            if(writer) {
+                failures.increment();
+                return Optional.empty();
+            }
+        }
+        // a reader's index may point at a record the writer has since compacted away
+        try {
+            store.refresh();
+            return Optional.ofNullable(read(uuid));
+        } catch(IOException e) {
+            failures.increment();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<UUID> getArchivedOwner(UUID uuid) {
+        if(store == null) return Optional.empty();
+        var owner = store.getOwner(uuid);
+        if(owner == null && !writer) {
+            // a reader's index trails the writer by up to archive-refresh-interval, so catch up before reporting a miss
+            try {
+                store.refresh();
+            } catch(IOException e) {
+                failures.increment();
+            }
+            owner = store.getOwner(uuid);
+        }
+        return Optional.ofNullable(owner);
+    }
+
+    @Override
+    public void forEachArchivedThread(Consumer<ForumArchivedThread> consumer) {
+        if(store == null) return;
+        for(var key : store.getKeys()) {
+            getArchivedThread(key).ifPresent(consumer);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return store != null ? store.getSize() : 0;
+    }
+
+    @Override
+    public long getBytes() {
+        return store != null ? store.getBytes() : 0;
+    }
+
+    @Override
+    public long getArchivedThreads() {
+        return archivedThreads.sum();
+    }
+
+    @Override
+    public long getArchivedComments() {
+        return archivedComments.sum();
+    }
+
+    @Override
+    public long getPurgedUsers() {
+        return purgedUsers.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        if(store == null) return;
+        try {
+            store.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean archive(UUID uuid) {
+        ForumArchivedThread snapshot;
+        try {
+            snapshot = transactionTemplate.execute(status -> archiveLocked(uuid));
+        } catch(RuntimeException e) {
+            failures.increment();
+            removeQuietly(uuid);
+            return false;
+        }
+        if(snapshot == null) return false;
+        archivedThreads.increment();
+        archivedComments.add(snapshot.comments().size());
+        return true;
+    }
+
+    private ForumArchivedThread archiveLocked(UUID uuid) {
+        var thread = threadRepository.findLockedById(uuid).filter(ForumThread::isClosed).orElse(null);
+        if(thread == null) return null;
+        var snapshot = new ForumArchivedThread(
+                thread.getUuid(),
+                thread.getUser().getUuid(),
+                thread.getUser().getUsername(),
+                thread.getTitle(),
+                thread.getContent(),
+                thread.getPublishedAt(),
+                thread.getClosedAt(),
+                thread.getLastActivityAt(),
+                commentRepository.findArchivedByThread(uuid)
+        );
+        try {
+            store.append(uuid, snapshot.ownerId(), commenters(snapshot), objectMapper.writeValueAsBytes(snapshot));
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        commentRepository.deleteByThread(uuid);
+        threadRepository.deleteByUuid(uuid);
+        return snapshot;
+    }
+
+    private void purgeDeletedUsers() {
+        var users = new HashSet<>(jobRepository.findPurgePendingTargetIds());
+        if(users.isEmpty()) return;
+        try {
+            for(var key : store.findKeys(users)) {
+                purge(key, users);
+            }
+        } catch(IOException e) {
+            failures.increment();
+            return;
+        }
+        jobRepository.deletePurged(users);
+        purgedUsers.add(users.size());
+    }
+
+    private void purge(UUID key, Set<UUID> users) throws IOException {
+        if(users.contains(store.getOwner(key))) {
+            store.remove(key);
+            return;
+        }
+        ForumArchivedThread thread;
+        try {
+            thread = read(key);
+        } catch(IOException e) {
+            failures.increment();
+            return;
+        }
+        if(thread == null || thread.comments().stream().noneMatch(c -> users.contains(c.userId()))) return;
+        var redacted = new ForumArchivedThread(
+                thread.uuid(),
+                thread.ownerId(),
+                thread.creator(),
+                thread.title(),
+                thread.content(),
+                thread.publishedAt(),
+                thread.closedAt(),
+                thread.lastActivityAt(),
+                thread.comments().stream().filter(c -> !users.contains(c.userId())).toList()
+        );
+        store.append(key, thread.ownerId(), commenters(redacted), objectMapper.writeValueAsBytes(redacted));
+    }
+
+    private static Set<UUID> commenters(ForumArchivedThread thread) {
+        return thread.comments().stream().map(ForumArchivedComment::userId).collect(Collectors.toSet());
+    }
+
+    private ForumArchivedThread read(UUID uuid) throws IOException {
+        var value = store.read(uuid);
+        return value == null ? null : objectMapper.readValue(value, ForumArchivedThread.class);
+    }
+
+    private void removeQuietly(UUID uuid) {
+        try {
+            store.remove(uuid);
+        } catch(IOException ignored) {
+        }
+    }
+}
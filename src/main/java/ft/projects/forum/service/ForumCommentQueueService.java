@@ -0,0 +1,16 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.model.ForumQueuedComment;
+
+public interface ForumCommentQueueService {
+
+    boolean isEnabled();
+    void enqueue(ForumQueuedComment comment);
+    int getQueueSize();
+    long getRejections();
+    long getWritten();
+    long getDropped();
+    long getBatches();
+    double getBatchNanos();
+    void shutdown();
+}
@@ -0,0 +1,219 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumQueuedComment;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumUser;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Service
+public class ForumCommentQueueServiceImpl implements ForumCommentQueueService {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final ForumThreadService threadService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final BlockingQueue<ForumQueuedComment> queue;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long retryAfterSeconds;
+    private final long drainTimeoutMillis;
+    private final Thread writer;
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    // enqueue checks running and offers under the read lock so shutdown cannot slip in between
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    public ForumCommentQueueServiceImpl(
+            ForumThreadService threadService,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${comment-write-behind}") boolean enabled,
+            @Value("${comment-queue-capacity}") int capacity,
+            @Value("${comment-batch-size}") int batchSize,
+            @Value("${comment-queue-offer-timeout}") long offerTimeoutMillis,
+            @Value("${comment-queue-retry-after}") long retryAfterSeconds,
+            @Value("${comment-queue-drain-timeout}") long drainTimeoutMillis) {
+        this.threadService = threadService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.writer = new Thread(this::drain, "comment-writer");
+        this.writer.setDaemon(true);
+        if(enabled) {
+            running = true;
+            writer.start();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void enqueue(ForumQueuedComment comment) {
+        lifecycleLock.readLock().lock();
+        try {
+            if(running && queue.offer(comment, offerTimeoutMillis, TimeUnit.MILLISECONDS)) return;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+        rejections.increment();
+        throw new ForumOverloadException(ForumExceptions.COMMENT_QUEUE_FULL, retryAfterSeconds);
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getWritten() {
+        return written.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public double getBatchNanos() {
+        return batchNanos.sum();
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        lifecycleLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+        if(!writer.isAlive()) return;
+        try {
+            writer.join(drainTimeoutMillis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(writer.isAlive()) {
+            log.warn("Comment writer did not drain within {} ms, abandoning {} queued comments", drainTimeoutMillis, queue.size());
+            return;
+        }
+        var batch = new ArrayList<ForumQueuedComment>(batchSize);
+        while(queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void drain() {
+        var batch = new ArrayList<ForumQueuedComment>(batchSize);
+        while(running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch(InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<ForumQueuedComment> batch) {
+        var start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch));
+            written.add(batch.size());
+        } catch(RuntimeException e) {
+            for(var comment : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(comment)));
+                    written.increment();
+                } catch(RuntimeException dropCause) {
+                    dropped.increment();
+                    log.warn("Dropped queued comment by user {} on thread {} published at {}", comment.userId(), comment.threadId(), comment.publishedAt(), dropCause);
+                }
+            }
+        } finally {
+            batchNanos.add(System.nanoTime() - start);
+            batches.increment();
+        }
+    }
+
+    private void persist(List<ForumQueuedComment> batch) {
+        var threads = new HashMap<UUID, ThreadActivity>();
+        for(var comment : batch) {
+            entityManager.persist(ForumComment.builder()
+                    .content(comment.content())
+                    .publishedAt(comment.publishedAt())
+                    .user(entityManager.getReference(ForumUser.class, comment.userId()))
+                    .thread(entityManager.getReference(ForumThread.class, comment.threadId()))
+                    .build()
+            );
+            threads.merge(comment.threadId(), new ThreadActivity(1, comment.publishedAt()), ThreadActivity::merge);
+        }
+        entityManager.flush();
+        threads.forEach((uuid, activity) -> threadService.recordCommentsCreated(uuid, activity.count(), activity.lastPublishedAt()));
+    }
+
+    private record ThreadActivity(
+            int count,
+            Instant lastPublishedAt
+    ) {
+
+        private ThreadActivity merge(ThreadActivity other) {
+            return new ThreadActivity(count + other.count, lastPublishedAt.isAfter(other.lastPublishedAt) ? lastPublishedAt : other.lastPublishedAt);
+        }
+    }
+}
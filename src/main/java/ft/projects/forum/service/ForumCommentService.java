@@ -1,15 +1,18 @@
 package ft.projects.forum.service;
 
-import ft.projects.forum.model.ForumCommentResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
 import ft.projects.forum.model.ForumCommentRequest;
+import ft.projects.forum.model.ForumCommentResponse;
+import ft.projects.forum.model.ForumPageResponse;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.UUID;
 
 public interface ForumCommentService {
 
-    void createComment(ForumCommentRequest commentRequest);
-    List<ForumCommentResponse> getCommentsForThread(UUID threadId);
-    void updateContent(UUID uuid, String content);
+    boolean createComment(ForumCommentRequest commentRequest);
+    void writeCommentsForThread(UUID threadId, JsonGenerator generator) throws IOException;
+    ForumPageResponse<ForumCommentResponse> getCommentsForThread(UUID threadId, String cursor, int size);
+    void updateContent(UUID uuid, String content, Long version);
     void deleteComment(UUID uuid);
 }
@@ -1,83 +1,185 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumArchivedComment;
 import ft.projects.forum.model.ForumComment;
-import ft.projects.forum.model.ForumCommentResponse;
 import ft.projects.forum.model.ForumCommentRequest;
+import ft.projects.forum.model.ForumCommentResponse;
+import ft.projects.forum.model.ForumCommentView;
+import ft.projects.forum.model.ForumCursor;
+import ft.projects.forum.model.ForumPageResponse;
+import ft.projects.forum.model.ForumQueuedComment;
 import ft.projects.forum.repository.ForumCommentRepository;
 import ft.projects.forum.security.service.SecurityContextService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class ForumCommentServiceImpl implements ForumCommentService {
 
     private final ForumCommentRepository commentRepository;
     private final SecurityContextService contextService;
     private final ForumThreadService threadService;
+    private final ForumCommentQueueService commentQueueService;
+    private final ForumArchiveService archiveService;
     private final DateTimeFormatter formatter;
+    private final int maxSize;
+
+    public ForumCommentServiceImpl(
+            ForumCommentRepository commentRepository,
+            SecurityContextService contextService,
+            ForumThreadService threadService,
+            ForumCommentQueueService commentQueueService,
+            ForumArchiveService archiveService,
+            DateTimeFormatter formatter,
+            @Value("${comment-max-size}") int maxSize) {
+        this.commentRepository = commentRepository;
+        this.contextService = contextService;
+        this.threadService = threadService;
+        this.commentQueueService = commentQueueService;
+        this.archiveService = archiveService;
+        this.formatter = formatter;
+        this.maxSize = maxSize;
+    }
 
     @Override
-    public void createComment(ForumCommentRequest commentRequest) {
-        var thread = threadService.getThread(commentRequest.threadId());
-        if(thread.isClosed()) throw new ForumException(ForumExceptions.THREAD_CLOSED);
-        validateContent(commentRequest.content());
+    @Transactional
+    public boolean createComment(ForumCommentRequest commentRequest) {
+        var threadId = commentRequest.threadId();
+        var status = threadService.getThreadStatus(threadId);
+        if(!status.exists()) throw new ForumException(ForumExceptions.INVALID_ID);
+        if(status.closed()) throw new ForumException(ForumExceptions.THREAD_CLOSED);
+        ForumValidator.validateContent(commentRequest.content());
+        var publishedAt = Instant.now();
+        if(commentQueueService.isEnabled()) {
+            commentQueueService.enqueue(new ForumQueuedComment(
+                    threadId,
+                    contextService.getPrincipalFromContext().uuid(),
+                    commentRequest.content(),
+                    publishedAt
+            ));
+            return true;
+        }
         commentRepository.save(ForumComment.builder()
                 .content(commentRequest.content())
-                .publishedAt(Instant.now())
-                .user(contextService.getUserFromContext())
-                .thread(thread)
+                .publishedAt(publishedAt)
+                .user(contextService.getUserReferenceFromContext())
+                .thread(threadService.getThreadReference(threadId))
                 .build()
         );
+        threadService.recordCommentsCreated(threadId, 1, publishedAt);
+        return false;
     }
 
     @Override
-    public List<ForumCommentResponse> getCommentsForThread(UUID threadId) {
-        var thread = threadService.getThread(threadId);
-        var timezone = contextService.getUserFromContext().getTimezone();
-        return thread.getComments().stream()
-                .map(c -> new ForumCommentResponse(
-                        c.getUuid(),
-                        c.getContent(),
-                        formatter.format(ZonedDateTime.ofInstant(c.getPublishedAt(), ZoneId.of(timezone))))
-                )
-                .toList();
+    public void writeCommentsForThread(UUID threadId, JsonGenerator generator) throws IOException {
+        if(!threadService.threadExists(threadId)) throw new ForumException(ForumExceptions.INVALID_ID);
+        var timestamps = new ZonedTimestampFormatter(formatter, ZoneId.of(contextService.getPrincipalFromContext().timezone()));
+        var writer = new ForumResponseWriter(generator, timestamps);
+        writer.writeStartArray();
+        var archived = archiveService.getArchivedThread(threadId);
+        if(archived.isPresent()) {
+            for(var comment : archived.get().comments()) {
+                writer.writeComment(new ForumCommentView(comment.uuid(), comment.creator(), comment.content(), comment.publishedAt(), 0));
+            }
+        } else {
+            try {
+                commentRepository.forEachViewByThread(threadId, comment -> {
+                    try {
+                        writer.writeComment(comment);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    @Override
+    public ForumPageResponse<ForumCommentResponse> getCommentsForThread(UUID threadId, String cursor, int size) {
+        if(size < 1 || size > maxSize) throw new ForumException(ForumExceptions.INVALID_SIZE);
+        if(!threadService.threadExists(threadId)) throw new ForumException(ForumExceptions.INVALID_ID);
+        var decoded = cursor == null || cursor.isEmpty() ? null : ForumCursor.decode(cursor, false);
+        var archived = archiveService.getArchivedThread(threadId);
+        List<ForumCommentView> comments;
+        if(archived.isPresent()) {
+            comments = getArchivedComments(archived.get().comments(), decoded, size + 1);
+        } else {
+            var limit = Limit.of(size + 1);
+            comments = decoded == null
+                    ? commentRepository.findViewsByThread(threadId, limit)
+                    : commentRepository.findViewsByThreadAfter(threadId, decoded.publishedAt(), decoded.uuid(), limit);
+        }
+        String nextCursor = null;
+        if(comments.size() > size) {
+            comments = comments.subList(0, size);
+            var last = comments.get(size - 1);
+            nextCursor = new ForumCursor(last.publishedAt(), last.uuid(), false).encode();
+        }
+        var timestamps = new ZonedTimestampFormatter(formatter, ZoneId.of(contextService.getPrincipalFromContext().timezone()));
+        return new ForumPageResponse<>(
+                comments.stream()
+                        .map(c -> new ForumCommentResponse(c.uuid(), c.creator(), c.content(), timestamps.format(c.publishedAt()), c.version()))
+                        .toList(),
+                nextCursor
+        );
     }
 
     @Override
-    public void updateContent(UUID uuid, String content) {
-        var comment = getCommentIfExistsAndValidOwnership(uuid);
-        validateContent(content);
-        comment.setContent(content);
-        commentRepository.save(comment);
+    public void updateContent(UUID uuid, String content, Long version) {
+        ForumValidator.validateContent(content);
+        var userId = contextService.getPrincipalFromContext().uuid();
+        if(commentRepository.updateContent(uuid, userId, content, version) == 0) {
+            var ownerId = commentRepository.findOwnerIdByUuid(uuid);
+            if(ownerId.isEmpty()) throw new ForumException(ForumExceptions.INVALID_ID);
+            if(!ownerId.get().equals(userId)) throw new ForumException(ForumExceptions.INVALID_OWNER);
+            throw new ForumException(ForumExceptions.VERSION_CONFLICT);
+        }
     }
 
     @Override
+    @Transactional
     public void deleteComment(UUID uuid) {
-        var comment = getCommentIfExistsAndValidOwnership(uuid);
-        commentRepository.delete(comment);
+        var threadId = commentRepository.findThreadIdByUuid(uuid)
+                .orElseThrow(() -> new ForumException(ForumExceptions.INVALID_ID));
+        var userId = contextService.getPrincipalFromContext().uuid();
+        if(commentRepository.deleteOwned(uuid, userId) == 0) {
+            throw getDeleteFailure(uuid);
+        }
+        threadService.recordCommentDeleted(threadId);
     }
 
-    private void validateContent(String content) {
-        if(content == null || content.length() < 5) {
-            throw new ForumException(ForumExceptions.INVALID_CONTENT);
+    private List<ForumCommentView> getArchivedComments(List<ForumArchivedComment> comments, ForumCursor cursor, int limit) {
+        var from = 0;
+        if(cursor != null) {
+            while(from < comments.size() && !comments.get(from).uuid().equals(cursor.uuid())) from++;
+            if(from == comments.size()) throw new ForumException(ForumExceptions.INVALID_CURSOR);
+            from++;
         }
+        return comments.subList(from, Math.min(comments.size(), from + limit))
+                .stream()
+                .map(c -> new ForumCommentView(c.uuid(), c.creator(), c.content(), c.publishedAt(), 0))
+                .toList();
     }
 
-    private ForumComment getCommentIfExistsAndValidOwnership(UUID uuid) {
-        var commentOptional = commentRepository.findById(uuid);
-        if(commentOptional.isEmpty()) throw new ForumException(ForumExceptions.INVALID_ID);
-        var comment = commentOptional.get();
-        if(!comment.getUser().getUsername().equals(contextService.getUserFromContext().getUsername())) throw new ForumException(ForumExceptions.INVALID_OWNER);
-        return comment;
+    private ForumException getDeleteFailure(UUID uuid) {
+        var ownerId = commentRepository.findOwnerIdByUuid(uuid);
+        if(ownerId.isEmpty()) return new ForumException(ForumExceptions.INVALID_ID);
+        return new ForumException(ForumExceptions.INVALID_OWNER);
     }
 }
@@ -0,0 +1,22 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.model.ForumDeletionResponse;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public interface ForumDeletionService {
+
+    ForumDeletionResponse deleteThread(UUID uuid, UUID ownerId, Supplier<? extends RuntimeException> notDeleted);
+    ForumDeletionResponse deleteUser(UUID uuid);
+    int resumeDeletions();
+    void addThreadDeletionListener(Consumer<Collection<UUID>> listener);
+    ForumDeletionResponse getJob(UUID uuid);
+    int getActiveJobs();
+    long getDeletedRows();
+    long getBackgroundJobs();
+    long getFailedJobs();
+    void shutdown();
+}
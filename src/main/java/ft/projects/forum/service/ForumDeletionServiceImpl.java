@@ -0,0 +1,383 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.model.ForumDeletionJob;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.model.ForumDeletionTarget;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumDeletionJobRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import ft.projects.forum.repository.ForumUserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class ForumDeletionServiceImpl implements ForumDeletionService {
+
+    private final ForumUserRepository userRepository;
+    private final ForumThreadRepository threadRepository;
+    private final ForumCommentRepository commentRepository;
+    private final ForumDeletionJobRepository jobRepository;
+    private final ForumArchiveService archiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int chunkSize;
+    private final long backgroundThreshold;
+    private final long jobTtl;
+    private final long claimTtl;
+    private final long retryAfterSeconds;
+    private final ConcurrentMap<UUID, Job> runningJobs = new ConcurrentHashMap<>();
+    private final List<Consumer<Collection<UUID>>> threadDeletionListeners = new CopyOnWriteArrayList<>();
+    private final ExpiringCache<UUID, Job> finishedJobs;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final LongAdder deletedRows = new LongAdder();
+    private final LongAdder backgroundJobs = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+
+    public ForumDeletionServiceImpl(
+            ForumUserRepository userRepository,
+            ForumThreadRepository threadRepository,
+            ForumCommentRepository commentRepository,
+            ForumDeletionJobRepository jobRepository,
+            ForumArchiveService archiveService,
+            PlatformTransactionManager transactionManager,
+            Clock clock,
+            @Value("${deletion-chunk-size}") int chunkSize,
+            @Value("${deletion-background-threshold}") long backgroundThreshold,
+            @Value("${deletion-job-cache-size}") int jobCacheSize,
+            @Value("${deletion-job-ttl}") long jobTtl,
+            @Value("${deletion-queue-capacity}") int queueCapacity,
+            @Value("${deletion-queue-retry-after}") long retryAfterSeconds,
+            @Value("${deletion-claim-ttl}") long claimTtl) {
+        this.userRepository = userRepository;
+        this.threadRepository = threadRepository;
+        this.commentRepository = commentRepository;
+        this.jobRepository = jobRepository;
+        this.archiveService = archiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.chunkSize = chunkSize;
+        this.backgroundThreshold = backgroundThreshold;
+        this.jobTtl = jobTtl;
+        this.claimTtl = claimTtl;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.finishedJobs = new ExpiringCache<>(jobCacheSize, clock);
+        // a full queue is turned away in admit(); a job rejected anyway, e.g. after shutdown, fails in runInBackground
+        this.executor = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, "forum-deletion");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    @Override
+    public ForumDeletionResponse deleteThread(UUID uuid, UUID ownerId, Supplier<? extends RuntimeException> notDeleted) {
+        var total = commentRepository.countByOwnedThread(uuid, ownerId) + 1;
+        if(total <= backgroundThreshold) {
+            // small threads go in one guarded transaction; only background work is recorded for resumption
+            return run(new Job(UUID.randomUUID(), total, false), job -> deleteOwnedThread(uuid, ownerId, job, notDeleted));
+        }
+        admit(total);
+        var record = newRecord(ForumDeletionTarget.THREAD, uuid, ownerId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobRepository.saveAndFlush(record));
+        } catch(DataIntegrityViolationException e) {
+            throw notDeleted.get();
+        }
+        return runInBackground(new Job(record.getUuid(), total, true), threadWork(uuid, ownerId, notDeleted), () -> jobRepository.deleteByUuid(record.getUuid()));
+    }
+
+    @Override
+    public ForumDeletionResponse deleteUser(UUID uuid) {
+        var total = commentRepository.countByUserOrThreadOwner(uuid) + threadRepository.countByUser(uuid) + 1;
+        admit(total);
+        var record = newRecord(ForumDeletionTarget.USER, uuid, null);
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.tombstone(uuid, "deleted-" + uuid);
+            jobRepository.save(record);
+        });
+        var job = new Job(record.getUuid(), total, true);
+        return run(job, userWork(uuid));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${deletion-resume-interval}")
+    public int resumeDeletions() {
+        adoptTombstonedUsers();
+        var now = clock.instant();
+        var expiredBefore = now.minusMillis(claimTtl);
+        var capacity = executor.getQueue().remainingCapacity();
+        if(capacity == 0) return 0;
+        var resumed = 0;
+        for(var record : jobRepository.findExpired(expiredBefore, Limit.of(capacity))) {
+            try {
+                if(jobRepository.claim(record.getUuid(), now, expiredBefore) == 0) continue;
+                var work = record.getTarget() == ForumDeletionTarget.USER
+                        ? userWork(record.getTargetId())
+                        : threadWork(record.getTargetId(), record.getOwnerId(), () -> new ForumException(ForumExceptions.INVALID_ID));
+                runInBackground(new Job(record.getUuid(), 0, true), work, () -> jobRepository.release(record.getUuid()));
+                resumed++;
+            } catch(RuntimeException e) {
+                log.warn("Could not resume deletion job {} for {} {}", record.getUuid(), record.getTarget(), record.getTargetId(), e);
+            }
+        }
+        return resumed;
+    }
+
+    @Override
+    public void addThreadDeletionListener(Consumer<Collection<UUID>> listener) {
+        threadDeletionListeners.add(listener);
+    }
+
+    @Override
+    public ForumDeletionResponse getJob(UUID uuid) {
+        var job = runningJobs.get(uuid);
+        if(job == null) job = finishedJobs.get(uuid);
+        if(job == null) throw new ForumException(ForumExceptions.INVALID_ID);
+        return job.toResponse();
+    }
+
+    @Override
+    public int getActiveJobs() {
+        return activeJobs.get();
+    }
+
+    @Override
+    public long getDeletedRows() {
+        return deletedRows.sum();
+    }
+
+    @Override
+    public long getBackgroundJobs() {
+        return backgroundJobs.sum();
+    }
+
+    @Override
+    public long getFailedJobs() {
+        return failedJobs.sum();
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Consumer<Job> threadWork(UUID uuid, UUID ownerId, Supplier<? extends RuntimeException> notDeleted) {
+        return job -> {
+            deleteChunks(() -> commentRepository.findIdsByOwnedThread(uuid, ownerId, Limit.of(chunkSize)), job, false);
+            deleteOwnedThread(uuid, ownerId, job, notDeleted);
+        };
+    }
+
+    private void deleteOwnedThread(UUID uuid, UUID ownerId, Job job, Supplier<? extends RuntimeException> notDeleted) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var comments = commentRepository.deleteByOwnedThread(uuid, ownerId);
+                if(threadRepository.deleteOwned(uuid, ownerId) == 0) throw new NotDeletedException();
+                if(job.persisted) jobRepository.deleteByUuid(job.uuid);
+                job.add(comments + 1);
+            });
+        } catch(NotDeletedException e) {
+            if(job.persisted) jobRepository.deleteByUuid(job.uuid);
+            throw notDeleted.get();
+        }
+        threadsDeleted(List.of(uuid));
+    }
+
+    private Consumer<Job> userWork(UUID uuid) {
+        return job -> {
+            deleteChunks(() -> commentRepository.findIdsByUser(uuid, Limit.of(chunkSize)), job, true);
+            deleteChunks(() -> commentRepository.findIdsByThreadOwner(uuid, Limit.of(chunkSize)), job, false);
+            deleteThreadChunks(uuid, job);
+            transactionTemplate.executeWithoutResult(status -> {
+                job.add(userRepository.deleteByUuid(uuid));
+                // the archive writer redacts the user from archived threads before dropping the record
+                if(archiveService.isEnabled()) jobRepository.markPurgePending(job.uuid);
+                else jobRepository.deleteByUuid(job.uuid);
+            });
+        };
+    }
+
+    private void adoptTombstonedUsers() {
+        for(var uuid : userRepository.findTombstonedIds()) {
+            if(jobRepository.existsByTargetId(uuid)) continue;
+            try {
+                var record = newRecord(ForumDeletionTarget.USER, uuid, null);
+                record.setClaimedAt(Instant.EPOCH);
+                transactionTemplate.executeWithoutResult(status -> jobRepository.saveAndFlush(record));
+            } catch(DataIntegrityViolationException ignored) {
+            }
+        }
+    }
+
+    private ForumDeletionJob newRecord(ForumDeletionTarget target, UUID targetId, UUID ownerId) {
+        return ForumDeletionJob.builder()
+                .uuid(UUID.randomUUID())
+                .target(target)
+                .targetId(targetId)
+                .ownerId(ownerId)
+                .claimedAt(clock.instant())
+                .build();
+    }
+
+    private void admit(long total) {
+        if(total > backgroundThreshold && executor.getQueue().remainingCapacity() == 0) {
+            throw new ForumOverloadException(ForumExceptions.DELETION_QUEUE_FULL, retryAfterSeconds);
+        }
+    }
+
+    private ForumDeletionResponse run(Job job, Consumer<Job> work) {
+        if(job.total <= backgroundThreshold) {
+            execute(job, work);
+            if(job.status == ForumDeletionStatus.FAILED) throw job.failure;
+            return job.toResponse();
+        }
+        return runInBackground(job, work, () -> jobRepository.release(job.uuid));
+    }
+
+    private ForumDeletionResponse runInBackground(Job job, Consumer<Job> work, Runnable onRejected) {
+        runningJobs.put(job.uuid, job);
+        try {
+            executor.execute(() -> {
+                try {
+                    execute(job, work);
+                } finally {
+                    finishedJobs.put(job.uuid, job, clock.millis() + jobTtl);
+                    runningJobs.remove(job.uuid);
+                    if(job.status == ForumDeletionStatus.FAILED) {
+                        log.warn("Deletion job {} failed", job.uuid, job.failure);
+                    }
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            failedJobs.increment();
+            job.failure = new ForumOverloadException(ForumExceptions.DELETION_QUEUE_FULL, retryAfterSeconds);
+            job.status = ForumDeletionStatus.FAILED;
+            finishedJobs.put(job.uuid, job, clock.millis() + jobTtl);
+            runningJobs.remove(job.uuid);
+            onRejected.run();
+            log.warn("Deletion job {} rejected by the executor", job.uuid);
+            throw job.failure;
+        }
+        backgroundJobs.increment();
+        return job.toResponse();
+    }
+
+    private void execute(Job job, Consumer<Job> work) {
+        activeJobs.incrementAndGet();
+        job.status = ForumDeletionStatus.RUNNING;
+        try {
+            work.accept(job);
+            job.status = ForumDeletionStatus.DONE;
+        } catch(RuntimeException e) {
+            failedJobs.increment();
+            job.failure = e;
+            job.status = ForumDeletionStatus.FAILED;
+        } finally {
+            activeJobs.decrementAndGet();
+        }
+    }
+
+    private void deleteChunks(Supplier<List<UUID>> chunk, Job job, boolean recount) {
+        boolean more = true;
+        while(more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                var uuids = chunk.get();
+                if(uuids.isEmpty()) return false;
+                jobRepository.renew(job.uuid, clock.instant());
+                var threadIds = recount ? commentRepository.findThreadIdsByUuids(uuids) : List.<UUID>of();
+                job.add(commentRepository.deleteByUuids(uuids));
+                if(!threadIds.isEmpty()) threadRepository.recountComments(threadIds);
+                return uuids.size() == chunkSize;
+            }));
+        }
+    }
+
+    private void deleteThreadChunks(UUID userId, Job job) {
+        List<UUID> threadIds;
+        do {
+            threadIds = transactionTemplate.execute(status -> {
+                var uuids = threadRepository.findIdsByUser(userId, Limit.of(chunkSize));
+                if(uuids.isEmpty()) return uuids;
+                jobRepository.renew(job.uuid, clock.instant());
+                job.add(commentRepository.deleteByThreads(uuids));
+                job.add(threadRepository.deleteByUuids(uuids));
+                return uuids;
+            });
+            if(threadIds == null || threadIds.isEmpty()) return;
+            threadsDeleted(threadIds);
+        } while(threadIds.size() == chunkSize);
+    }
+
+    private void threadsDeleted(Collection<UUID> threadIds) {
+        threadDeletionListeners.forEach(listener -> listener.accept(threadIds));
+    }
+
+    private class Job {
+
+        private final UUID uuid;
+        private final long total;
+        private final boolean persisted;
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile ForumDeletionStatus status = ForumDeletionStatus.QUEUED;
+        private volatile RuntimeException failure;
+
+        private Job(UUID uuid, long total, boolean persisted) {
+            this.uuid = uuid;
+            this.total = total;
+            this.persisted = persisted;
+        }
+
+        private void add(int rows) {
+            deleted.addAndGet(rows);
+            deletedRows.add(rows);
+        }
+
+        private ForumDeletionResponse toResponse() {
+            return new ForumDeletionResponse(uuid, status, total, deleted.get());
+        }
+    }
+
+    private static class NotDeletedException extends RuntimeException {
+
+        private NotDeletedException() {
+            super(null, null, false, false);
+        }
+    }
+}
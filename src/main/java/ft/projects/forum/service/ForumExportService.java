@@ -0,0 +1,9 @@
+package ft.projects.forum.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ForumExportService {
+
+    void export(OutputStream out) throws IOException;
+}
@@ -0,0 +1,107 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.model.ForumArchivedThread;
+import ft.projects.forum.model.ForumCommentExport;
+import ft.projects.forum.model.ForumThreadExport;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+public class ForumExportServiceImpl implements ForumExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ForumThreadRepository threadRepository;
+    private final ForumCommentRepository commentRepository;
+    private final ForumArchiveService archiveService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void export(OutputStream out) throws IOException {
+        try(var generator = objectMapper.createGenerator(new GZIPOutputStream(out, BUFFER_SIZE))) {
+            generator.setRootValueSeparator(null);
+            try {
+                threadRepository.forEachExport(thread -> writeLine(generator, thread));
+                commentRepository.forEachExport(comment -> writeLine(generator, comment));
+                archiveService.forEachArchivedThread(thread -> writeLines(generator, thread));
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private void writeLines(JsonGenerator generator, ForumArchivedThread thread) {
+        writeLine(generator, new ForumThreadExport(
+                thread.uuid(),
+                thread.creator(),
+                thread.title(),
+                thread.content(),
+                thread.publishedAt(),
+                true,
+                thread.comments().size(),
+                thread.lastActivityAt()
+        ), true);
+        thread.comments().forEach(comment -> writeLine(generator, new ForumCommentExport(
+                comment.uuid(),
+                thread.uuid(),
+                comment.creator(),
+                comment.content(),
+                comment.publishedAt()
+        )));
+    }
+
+    private void writeLine(JsonGenerator generator, ForumThreadExport thread) {
+        writeLine(generator, thread, false);
+    }
+
+    private void writeLine(JsonGenerator generator, ForumThreadExport thread, boolean archived) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("type", "thread");
+            generator.writeStringField("uuid", thread.uuid().toString());
+            generator.writeStringField("creator", thread.creator());
+            generator.writeStringField("title", thread.title());
+            generator.writeStringField("content", thread.content());
+            generator.writeStringField("publishedAt", toString(thread.publishedAt()));
+            generator.writeBooleanField("closed", thread.closed());
+            generator.writeNumberField("commentCount", thread.commentCount());
+            generator.writeStringField("lastActivityAt", toString(thread.lastActivityAt()));
+            generator.writeBooleanField("archived", archived);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(JsonGenerator generator, ForumCommentExport comment) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("type", "comment");
+            generator.writeStringField("uuid", comment.uuid().toString());
+            generator.writeStringField("threadId", comment.threadId().toString());
+            generator.writeStringField("creator", comment.creator());
+            generator.writeStringField("content", comment.content());
+            generator.writeStringField("publishedAt", toString(comment.publishedAt()));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String toString(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.model.ForumImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ForumImportService {
+
+    ForumImportResponse importNdjson(InputStream in) throws IOException;
+    long getImportedUsers();
+    long getImportedThreads();
+    long getImportedComments();
+    long getRejected();
+    long getChunks();
+    long getChunkNanos();
+}
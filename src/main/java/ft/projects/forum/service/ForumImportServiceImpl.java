@@ -0,0 +1,303 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumImportComment;
+import ft.projects.forum.model.ForumImportCommentLine;
+import ft.projects.forum.model.ForumImportLine;
+import ft.projects.forum.model.ForumImportResponse;
+import ft.projects.forum.model.ForumImportThread;
+import ft.projects.forum.model.ForumImportUser;
+import ft.projects.forum.model.ForumRole;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumThreadRepository;
+import ft.projects.forum.repository.ForumUserRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+@Service
+public class ForumImportServiceImpl implements ForumImportService {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}");
+    private static final int MAX_ERRORS = 100;
+
+    private final ForumUserRepository userRepository;
+    private final ForumThreadRepository threadRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader reader;
+    private final Clock clock;
+    private final int chunkSize;
+    private final LongAdder importedUsers = new LongAdder();
+    private final LongAdder importedThreads = new LongAdder();
+    private final LongAdder importedComments = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder chunkNanos = new LongAdder();
+
+    public ForumImportServiceImpl(
+            ForumUserRepository userRepository,
+            ForumThreadRepository threadRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            Clock clock,
+            @Value("${import-chunk-size}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.threadRepository = threadRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reader = objectMapper.readerFor(ForumImportLine.class);
+        this.clock = clock;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ForumImportResponse importNdjson(InputStream in) throws IOException {
+        var run = new ImportRun();
+        var lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while((line = lines.readLine()) != null) {
+            lineNumber++;
+            if(line.isBlank()) continue;
+            try {
+                run.accept(reader.<ForumImportLine>readValue(line));
+            } catch(ForumException e) {
+                run.reject(lineNumber, e.getMessage());
+            } catch(JsonProcessingException e) {
+                run.reject(lineNumber, ForumExceptions.INVALID_IMPORT_LINE.name());
+            }
+            if(run.pending.size() >= chunkSize && !run.flush(lineNumber)) return run.finish();
+        }
+        run.flush(lineNumber);
+        return run.finish();
+    }
+
+    @Override
+    public long getImportedUsers() {
+        return importedUsers.sum();
+    }
+
+    @Override
+    public long getImportedThreads() {
+        return importedThreads.sum();
+    }
+
+    @Override
+    public long getImportedComments() {
+        return importedComments.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getChunks() {
+        return chunks.sum();
+    }
+
+    @Override
+    public long getChunkNanos() {
+        return chunkNanos.sum();
+    }
+
+    private class ImportRun {
+
+        private final Map<String, UUID> userIds = new HashMap<>();
+        private final Map<String, ForumUser> pendingUsers = new HashMap<>();
+        private final Map<UUID, UUID> threadIds = new HashMap<>();
+        private final Map<UUID, ForumThread> pendingThreadsBySource = new HashMap<>();
+        private final Map<UUID, CommentActivity> pendingActivity = new HashMap<>();
+        private final List<Object> pending = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long pendingThreads;
+        private long pendingComments;
+        private long users;
+        private long threads;
+        private long comments;
+        private long rejectedLines;
+        private boolean aborted;
+
+        private void accept(ForumImportLine line) {
+            if(line instanceof ForumImportUser user) acceptUser(user);
+            else if(line instanceof ForumImportThread thread) acceptThread(thread);
+            else if(line instanceof ForumImportCommentLine comment) acceptComment(comment);
+            else throw new ForumException(ForumExceptions.INVALID_IMPORT_LINE);
+        }
+
+        private void acceptUser(ForumImportUser user) {
+            ForumValidator.validateUsername(user.username());
+            if(user.password() == null || !BCRYPT_HASH.matcher(user.password()).matches()) throw new ForumException(ForumExceptions.INVALID_PASSWORD);
+            ForumValidator.validateTimezone(user.timezone());
+            if(pendingUsers.containsKey(user.username()) || findUserId(user.username()) != null) throw new ForumException(ForumExceptions.USER_EXISTS);
+            var entity = ForumUser.builder()
+                    .username(user.username())
+                    .password(user.password())
+                    .timezone(user.timezone())
+                    .role(ForumRole.ROLE_USER)
+                    .build();
+            pendingUsers.put(user.username(), entity);
+            pending.add(entity);
+        }
+
+        private void acceptThread(ForumImportThread thread) {
+            ForumValidator.validateTitle(thread.title());
+            ForumValidator.validateContent(thread.content());
+            var creator = getUser(thread.creator());
+            var publishedAt = thread.publishedAt() != null ? thread.publishedAt() : clock.instant();
+            var lastActivityAt = publishedAt;
+            var comments = new ArrayList<ForumComment>();
+            var entity = ForumThread.builder()
+                    .title(thread.title())
+                    .content(thread.content())
+                    .excerpt(ForumThread.excerptOf(thread.content()))
+                    .user(creator)
+                    .isClosed(thread.closed())
+                    .publishedAt(publishedAt)
+                    .build();
+            for(ForumImportComment comment : thread.comments() != null ? thread.comments() : List.<ForumImportComment>of()) {
+                ForumValidator.validateContent(comment.content());
+                var commentPublishedAt = comment.publishedAt() != null ? comment.publishedAt() : publishedAt;
+                if(commentPublishedAt.isAfter(lastActivityAt)) lastActivityAt = commentPublishedAt;
+                comments.add(ForumComment.builder()
+                        .content(comment.content())
+                        .publishedAt(commentPublishedAt)
+                        .user(getUser(comment.creator()))
+                        .thread(entity)
+                        .build()
+                );
+            }
+            entity.setCommentCount(comments.size());
+            entity.setLastActivityAt(lastActivityAt);
+            if(thread.closed()) entity.setClosedAt(lastActivityAt);
+            pending.add(entity);
+            pending.addAll(comments);
+            if(thread.uuid() != null) pendingThreadsBySource.put(thread.uuid(), entity);
+            pendingThreads++;
+            pendingComments += comments.size();
+        }
+
+        // standalone comment lines, as written by the export, refer to a thread imported earlier in the run
+        private void acceptComment(ForumImportCommentLine comment) {
+            if(comment.threadId() == null) throw new ForumException(ForumExceptions.INVALID_ID);
+            ForumValidator.validateContent(comment.content());
+            var creator = getUser(comment.creator());
+            var publishedAt = comment.publishedAt() != null ? comment.publishedAt() : clock.instant();
+            var thread = pendingThreadsBySource.get(comment.threadId());
+            if(thread != null) {
+                thread.setCommentCount(thread.getCommentCount() + 1);
+                if(publishedAt.isAfter(thread.getLastActivityAt())) thread.setLastActivityAt(publishedAt);
+            } else {
+                var threadId = threadIds.get(comment.threadId());
+                if(threadId == null) throw new ForumException(ForumExceptions.INVALID_ID);
+                thread = threadRepository.getReferenceById(threadId);
+                pendingActivity.merge(threadId, new CommentActivity(1, publishedAt), CommentActivity::merge);
+            }
+            pending.add(ForumComment.builder()
+                    .content(comment.content())
+                    .publishedAt(publishedAt)
+                    .user(creator)
+                    .thread(thread)
+                    .build()
+            );
+            pendingComments++;
+        }
+
+        private void reject(long lineNumber, String reason) {
+            rejectedLines++;
+            if(errors.size() < MAX_ERRORS) errors.add("line " + lineNumber + ": " + reason);
+        }
+
+        private boolean flush(long lineNumber) {
+            if(pending.isEmpty()) return true;
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    pending.forEach(entityManager::persist);
+                    pendingActivity.forEach((uuid, activity) -> threadRepository.incrementCommentCount(uuid, activity.count(), activity.lastPublishedAt()));
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+            } catch(RuntimeException e) {
+                aborted = true;
+                errors.add("line " + lineNumber + ": " + ForumExceptions.IMPORT_CHUNK_FAILED.name());
+                return false;
+            }
+            chunkNanos.add(System.nanoTime() - start);
+            chunks.increment();
+            pendingUsers.forEach((username, user) -> userIds.put(username, user.getUuid()));
+            pendingThreadsBySource.forEach((source, thread) -> threadIds.put(source, thread.getUuid()));
+            users += pendingUsers.size();
+            threads += pendingThreads;
+            comments += pendingComments;
+            importedUsers.add(pendingUsers.size());
+            importedThreads.add(pendingThreads);
+            importedComments.add(pendingComments);
+            pendingUsers.clear();
+            pendingThreadsBySource.clear();
+            pendingActivity.clear();
+            pending.clear();
+            pendingThreads = 0;
+            pendingComments = 0;
+            return true;
+        }
+
+        private ForumImportResponse finish() {
+            rejected.add(rejectedLines);
+            return new ForumImportResponse(users, threads, comments, rejectedLines, errors, aborted);
+        }
+
+        private ForumUser getUser(String username) {
+            var pendingUser = pendingUsers.get(username);
+            if(pendingUser != null) return pendingUser;
+            var uuid = findUserId(username);
+            if(uuid == null) throw new ForumException(ForumExceptions.INVALID_USERNAME);
+            return userRepository.getReferenceById(uuid);
+        }
+
+        private UUID findUserId(String username) {
+            if(username == null) return null;
+            var uuid = userIds.get(username);
+            if(uuid != null) return uuid;
+            uuid = userRepository.findUuidByUsername(username).orElse(null);
+            if(uuid != null) userIds.put(username, uuid);
+            return uuid;
+        }
+    }
+
+    private record CommentActivity(
+            long count,
+            Instant lastPublishedAt
+    ) {
+
+        private CommentActivity merge(CommentActivity other) {
+            return new CommentActivity(count + other.count, lastPublishedAt.isAfter(other.lastPublishedAt) ? lastPublishedAt : other.lastPublishedAt);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import ft.projects.forum.model.ForumCommentView;
+import ft.projects.forum.model.ForumThreadView;
+
+import java.io.IOException;
+
+public final class ForumResponseWriter {
+
+    private final JsonGenerator generator;
+    private final ZonedTimestampFormatter timestamps;
+
+    public ForumResponseWriter(JsonGenerator generator, ZonedTimestampFormatter timestamps) {
+        this.generator = generator;
+        this.timestamps = timestamps;
+    }
+
+    public void writeStartArray() throws IOException {
+        generator.writeStartArray();
+    }
+
+    public void writeEndArray() throws IOException {
+        generator.writeEndArray();
+    }
+
+    public void writeThread(ForumThreadView thread) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("uuid", thread.uuid().toString());
+        generator.writeStringField("creator", thread.creator());
+        generator.writeStringField("title", thread.title());
+        generator.writeStringField("content", thread.content());
+        generator.writeStringField("publishedAt", timestamps.format(thread.publishedAt()));
+        generator.writeNumberField("version", thread.version());
+        generator.writeEndObject();
+    }
+
+    public void writeComment(ForumCommentView comment) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("uuid", comment.uuid().toString());
+        generator.writeStringField("creator", comment.creator());
+        generator.writeStringField("content", comment.content());
+        generator.writeStringField("publishedAt", timestamps.format(comment.publishedAt()));
+        generator.writeNumberField("version", comment.version());
+        generator.writeEndObject();
+    }
+}
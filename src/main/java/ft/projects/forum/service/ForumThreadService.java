@@ -1,18 +1,37 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.cache.LoadingCache;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadDetailResponse;
 import ft.projects.forum.model.ForumThreadRequest;
 import ft.projects.forum.model.ForumThreadResponse;
+import ft.projects.forum.model.ForumThreadStatus;
+import ft.projects.forum.model.ForumThreadSummaryResponse;
 
-import java.util.List;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.UUID;
 
 public interface ForumThreadService {
 
     void createThread(ForumThreadRequest threadRequest);
-    List<ForumThreadResponse> getThreads(int page, int size, boolean descending);
-    void updateContent(UUID uuid, String content);
+    void writeThreads(int page, int size, boolean descending, String sort, JsonGenerator generator) throws IOException;
+    ForumPageResponse<ForumThreadResponse> getThreads(String cursor, int size, boolean descending);
+    ForumPageResponse<ForumThreadSummaryResponse> getThreadSummaries(String cursor, int size, boolean descending);
+    ForumThreadDetailResponse getThreadDetail(UUID uuid, int size);
+    void updateContent(UUID uuid, String content, Long version);
     void updateClosed(UUID uuid, boolean closed);
-    void deleteThread(UUID uuid);
-    ForumThread getThread(UUID uuid);
+    ForumDeletionResponse deleteThread(UUID uuid);
+    ForumThread getThreadReference(UUID uuid);
+    ForumThreadStatus getThreadStatus(UUID uuid);
+    boolean threadExists(UUID uuid);
+    LoadingCache<?, ?> getFrontPageCache();
+    ExpiringCache<?, ?> getThreadStatusCache();
+    void recordCommentsCreated(UUID uuid, int count, Instant lastPublishedAt);
+    void recordCommentDeleted(UUID uuid);
+    int reconcileCommentCounters();
 }
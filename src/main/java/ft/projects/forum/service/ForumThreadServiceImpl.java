@@ -1,117 +1,400 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import ft.projects.forum.cache.ExpiringCache;
+import ft.projects.forum.cache.LoadingCache;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumCommentResponse;
+import ft.projects.forum.model.ForumCommentView;
+import ft.projects.forum.model.ForumCursor;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadDetailResponse;
+import ft.projects.forum.model.ForumThreadDetailView;
 import ft.projects.forum.model.ForumThreadRequest;
 import ft.projects.forum.model.ForumThreadResponse;
+import ft.projects.forum.model.ForumThreadStatus;
+import ft.projects.forum.model.ForumThreadSummary;
+import ft.projects.forum.model.ForumThreadSummaryResponse;
+import ft.projects.forum.model.ForumThreadView;
+import ft.projects.forum.repository.ForumCommentRepository;
 import ft.projects.forum.repository.ForumThreadRepository;
 import ft.projects.forum.security.service.SecurityContextService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class ForumThreadServiceImpl implements ForumThreadService {
 
     private final ForumThreadRepository threadRepository;
+    private final ForumCommentRepository commentRepository;
     private final SecurityContextService contextService;
+    private final ForumDeletionService deletionService;
+    private final ForumArchiveService archiveService;
     private final DateTimeFormatter formatter;
+    private final Clock clock;
+    private final int maxPage;
+    private final int maxSize;
+    private final int frontPages;
+    private final long threadStatusCacheTtl;
+    private final int reconcileBatchSize;
+    private final LoadingCache<FrontPageKey, List<ForumThreadView>> frontPageCache;
+    private final ExpiringCache<UUID, ForumThreadStatus> threadStatusCache;
+
+    public ForumThreadServiceImpl(
+            ForumThreadRepository threadRepository,
+            ForumCommentRepository commentRepository,
+            SecurityContextService contextService,
+            ForumDeletionService deletionService,
+            ForumArchiveService archiveService,
+            DateTimeFormatter formatter,
+            Clock clock,
+            @Value("${thread-max-page}") int maxPage,
+            @Value("${thread-max-size}") int maxSize,
+            @Value("${front-page-cache-pages}") int frontPages,
+            @Value("${front-page-cache-size}") int frontPageCacheSize,
+            @Value("${front-page-cache-ttl}") long frontPageCacheTtl,
+            @Value("${thread-status-cache-size}") int threadStatusCacheSize,
+            @Value("${thread-status-cache-ttl}") long threadStatusCacheTtl,
+            @Value("${thread-reconcile-batch-size}") int reconcileBatchSize) {
+        this.threadRepository = threadRepository;
+        this.commentRepository = commentRepository;
+        this.contextService = contextService;
+        this.deletionService = deletionService;
+        this.archiveService = archiveService;
+        this.formatter = formatter;
+        this.clock = clock;
+        this.maxPage = maxPage;
+        this.maxSize = maxSize;
+        this.frontPages = frontPages;
+        this.threadStatusCacheTtl = threadStatusCacheTtl;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.frontPageCache = new LoadingCache<>(frontPageCacheSize, frontPageCacheTtl, clock);
+        this.threadStatusCache = new ExpiringCache<>(threadStatusCacheSize, clock);
+        deletionService.addThreadDeletionListener(this::threadsDeleted);
+    }
 
     @Override
     public void createThread(ForumThreadRequest threadRequest) {
-        validateTitle(threadRequest.title());
-        validateContent(threadRequest.content());
+        ForumValidator.validateTitle(threadRequest.title());
+        ForumValidator.validateContent(threadRequest.content());
+        var publishedAt = Instant.now();
         threadRepository.save(ForumThread.builder()
                 .title(threadRequest.title())
                 .content(threadRequest.content())
-                .user(contextService.getUserFromContext())
+                .excerpt(ForumThread.excerptOf(threadRequest.content()))
+                .user(contextService.getUserReferenceFromContext())
                 .isClosed(false)
-                .publishedAt(Instant.now())
+                .publishedAt(publishedAt)
+                .lastActivityAt(publishedAt)
                 .build()
         );
+        frontPageCache.invalidateAll();
     }
 
     @Override
-    public List<ForumThreadResponse> getThreads(int page, int size, boolean descending) {
+    public void writeThreads(int page, int size, boolean descending, String sort, JsonGenerator generator) throws IOException {
         validatePage(page);
         validateSize(size);
-        var timezone = contextService.getUserFromContext().getTimezone();
-        var sort = descending ? Sort.by("publishedAt").descending() : Sort.by("publishedAt");
-        return threadRepository.findAll(PageRequest.of(page, size, sort))
-                .stream()
-                .map(t -> new ForumThreadResponse(
-                        t.getUuid(),
-                        t.getUser().getUsername(),
-                        t.getTitle(),
-                        t.getContent(),
-                        formatter.format(ZonedDateTime.ofInstant(t.getPublishedAt(), ZoneId.of(timezone)))
-                    )
+        var property = getSortProperty(sort);
+        var writer = new ForumResponseWriter(generator, getTimestampFormatter());
+        var order = descending ? Sort.by(property, "uuid").descending() : Sort.by(property, "uuid");
+        var pageRequest = PageRequest.of(page, size, order);
+        writer.writeStartArray();
+        if(page < frontPages && property.equals("publishedAt")) {
+            for(var thread : frontPageCache.get(new FrontPageKey(page, size, descending), () -> threadRepository.findViews(pageRequest))) {
+                writer.writeThread(thread);
+            }
+        } else {
+            try {
+                threadRepository.forEachView(pageRequest, thread -> {
+                    try {
+                        writer.writeThread(thread);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    @Override
+    public ForumPageResponse<ForumThreadResponse> getThreads(String cursor, int size, boolean descending) {
+        validateSize(size);
+        var timestamps = getTimestampFormatter();
+        var limit = Limit.of(size + 1);
+        List<ForumThreadView> threads;
+        if(cursor == null || cursor.isEmpty()) {
+            threads = descending
+                    ? threadRepository.findLatestViews(limit)
+                    : threadRepository.findEarliestViews(limit);
+        } else {
+            var decoded = ForumCursor.decode(cursor, descending);
+            threads = descending
+                    ? threadRepository.findViewsBefore(decoded.publishedAt(), decoded.uuid(), limit)
+                    : threadRepository.findViewsAfter(decoded.publishedAt(), decoded.uuid(), limit);
+        }
+        String nextCursor = null;
+        if(threads.size() > size) {
+            threads = threads.subList(0, size);
+            var last = threads.get(size - 1);
+            nextCursor = new ForumCursor(last.publishedAt(), last.uuid(), descending).encode();
+        }
+        return new ForumPageResponse<>(
+                threads.stream()
+                        .map(t -> toResponse(t, timestamps))
+                        .toList(),
+                nextCursor
+        );
+    }
+
+    @Override
+    public ForumPageResponse<ForumThreadSummaryResponse> getThreadSummaries(String cursor, int size, boolean descending) {
+        validateSize(size);
+        var timestamps = getTimestampFormatter();
+        var limit = Limit.of(size + 1);
+        List<ForumThreadSummary> threads;
+        if(cursor == null || cursor.isEmpty()) {
+            threads = descending
+                    ? threadRepository.findLatestSummaries(limit)
+                    : threadRepository.findEarliestSummaries(limit);
+        } else {
+            var decoded = ForumCursor.decode(cursor, descending);
+            threads = descending
+                    ? threadRepository.findSummariesBefore(decoded.publishedAt(), decoded.uuid(), limit)
+                    : threadRepository.findSummariesAfter(decoded.publishedAt(), decoded.uuid(), limit);
+        }
+        String nextCursor = null;
+        if(threads.size() > size) {
+            threads = threads.subList(0, size);
+            var last = threads.get(size - 1);
+            nextCursor = new ForumCursor(last.publishedAt(), last.uuid(), descending).encode();
+        }
+        return new ForumPageResponse<>(
+                threads.stream()
+                        .map(t -> new ForumThreadSummaryResponse(
+                                t.uuid(),
+                                t.creator(),
+                                t.title(),
+                                t.excerpt(),
+                                timestamps.format(t.publishedAt()),
+                                t.commentCount(),
+                                timestamps.format(t.lastActivityAt())
+                            )
+                        )
+                        .toList(),
+                nextCursor
+        );
+    }
+
+    @Override
+    public ForumThreadDetailResponse getThreadDetail(UUID uuid, int size) {
+        validateSize(size);
+        var timestamps = getTimestampFormatter();
+        ForumThreadDetailView thread;
+        List<ForumCommentView> comments;
+        var detail = threadRepository.findDetailById(uuid);
+        if(detail.isPresent()) {
+            thread = detail.get();
+            comments = commentRepository.findViewsByThread(uuid, Limit.of(size + 1));
+        } else {
+            var archived = archiveService.getArchivedThread(uuid)
+                    .orElseThrow(() -> new ForumException(ForumExceptions.INVALID_ID));
+            thread = new ForumThreadDetailView(archived.uuid(), archived.creator(), archived.title(), archived.content(), archived.publishedAt(), 0, true, archived.comments().size(), archived.lastActivityAt());
+            comments = archived.comments().stream()
+                    .limit(size + 1)
+                    .map(c -> new ForumCommentView(c.uuid(), c.creator(), c.content(), c.publishedAt(), 0))
+                    .toList();
+        }
+        String nextCursor = null;
+        if(comments.size() > size) {
+            comments = comments.subList(0, size);
+            var last = comments.get(size - 1);
+            nextCursor = new ForumCursor(last.publishedAt(), last.uuid(), false).encode();
+        }
+        return new ForumThreadDetailResponse(
+                thread.uuid(),
+                thread.creator(),
+                thread.title(),
+                thread.content(),
+                timestamps.format(thread.publishedAt()),
+                thread.version(),
+                thread.closed(),
+                thread.commentCount(),
+                timestamps.format(thread.lastActivityAt()),
+                new ForumPageResponse<>(
+                        comments.stream()
+                                .map(c -> new ForumCommentResponse(c.uuid(), c.creator(), c.content(), timestamps.format(c.publishedAt()), c.version()))
+                                .toList(),
+                        nextCursor
                 )
-                .toList();
+        );
     }
 
     @Override
-    public void updateContent(UUID uuid, String content) {
-        var thread = getThreadIfExistsAndValidOwnership(uuid);
-        validateContent(content);
-        thread.setContent(content);
-        threadRepository.save(thread);
+    public void updateContent(UUID uuid, String content, Long version) {
+        ForumValidator.validateContent(content);
+        var userId = contextService.getPrincipalFromContext().uuid();
+        if(threadRepository.updateContent(uuid, userId, content, ForumThread.excerptOf(content), version) == 0) {
+            throw getUpdateFailure(uuid, userId);
+        }
+        frontPageCache.patchAll(threads -> threads.stream()
+                .map(t -> t.uuid().equals(uuid) ? new ForumThreadView(t.uuid(), t.creator(), t.title(), content, t.publishedAt(), t.version() + 1) : t)
+                .toList());
     }
 
     @Override
     public void updateClosed(UUID uuid, boolean closed) {
-        var thread = getThreadIfExistsAndValidOwnership(uuid);
-        thread.setClosed(closed);
-        threadRepository.save(thread);
+        var userId = contextService.getPrincipalFromContext().uuid();
+        if(threadRepository.updateClosed(uuid, userId, closed, closed ? clock.instant() : null) == 0) {
+            throw getUpdateFailure(uuid, userId);
+        }
+        threadStatusCache.put(uuid, new ForumThreadStatus(true, closed, userId), clock.millis() + threadStatusCacheTtl);
+        frontPageCache.patchAll(threads -> threads.stream()
+                .map(t -> t.uuid().equals(uuid) ? new ForumThreadView(t.uuid(), t.creator(), t.title(), t.content(), t.publishedAt(), t.version() + 1) : t)
+                .toList());
     }
 
     @Override
-    public void deleteThread(UUID uuid) {
-        var thread = getThreadIfExistsAndValidOwnership(uuid);
-        threadRepository.delete(thread);
+    public ForumDeletionResponse deleteThread(UUID uuid) {
+        var userId = contextService.getPrincipalFromContext().uuid();
+        var deletion = deletionService.deleteThread(uuid, userId, () -> getDeleteFailure(uuid, userId));
+        threadStatusCache.put(uuid, ForumThreadStatus.MISSING, clock.millis() + threadStatusCacheTtl);
+        return deletion;
     }
 
     @Override
-    public ForumThread getThread(UUID uuid) {
-        return threadRepository.findById(uuid)
-                .orElseThrow(() -> new ForumException(ForumExceptions.INVALID_ID));
+    public ForumThread getThreadReference(UUID uuid) {
+        return threadRepository.getReferenceById(uuid);
     }
 
-    private void validateTitle(String title) {
-        if(title == null || title.length() < 5) {
-            throw new ForumException(ForumExceptions.INVALID_TITLE);
-        }
+    @Override
+    public ForumThreadStatus getThreadStatus(UUID uuid) {
+        var cached = threadStatusCache.get(uuid);
+        if(cached != null) return cached;
+        var status = threadRepository.findStatusById(uuid)
+                .or(() -> archiveService.getArchivedOwner(uuid)
+                        .map(ownerId -> new ForumThreadStatus(true, true, ownerId)))
+                .orElse(ForumThreadStatus.MISSING);
+        threadStatusCache.put(uuid, status, clock.millis() + threadStatusCacheTtl);
+        return status;
     }
 
-    private void validateContent(String content) {
-        if(content == null || content.length() < 5) {
-            throw new ForumException(ForumExceptions.INVALID_CONTENT);
-        }
+    @Override
+    public boolean threadExists(UUID uuid) {
+        return getThreadStatus(uuid).exists();
+    }
+
+    @Override
+    public LoadingCache<?, ?> getFrontPageCache() {
+        return frontPageCache;
+    }
+
+    @Override
+    public ExpiringCache<?, ?> getThreadStatusCache() {
+        return threadStatusCache;
+    }
+
+    @Override
+    public void recordCommentsCreated(UUID uuid, int count, Instant lastPublishedAt) {
+        threadRepository.incrementCommentCount(uuid, count, lastPublishedAt);
+    }
+
+    @Override
+    public void recordCommentDeleted(UUID uuid) {
+        threadRepository.decrementCommentCount(uuid);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${thread-reconcile-interval}")
+    public int reconcileCommentCounters() {
+        var reconciled = 0;
+        var after = new UUID(0, 0);
+        List<UUID> threadIds;
+        do {
+            threadIds = threadRepository.findIdsAfter(after, Limit.of(reconcileBatchSize));
+            if(threadIds.isEmpty()) break;
+            reconciled += threadRepository.reconcileCommentCounters(threadIds);
+            after = threadIds.get(threadIds.size() - 1);
+        } while(threadIds.size() == reconcileBatchSize);
+        return reconciled;
+    }
+
+    private void threadsDeleted(Collection<UUID> threadIds) {
+        threadIds.forEach(threadStatusCache::invalidate);
+        frontPageCache.invalidateAll();
     }
 
     private void validatePage(int page) {
-        if(page < 0) throw new ForumException(ForumExceptions.INVALID_PAGE);
+        if(page < 0 || page > maxPage) throw new ForumException(ForumExceptions.INVALID_PAGE);
     }
 
     private void validateSize(int size) {
-        if(size < 1) throw new ForumException(ForumExceptions.INVALID_SIZE);
+        if(size < 1 || size > maxSize) throw new ForumException(ForumExceptions.INVALID_SIZE);
+    }
+
+    private String getSortProperty(String sort) {
+        if(sort == null || sort.equals("published")) return "publishedAt";
+        if(sort.equals("activity")) return "lastActivityAt";
+        throw new ForumException(ForumExceptions.INVALID_SORT);
+    }
+
+    private ZonedTimestampFormatter getTimestampFormatter() {
+        return new ZonedTimestampFormatter(formatter, ZoneId.of(contextService.getPrincipalFromContext().timezone()));
+    }
+
+    private ForumThreadResponse toResponse(ForumThreadView thread, ZonedTimestampFormatter timestamps) {
+        return new ForumThreadResponse(
+                thread.uuid(),
+                thread.creator(),
+                thread.title(),
+                thread.content(),
+                timestamps.format(thread.publishedAt()),
+                thread.version()
+        );
+    }
+
+    private record FrontPageKey(
+            int page,
+            int size,
+            boolean descending
+    ) {
+    }
+
+    private ForumException getUpdateFailure(UUID uuid, UUID userId) {
+        var status = threadRepository.findStatusById(uuid).orElse(ForumThreadStatus.MISSING);
+        if(!status.exists()) return new ForumException(ForumExceptions.INVALID_ID);
+        if(!status.ownerId().equals(userId)) return new ForumException(ForumExceptions.INVALID_OWNER);
+        return new ForumException(ForumExceptions.VERSION_CONFLICT);
     }
 
-    private ForumThread getThreadIfExistsAndValidOwnership(UUID uuid) {
-        var threadOptional = threadRepository.findById(uuid);
-        if(threadOptional.isEmpty()) throw new ForumException(ForumExceptions.INVALID_ID);
-        var thread = threadOptional.get();
-        if(!thread.getUser().getUsername().equals(contextService.getUserFromContext().getUsername())) throw new ForumException(ForumExceptions.INVALID_OWNER);
-        return thread;
+    private ForumException getDeleteFailure(UUID uuid, UUID userId) {
+        var status = threadRepository.findStatusById(uuid)
+                .or(() -> archiveService.getArchivedOwner(uuid)
+                        .map(ownerId -> new ForumThreadStatus(true, true, ownerId)))
+                .orElse(ForumThreadStatus.MISSING);
+        if(!status.exists()) return new ForumException(ForumExceptions.INVALID_ID);
+        if(!status.ownerId().equals(userId)) return new ForumException(ForumExceptions.INVALID_OWNER);
+        if(archiveService.isArchived(uuid)) return new ForumException(ForumExceptions.THREAD_ARCHIVED);
+        return new ForumException(ForumExceptions.INVALID_ID);
     }
 }
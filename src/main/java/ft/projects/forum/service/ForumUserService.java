@@ -1,17 +1,24 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.model.ForumUserRequest;
 import ft.projects.forum.model.ForumUserResponse;
+import ft.projects.forum.model.RefreshTokenRequest;
 import ft.projects.forum.model.TokenResponse;
 
-import java.util.List;
+import java.io.IOException;
 
 public interface ForumUserService {
 
     void register(ForumUserRequest userRequest);
     TokenResponse login();
-    List<ForumUserResponse> getUsers();
+    TokenResponse refresh(RefreshTokenRequest refreshRequest);
+    void logout();
+    ForumPageResponse<ForumUserResponse> getUsers(String cursor, int size, String prefix);
+    void writeUsers(String prefix, JsonGenerator generator) throws IOException;
     void updateUsername(String username);
     void updatePassword(String password);
-    void delete();
+    ForumDeletionResponse delete();
 }
@@ -1,34 +1,69 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
 import ft.projects.forum.model.*;
 import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.IssuedRefreshToken;
+import ft.projects.forum.security.service.ForumPrincipalService;
 import ft.projects.forum.security.service.JwtService;
+import ft.projects.forum.security.service.RefreshTokenService;
 import ft.projects.forum.security.service.SecurityContextService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Base64;
+import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class ForumUserServiceImpl implements ForumUserService {
 
     private final ForumUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final SecurityContextService contextService;
     private final JwtService jwtService;
+    private final ForumPrincipalService principalService;
+    private final RefreshTokenService refreshTokenService;
+    private final ForumDeletionService deletionService;
     private final DateTimeFormatter formatter;
+    private final int maxSize;
+
+    public ForumUserServiceImpl(
+            ForumUserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            SecurityContextService contextService,
+            JwtService jwtService,
+            ForumPrincipalService principalService,
+            RefreshTokenService refreshTokenService,
+            ForumDeletionService deletionService,
+            DateTimeFormatter formatter,
+            @Value("${user-max-size}") int maxSize) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.contextService = contextService;
+        this.jwtService = jwtService;
+        this.principalService = principalService;
+        this.refreshTokenService = refreshTokenService;
+        this.deletionService = deletionService;
+        this.formatter = formatter;
+        this.maxSize = maxSize;
+    }
 
     @Override
     public void register(ForumUserRequest userRequest) {
         validateUsername(userRequest.username());
-        validatePassword(userRequest.password());
-        validateTimezone(userRequest.timezone());
+        ForumValidator.validatePassword(userRequest.password());
+        ForumValidator.validateTimezone(userRequest.timezone());
         userRepository.save(ForumUser.builder()
                 .username(userRequest.username())
                 .password(passwordEncoder.encode(userRequest.password()))
@@ -40,67 +75,124 @@ public class ForumUserServiceImpl implements ForumUserService {
 
     @Override
     public TokenResponse login() {
-        var user = contextService.getUserFromContext();
-        var jwt = jwtService.getToken(user.getUsername());
-        var expiration = ZonedDateTime.ofInstant(Instant.ofEpochMilli(jwtService.getDate(jwt).getTime()), ZoneId.of(user.getTimezone()));
-        return new TokenResponse(
-                jwt,
-                formatter.format(expiration)
-        );
+        var principal = contextService.getPrincipalFromContext();
+        return getTokenResponse(principal, refreshTokenService.issue(principal));
     }
 
     @Override
-    public List<ForumUserResponse> getUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(u -> new ForumUserResponse(u.getUsername()))
-                .toList();
+    public TokenResponse refresh(RefreshTokenRequest refreshRequest) {
+        var rotation = refreshTokenService.rotate(refreshRequest.refreshToken());
+        return getTokenResponse(rotation.principal(), rotation.refreshToken());
+    }
+
+    @Override
+    public void logout() {
+        jwtService.invalidate();
+        refreshTokenService.revokeAll(contextService.getPrincipalFromContext().uuid());
+    }
+
+    @Override
+    public ForumPageResponse<ForumUserResponse> getUsers(String cursor, int size, String prefix) {
+        if(size < 1 || size > maxSize) throw new ForumException(ForumExceptions.INVALID_SIZE);
+        var after = cursor == null || cursor.isEmpty() ? new ForumUserView(new UUID(0, 0), "") : decodeCursor(cursor);
+        var users = userRepository.findViewsAfter(toLikePattern(prefix), after.username(), after.uuid(), Limit.of(size + 1));
+        String nextCursor = null;
+        if(users.size() > size) {
+            users = users.subList(0, size);
+            nextCursor = encodeCursor(users.get(size - 1));
+        }
+        return new ForumPageResponse<>(users.stream().map(u -> new ForumUserResponse(u.username())).toList(), nextCursor);
+    }
+
+    @Override
+    public void writeUsers(String prefix, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        try {
+            userRepository.forEachResponse(toLikePattern(prefix), user -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("username", user.username());
+                    generator.writeEndObject();
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
     }
 
     @Override
     public void updateUsername(String username) {
         validateUsername(username);
         var user = contextService.getUserFromContext();
+        var previousUsername = user.getUsername();
         user.setUsername(username);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
-        jwtService.invalidate();
+        principalService.invalidate(user.getUuid(), previousUsername);
     }
 
     @Override
     public void updatePassword(String password) {
-        validatePassword(password);
+        ForumValidator.validatePassword(password);
         var user = contextService.getUserFromContext();
         user.setPassword(passwordEncoder.encode(password));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
-        jwtService.invalidate();
+        principalService.invalidate(user.getUuid(), user.getUsername());
     }
 
     @Override
-    public void delete() {
-        userRepository.delete(contextService.getUserFromContext());
-        jwtService.invalidate();
+    public ForumDeletionResponse delete() {
+        var principal = contextService.getPrincipalFromContext();
+        var deletion = deletionService.deleteUser(principal.uuid());
+        refreshTokenService.revokeAll(principal.uuid());
+        principalService.invalidate(principal.uuid(), principal.username());
+        return deletion;
     }
 
-    private void validateUsername(String username) {
-        if(username == null || username.length() < 5) {
-            throw new ForumException(ForumExceptions.INVALID_USERNAME);
-        } else if(userRepository.findByUsername(username).isPresent()) {
-            throw new ForumException(ForumExceptions.USER_EXISTS);
-        }
+    private TokenResponse getTokenResponse(ForumPrincipal principal, IssuedRefreshToken refreshToken) {
+        var token = jwtService.getToken(principal);
+        var zone = ZoneId.of(principal.timezone());
+        return new TokenResponse(
+                token.token(),
+                formatter.format(ZonedDateTime.ofInstant(token.expiration(), zone)),
+                refreshToken.token(),
+                formatter.format(ZonedDateTime.ofInstant(refreshToken.expiration(), zone))
+        );
     }
 
-    private void validatePassword(String password) {
-        if(password == null || password.length() < 8) {
-            throw new ForumException(ForumExceptions.INVALID_PASSWORD);
-        }
+    private String toLikePattern(String prefix) {
+        if(prefix == null) return "%";
+        return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    private String encodeCursor(ForumUserView user) {
+        var username = user.username().getBytes(StandardCharsets.UTF_8);
+        var buffer = ByteBuffer.allocate(16 + username.length)
+                .putLong(user.uuid().getMostSignificantBits())
+                .putLong(user.uuid().getLeastSignificantBits())
+                .put(username);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
     }
 
-    private void validateTimezone(String timezone) {
+    private ForumUserView decodeCursor(String cursor) {
         try {
-            if(timezone == null) throw new DateTimeException(null);
-            ZoneId.of(timezone);
-        } catch (DateTimeException e) {
-            throw new ForumException(ForumExceptions.INVALID_TIMEZONE);
+            var buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if(buffer.remaining() < 16) throw new ForumException(ForumExceptions.INVALID_CURSOR);
+            var uuid = new UUID(buffer.getLong(), buffer.getLong());
+            return new ForumUserView(uuid, StandardCharsets.UTF_8.decode(buffer).toString());
+        } catch(IllegalArgumentException e) {
+            throw new ForumException(ForumExceptions.INVALID_CURSOR);
+        }
+    }
+
+    private void validateUsername(String username) {
+        ForumValidator.validateUsername(username);
+        if(userRepository.findByUsername(username).isPresent()) {
+            throw new ForumException(ForumExceptions.USER_EXISTS);
         }
     }
 }
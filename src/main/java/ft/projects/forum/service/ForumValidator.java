@@ -0,0 +1,46 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+
+public final class ForumValidator {
+
+    private ForumValidator() {
+    }
+
+    public static void validateUsername(String username) {
+        if(username == null || username.length() < 5) {
+            throw new ForumException(ForumExceptions.INVALID_USERNAME);
+        }
+    }
+
+    public static void validatePassword(String password) {
+        if(password == null || password.length() < 8) {
+            throw new ForumException(ForumExceptions.INVALID_PASSWORD);
+        }
+    }
+
+    public static void validateTimezone(String timezone) {
+        try {
+            if(timezone == null) throw new DateTimeException(null);
+            ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            throw new ForumException(ForumExceptions.INVALID_TIMEZONE);
+        }
+    }
+
+    public static void validateTitle(String title) {
+        if(title == null || title.length() < 5) {
+            throw new ForumException(ForumExceptions.INVALID_TITLE);
+        }
+    }
+
+    public static void validateContent(String content) {
+        if(content == null || content.length() < 5) {
+            throw new ForumException(ForumExceptions.INVALID_CONTENT);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ft.projects.forum.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneRules;
+
+public final class ZonedTimestampFormatter {
+
+    private final DateTimeFormatter formatter;
+    private final ZoneRules rules;
+    private final ZoneOffset fixedOffset;
+
+    public ZonedTimestampFormatter(DateTimeFormatter formatter, ZoneId zone) {
+        this.formatter = formatter;
+        this.rules = zone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+    }
+
+    public String format(Instant instant) {
+        if(instant == null) return null;
+        var offset = fixedOffset != null ? fixedOffset : rules.getOffset(instant);
+        return formatter.format(LocalDateTime.ofEpochSecond(instant.getEpochSecond(), instant.getNano(), offset));
+    }
+}
@@ -4,6 +4,7 @@ import ft.projects.forum.model.*;
 import ft.projects.forum.repository.ForumCommentRepository;
 import ft.projects.forum.repository.ForumThreadRepository;
 import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.service.JwtService;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
@@ -45,9 +46,12 @@ public class ForumCommentFlowTest extends AbstractIntegrationTest {
             @Autowired ForumUserRepository userRepository,
             @Autowired PasswordEncoder passwordEncoder,
             @Autowired JwtService jwtService,
-            @Autowired ForumThreadRepository threadRepository) {
+            @Autowired ForumThreadRepository threadRepository,
+            @Autowired ForumCommentRepository commentRepository) {
+        commentRepository.deleteAllInBatch();
+        threadRepository.deleteAllInBatch();
         userRepository.deleteAll();
-        userRepository.save(ForumUser.builder()
+        var user = userRepository.save(ForumUser.builder()
                 .username(TEST_USERNAME)
                 .password(passwordEncoder.encode(TEST_PASSWORD))
                 .timezone(TEST_TIMEZONE)
@@ -61,11 +65,13 @@ public class ForumCommentFlowTest extends AbstractIntegrationTest {
                 .isClosed(false)
                 .build()
         ).getUuid();
-        testUserJwt = jwtService.getToken(TEST_USERNAME);
+        testUserJwt = jwtService.getToken(ForumPrincipal.from(user)).token();
     }
 
     @AfterAll
-    public static void clean(@Autowired ForumUserRepository userRepository) {
+    public static void clean(@Autowired ForumUserRepository userRepository, @Autowired ForumThreadRepository threadRepository, @Autowired ForumCommentRepository commentRepository) {
+        commentRepository.deleteAllInBatch();
+        threadRepository.deleteAllInBatch();
         userRepository.deleteAll();
     }
 
@@ -6,10 +6,12 @@ import ft.projects.forum.model.ForumThreadRequest;
 import ft.projects.forum.model.ForumUser;
 import ft.projects.forum.repository.ForumThreadRepository;
 import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.service.JwtService;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +21,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.UUID;
 
 import static ft.projects.forum.Constants.*;
@@ -41,20 +45,22 @@ public class ForumThreadFlowTest extends AbstractIntegrationTest {
     }
 
     @BeforeAll
-    public static void setup(@Autowired ForumUserRepository userRepository, @Autowired PasswordEncoder passwordEncoder, @Autowired JwtService jwtService) {
+    public static void setup(@Autowired ForumUserRepository userRepository, @Autowired ForumThreadRepository threadRepository, @Autowired PasswordEncoder passwordEncoder, @Autowired JwtService jwtService) {
+        threadRepository.deleteAllInBatch();
         userRepository.deleteAll();
-        userRepository.save(ForumUser.builder()
+        var user = userRepository.save(ForumUser.builder()
                 .username(TEST_USERNAME)
                 .password(passwordEncoder.encode(TEST_PASSWORD))
                 .timezone(TEST_TIMEZONE)
                 .role(ForumRole.ROLE_USER)
                 .build()
         );
-        testUserJwt = jwtService.getToken(TEST_USERNAME);
+        testUserJwt = jwtService.getToken(ForumPrincipal.from(user)).token();
     }
 
     @AfterAll
-    public static void clean(@Autowired ForumUserRepository userRepository) {
+    public static void clean(@Autowired ForumUserRepository userRepository, @Autowired ForumThreadRepository threadRepository) {
+        threadRepository.deleteAllInBatch();
         userRepository.deleteAll();
     }
 
@@ -117,6 +123,39 @@ public class ForumThreadFlowTest extends AbstractIntegrationTest {
                 .statusCode(200);
     }
 
+    @Test
+    public void givenValidAuth_whenGetThreadsByCursor_thenEveryThreadOnce() {
+        var user = userRepository.findByUsername(TEST_USERNAME).get();
+        var publishedAt = Instant.now();
+        for(int i = 0; i < 7; i++) {
+            threadRepository.save(ForumThread.builder()
+                    .user(user)
+                    .title(TEST_THREAD_TITLE)
+                    .content(TEST_THREAD_CONTENT)
+                    .publishedAt(publishedAt.minusSeconds(i % 3))
+                    .build()
+            );
+        }
+        var seen = new HashSet<String>();
+        String cursor = "";
+        do {
+            var page = given()
+                    .header("Authorization", "Bearer " + testUserJwt)
+                    .param("cursor", cursor)
+                    .param("size", 3)
+                    .log().all()
+                    .when()
+                    .get("/api/threads")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .jsonPath();
+            seen.addAll(page.getList("items.uuid"));
+            cursor = page.getString("nextCursor");
+        } while(cursor != null);
+        Assertions.assertEquals(7, seen.size());
+    }
+
     @Test
     public void givenInvalidAuth_whenGetThreads_thenStatusUnauthorized() {
         given()
@@ -2,9 +2,14 @@ package ft.projects.forum;
 
 import ft.projects.forum.model.ForumRole;
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.model.RefreshTokenRequest;
 import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.repository.RevokedTokenRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.service.JwtService;
+import ft.projects.forum.security.service.TokenRevocationService;
 import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -12,10 +17,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.List;
 import java.util.UUID;
 
 import static ft.projects.forum.Constants.*;
@@ -28,60 +31,53 @@ public class ForumUserFlowTest extends AbstractIntegrationTest {
     private final ForumUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final TokenRevocationService revocationService;
+    private final RevokedTokenRepository revokedTokenRepository;
     @LocalServerPort
     private int port;
 
     @Autowired
-    public ForumUserFlowTest(ForumUserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public ForumUserFlowTest(ForumUserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService, TokenRevocationService revocationService, RevokedTokenRepository revokedTokenRepository) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.revocationService = revocationService;
+        this.revokedTokenRepository = revokedTokenRepository;
     }
 
     @AfterAll
-    public static void clean(@Autowired ForumUserRepository userRepository, @Autowired JwtService jwtService) {
+    public static void clean(@Autowired ForumUserRepository userRepository, @Autowired TokenRevocationService revocationService, @Autowired RevokedTokenRepository revokedTokenRepository) {
         userRepository.deleteAll();
-        clearInvalidatedTokens(jwtService);
+        TokenRevocations.reset(revocationService, revokedTokenRepository);
     }
 
     @BeforeEach
     public void setup() {
         RestAssured.port = port;
         userRepository.deleteAll();
-        clearInvalidatedTokens(jwtService);
+        TokenRevocations.reset(revocationService, revokedTokenRepository);
     }
 
     private String getAdminUserJwt() {
-        userRepository.save(ForumUser.builder()
+        var user = userRepository.save(ForumUser.builder()
                 .username(ADMIN_USERNAME)
                 .password(passwordEncoder.encode(ADMIN_PASSWORD))
                 .timezone(ADMIN_TIMEZONE)
                 .role(ForumRole.ROLE_ADMIN)
                 .build()
         );
-        return jwtService.getToken(ADMIN_USERNAME);
+        return jwtService.getToken(ForumPrincipal.from(user)).token();
     }
 
     private String getNormalUserJwt() {
-        userRepository.save(ForumUser.builder()
+        var user = userRepository.save(ForumUser.builder()
                 .username(TEST_USERNAME)
                 .password(passwordEncoder.encode(TEST_PASSWORD))
                 .timezone(TEST_TIMEZONE)
                 .role(ForumRole.ROLE_USER)
                 .build()
         );
-        return jwtService.getToken(TEST_USERNAME);
-    }
-
-    private static void clearInvalidatedTokens(JwtService jwtService) {
-        try {
-            Field field = jwtService.getClass().getDeclaredField("INVALIDATED");
-            field.setAccessible(true);
-            var invalidatedTokens = (List<String>) field.get(null);
-            invalidatedTokens.clear();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        return jwtService.getToken(ForumPrincipal.from(user)).token();
     }
 
     @Test
@@ -96,6 +92,67 @@ public class ForumUserFlowTest extends AbstractIntegrationTest {
                 .statusCode(200);
     }
 
+    @Test
+    public void givenRefreshTokenFromLogin_whenRefresh_thenRotated() {
+        getNormalUserJwt();
+        String refreshToken = given()
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString((TEST_USERNAME + ":" + TEST_PASSWORD).getBytes(StandardCharsets.UTF_8)))
+                .when()
+                .post("/api/users/login")
+                .then()
+                .statusCode(200)
+                .extract()
+                .path("refreshToken");
+        String rotated = given()
+                .contentType(ContentType.JSON)
+                .body(new RefreshTokenRequest(refreshToken))
+                .log().all()
+                .when()
+                .post("/api/users/refresh")
+                .then()
+                .statusCode(200)
+                .extract()
+                .path("refreshToken");
+        Assertions.assertNotEquals(refreshToken, rotated);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new RefreshTokenRequest(refreshToken))
+                .log().all()
+                .when()
+                .post("/api/users/refresh")
+                .then()
+                .statusCode(401);
+    }
+
+    @Test
+    public void givenLoggedOut_whenRefresh_thenStatusUnauthorized() {
+        getNormalUserJwt();
+        var login = given()
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString((TEST_USERNAME + ":" + TEST_PASSWORD).getBytes(StandardCharsets.UTF_8)))
+                .when()
+                .post("/api/users/login")
+                .then()
+                .statusCode(200)
+                .extract();
+        String token = login.path("token");
+        String refreshToken = login.path("refreshToken");
+        given()
+                .header("Authorization", "Bearer " + token)
+                .log().all()
+                .when()
+                .post("/api/users/logout")
+                .then()
+                .statusCode(204);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new RefreshTokenRequest(refreshToken))
+                .log().all()
+                .when()
+                .post("/api/users/refresh")
+                .then()
+                .statusCode(401);
+    }
+
     @Test
     public void givenInvalidAuth_whenLogin_thenStatusUnauthorized() {
         given()
@@ -0,0 +1,22 @@
+package ft.projects.forum;
+
+import ft.projects.forum.repository.RevokedTokenRepository;
+import ft.projects.forum.security.service.TokenRevocationService;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+public final class TokenRevocations {
+
+    private TokenRevocations() {
+    }
+
+    public static void reset(TokenRevocationService revocationService, RevokedTokenRepository revokedTokenRepository) {
+        revokedTokenRepository.deleteAllInBatch();
+        TokenRevocationService target = AopTestUtils.getTargetObject(revocationService);
+        var revoked = (Map<?, ?>) ReflectionTestUtils.getField(target, "revoked");
+        if(revoked != null) revoked.clear();
+        ReflectionTestUtils.invokeMethod(target, "rebuildBloomFilter");
+    }
+}
@@ -0,0 +1,262 @@
+package ft.projects.forum.archive;
+
+import ft.projects.forum.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentStoreTest {
+
+    private static final UUID OWNER = UUID.randomUUID();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void givenAppendedRecord_whenRead_thenSameBytesAndCompressed() throws Exception {
+        var key = UUID.randomUUID();
+        var value = "archived ".repeat(1_000).getBytes(StandardCharsets.UTF_8);
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            store.append(key, OWNER, value);
+            assertTrue(store.contains(key));
+            assertEquals(OWNER, store.getOwner(key));
+            assertArrayEquals(value, store.read(key));
+            assertNull(store.read(UUID.randomUUID()));
+            assertTrue(store.getBytes() < value.length / 10);
+        }
+    }
+
+    @Test
+    public void givenClosedStore_whenReopened_thenIndexReloaded() throws Exception {
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            store.append(first, OWNER, bytes("first"));
+            store.append(second, OWNER, bytes("second"));
+        }
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            assertEquals(2, store.getSize());
+            assertEquals(OWNER, store.getOwner(second));
+            assertArrayEquals(bytes("first"), store.read(first));
+            assertArrayEquals(bytes("second"), store.read(second));
+            var third = UUID.randomUUID();
+            store.append(third, OWNER, bytes("third"));
+            assertArrayEquals(bytes("third"), store.read(third));
+        }
+    }
+
+    @Test
+    public void givenSmallSegments_whenAppendMany_thenRolledAndReadable() throws Exception {
+        var keys = new UUID[50];
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            for(int i = 0; i < keys.length; i++) {
+                keys[i] = UUID.randomUUID();
+                store.append(keys[i], OWNER, bytes(keys[i].toString()));
+            }
+            for(var key : keys) assertArrayEquals(bytes(key.toString()), store.read(key));
+        }
+        try(var files = Files.list(directory)) {
+            assertTrue(files.filter(p -> p.toString().endsWith(".seg")).count() > 1);
+        }
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            for(var key : keys) assertArrayEquals(bytes(key.toString()), store.read(key));
+        }
+    }
+
+    @Test
+    public void givenRewrittenRecord_whenRead_thenLatestWins() throws Exception {
+        var key = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            store.append(key, OWNER, bytes("old"));
+            store.append(key, OWNER, bytes("new"));
+            assertEquals(1, store.getSize());
+            assertArrayEquals(bytes("new"), store.read(key));
+        }
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            assertArrayEquals(bytes("new"), store.read(key));
+        }
+    }
+
+    @Test
+    public void givenRemovedRecord_whenReopened_thenTombstoneApplied() throws Exception {
+        var removed = UUID.randomUUID();
+        var kept = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            store.append(removed, OWNER, bytes("removed ".repeat(40)));
+            store.append(kept, OWNER, bytes("kept"));
+            assertTrue(store.remove(removed));
+            assertFalse(store.remove(removed));
+            assertNull(store.read(removed));
+            assertEquals(1, store.getSize());
+        }
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            assertFalse(store.contains(removed));
+            assertArrayEquals(bytes("kept"), store.read(kept));
+            assertEquals(1, store.getSize());
+        }
+    }
+
+    @Test
+    public void givenRemovedOrRewrittenRecord_whenCompactedAfterDelay_thenOldBytesErased() throws Exception {
+        var clock = new MutableClock();
+        var removed = UUID.randomUUID();
+        var rewritten = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20, true, clock, 1_000)) {
+            store.append(removed, OWNER, bytes("removed"));
+            store.append(rewritten, OWNER, bytes("first"));
+            store.remove(removed);
+            store.append(rewritten, OWNER, bytes("second"));
+            var live = store.getBytes();
+            store.compact();
+            assertFalse(isZeroPrefix(Files.readAllBytes(directory.resolve("0.seg")), live));
+            clock.setMillis(1_000);
+            store.compact();
+            assertTrue(isZeroPrefix(Files.readAllBytes(directory.resolve("0.seg")), live));
+            assertArrayEquals(bytes("second"), store.read(rewritten));
+        }
+    }
+
+    @Test
+    public void givenStaleReader_whenWriterRewritesAndRemoves_thenOldRecordsReadableUntilCompacted() throws Exception {
+        var clock = new MutableClock();
+        var removed = UUID.randomUUID();
+        var rewritten = UUID.randomUUID();
+        try(var writer = new ArchiveSegmentStore(directory, 1 << 20, true, clock, 1_000)) {
+            writer.append(removed, OWNER, bytes("removed"));
+            writer.append(rewritten, OWNER, bytes("first"));
+            try(var reader = new ArchiveSegmentStore(directory, 1 << 20, false)) {
+                writer.remove(removed);
+                writer.append(rewritten, OWNER, bytes("second"));
+                writer.compact();
+                assertArrayEquals(bytes("removed"), reader.read(removed));
+                assertArrayEquals(bytes("first"), reader.read(rewritten));
+                reader.refresh();
+                assertNull(reader.read(removed));
+                assertArrayEquals(bytes("second"), reader.read(rewritten));
+            }
+        }
+    }
+
+    @Test
+    public void givenMostlyDeadOldestSegment_whenCompacted_thenLiveRecordsMovedAndSegmentDeletedAfterDelay() throws Exception {
+        var clock = new MutableClock();
+        var kept = UUID.randomUUID();
+        var removed = new UUID[10];
+        try(var writer = new ArchiveSegmentStore(directory, 256, true, clock, 1_000)) {
+            writer.append(kept, OWNER, bytes("kept"));
+            for(int i = 0; i < removed.length; i++) {
+                removed[i] = UUID.randomUUID();
+                writer.append(removed[i], OWNER, bytes(removed[i].toString()));
+            }
+            for(var key : removed) writer.remove(key);
+            try(var reader = new ArchiveSegmentStore(directory, 256, false)) {
+                writer.compact();
+                assertTrue(Files.exists(directory.resolve("0.seg")));
+                assertArrayEquals(bytes("kept"), reader.read(kept));
+                reader.refresh();
+                clock.setMillis(1_000);
+                writer.compact();
+                assertFalse(Files.exists(directory.resolve("0.seg")));
+                assertFalse(Files.exists(directory.resolve("0.idx")));
+                reader.refresh();
+                assertArrayEquals(bytes("kept"), reader.read(kept));
+                assertEquals(1, reader.getSize());
+            }
+            assertArrayEquals(bytes("kept"), writer.read(kept));
+        }
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            assertArrayEquals(bytes("kept"), store.read(kept));
+            for(var key : removed) assertFalse(store.contains(key));
+            assertEquals(1, store.getSize());
+        }
+    }
+
+    @Test
+    public void givenRecordUsers_whenFindKeys_thenOnlyOwnedOrMentioningRecordsAcrossCompactionAndReopen() throws Exception {
+        var clock = new MutableClock();
+        var user = UUID.randomUUID();
+        var owned = UUID.randomUUID();
+        var mentioning = UUID.randomUUID();
+        var redacted = UUID.randomUUID();
+        var unrelated = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 256, true, clock, 0)) {
+            store.append(owned, user, bytes("owned"));
+            store.append(mentioning, OWNER, List.of(UUID.randomUUID(), user), bytes("mentioning"));
+            store.append(redacted, OWNER, List.of(user), bytes("redacted"));
+            store.append(redacted, OWNER, List.of(), bytes("redacted"));
+            for(int i = 0; i < 10; i++) {
+                var filler = UUID.randomUUID();
+                store.append(filler, OWNER, List.of(UUID.randomUUID()), bytes(filler.toString()));
+                store.remove(filler);
+            }
+            store.append(unrelated, OWNER, List.of(UUID.randomUUID()), bytes("unrelated"));
+            assertEquals(Set.of(owned, mentioning), store.findKeys(Set.of(user)));
+            store.compact();
+            store.compact();
+            assertFalse(Files.exists(directory.resolve("0.usr")));
+            assertEquals(Set.of(owned, mentioning), store.findKeys(Set.of(user)));
+        }
+        try(var store = new ArchiveSegmentStore(directory, 256)) {
+            assertEquals(Set.of(owned, mentioning), store.findKeys(Set.of(user)));
+            assertEquals(Set.of(), store.findKeys(Set.of(UUID.randomUUID())));
+        }
+    }
+
+    @Test
+    public void givenReadOnlyStore_whenWriterAppendsAndRemoves_thenSeenAfterRefresh() throws Exception {
+        var removed = UUID.randomUUID();
+        var added = UUID.randomUUID();
+        try(var writer = new ArchiveSegmentStore(directory, 256)) {
+            writer.append(removed, OWNER, bytes("removed"));
+            try(var reader = new ArchiveSegmentStore(directory, 256, false)) {
+                assertTrue(reader.contains(removed));
+                writer.remove(removed);
+                for(int i = 0; i < 20; i++) writer.append(added, OWNER, bytes("added ".repeat(i * 10)));
+                assertFalse(reader.contains(added));
+                reader.refresh();
+                assertFalse(reader.contains(removed));
+                assertArrayEquals(bytes("added ".repeat(190)), reader.read(added));
+                assertEquals(1, reader.getSize());
+                assertThrows(IllegalStateException.class, () -> reader.append(added, OWNER, bytes("added")));
+            }
+        }
+    }
+
+    @Test
+    public void givenTornIndexEntry_whenReopened_thenIgnored() throws Exception {
+        var key = UUID.randomUUID();
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            store.append(key, OWNER, bytes("kept"));
+        }
+        Files.write(directory.resolve("0.idx"), new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            assertEquals(1, store.getSize());
+            var next = UUID.randomUUID();
+            store.append(next, OWNER, bytes("next"));
+            assertArrayEquals(bytes("next"), store.read(next));
+        }
+        try(var store = new ArchiveSegmentStore(directory, 1 << 20)) {
+            assertEquals(2, store.getSize());
+        }
+    }
+
+    private static boolean isZeroPrefix(byte[] segment, long live) {
+        for(int i = 0; i < segment.length - live; i++) {
+            if(segment[i] != 0) return false;
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
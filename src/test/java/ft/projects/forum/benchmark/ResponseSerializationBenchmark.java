@@ -0,0 +1,85 @@
+package ft.projects.forum.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.model.ForumThreadResponse;
+import ft.projects.forum.model.ForumThreadView;
+import ft.projects.forum.service.ForumResponseWriter;
+import ft.projects.forum.service.ZonedTimestampFormatter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static ft.projects.forum.Constants.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({ "100", "10000" })
+    private int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private List<ForumThreadView> threads;
+
+    @Setup
+    public void setup() {
+        threads = new ArrayList<>(rows);
+        var publishedAt = Instant.parse("2024-01-01T00:00:00Z");
+        for(int i = 0; i < rows; i++) {
+            threads.add(new ForumThreadView(UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt.plusSeconds(i * 3_600L), 0));
+        }
+    }
+
+    @Benchmark
+    public void responseList() throws IOException {
+        var responses = threads.stream()
+                .map(t -> new ForumThreadResponse(
+                        t.uuid(),
+                        t.creator(),
+                        t.title(),
+                        t.content(),
+                        formatter.format(ZonedDateTime.ofInstant(t.publishedAt(), ZoneId.of(TEST_TIMEZONE))),
+                        t.version())
+                )
+                .toList();
+        objectMapper.writeValue(OutputStream.nullOutputStream(), responses);
+    }
+
+    @Benchmark
+    public void streamingGenerator() throws IOException {
+        try(var generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            var writer = new ForumResponseWriter(generator, new ZonedTimestampFormatter(formatter, ZoneId.of(TEST_TIMEZONE)));
+            writer.writeStartArray();
+            for(var thread : threads) {
+                writer.writeThread(thread);
+            }
+            writer.writeEndArray();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseSerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+}
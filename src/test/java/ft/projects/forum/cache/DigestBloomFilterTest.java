@@ -0,0 +1,44 @@
+package ft.projects.forum.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DigestBloomFilterTest {
+
+    @Test
+    public void givenInsertedDigests_whenMightContain_thenNoFalseNegatives() {
+        var filter = new DigestBloomFilter(1 << 16, 5);
+        var random = ThreadLocalRandom.current();
+        var digests = new long[2_000][2];
+        for(var digest : digests) {
+            digest[0] = random.nextLong();
+            digest[1] = random.nextLong();
+            filter.put(digest[0], digest[1]);
+        }
+        for(var digest : digests) {
+            assertTrue(filter.mightContain(digest[0], digest[1]));
+        }
+    }
+
+    @Test
+    public void givenSparseFilter_whenMightContain_thenFalsePositivesRare() {
+        var filter = new DigestBloomFilter(1 << 16, 5);
+        var random = ThreadLocalRandom.current();
+        for(int i = 0; i < 2_000; i++) filter.put(random.nextLong(), random.nextLong());
+        int falsePositives = 0;
+        for(int i = 0; i < 100_000; i++) {
+            if(filter.mightContain(random.nextLong(), random.nextLong())) falsePositives++;
+        }
+        assertTrue(falsePositives < 100);
+    }
+
+    @Test
+    public void givenInvalidSize_whenCreate_thenThrow() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new DigestBloomFilter(1000, 5);
+        });
+    }
+}
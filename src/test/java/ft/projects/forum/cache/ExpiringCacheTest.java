@@ -0,0 +1,90 @@
+package ft.projects.forum.cache;
+
+import ft.projects.forum.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final ExpiringCache<String, String> cache = new ExpiringCache<>(2, clock);
+
+    @BeforeEach
+    public void setup() {
+        clock.setMillis(NOW);
+    }
+
+    @Test
+    public void givenCachedValue_whenGet_thenHit() {
+        cache.put("key", "value", NOW + 1000);
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void givenNoValue_whenGet_thenMiss() {
+        assertNull(cache.get("key"));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void givenExpiredValue_whenGet_thenMissAndEvicted() {
+        cache.put("key", "value", NOW + 1000);
+        clock.setMillis(NOW + 1000);
+        assertNull(cache.get("key"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void givenFullCache_whenPut_thenSizeBounded() {
+        cache.put("a", "a", NOW + 1000);
+        cache.put("b", "b", NOW + 1000);
+        cache.put("c", "c", NOW + 1000);
+        assertEquals(2, cache.getSize());
+        assertEquals("c", cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void givenFullCacheWithExpiredEntry_whenPut_thenExpiredEvictedFirst() {
+        cache.put("a", "a", NOW + 500);
+        cache.put("b", "b", NOW + 5000);
+        clock.setMillis(NOW + 1000);
+        cache.put("c", "c", NOW + 5000);
+        assertEquals("b", cache.get("b"));
+        assertEquals("c", cache.get("c"));
+    }
+
+    @Test
+    public void givenReplacedKey_whenPutPastCapacity_thenOldestInsertionEvicted() {
+        cache.put("a", "a", NOW + 1000);
+        cache.put("b", "b", NOW + 1000);
+        cache.put("a", "a2", NOW + 1000);
+        cache.put("c", "c", NOW + 1000);
+        assertEquals("a2", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("c", cache.get("c"));
+    }
+
+    @Test
+    public void givenManyReplacements_whenPut_thenSizeBoundedAndLatestValueKept() {
+        for(var i = 0; i < 100; i++) cache.put("a", "a" + i, NOW + 1000);
+        cache.put("b", "b", NOW + 1000);
+        assertEquals(2, cache.getSize());
+        assertEquals("a99", cache.get("a"));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void givenCachedValue_whenInvalidate_thenMiss() {
+        cache.put("key", "value", NOW + 1000);
+        cache.invalidate("key");
+        assertNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,127 @@
+package ft.projects.forum.cache;
+
+import ft.projects.forum.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadingCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final LoadingCache<String, String> cache = new LoadingCache<>(2, 1000, clock);
+
+    @BeforeEach
+    public void setup() {
+        clock.setMillis(NOW);
+    }
+
+    @Test
+    public void givenLoadedValue_whenGet_thenHitWithoutLoad() {
+        var loads = new AtomicInteger();
+        assertEquals("value", cache.get("key", () -> {
+            loads.incrementAndGet();
+            return "value";
+        }));
+        assertEquals("value", cache.get("key", () -> "other"));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getLoads());
+    }
+
+    @Test
+    public void givenExpiredValue_whenGet_thenReloaded() {
+        cache.get("key", () -> "value");
+        clock.setMillis(NOW + 1000);
+        assertEquals("other", cache.get("key", () -> "other"));
+        assertEquals(2, cache.getLoads());
+    }
+
+    @Test
+    public void givenFullCache_whenGetNewKey_thenLoadedWithoutCaching() {
+        cache.get("first", () -> "value");
+        cache.get("second", () -> "value");
+        assertEquals("third", cache.get("third", () -> "third"));
+        assertEquals(2, cache.getSize());
+        assertEquals("value", cache.get("first", () -> "other"));
+    }
+
+    @Test
+    public void givenLoaderThrows_whenGet_thenThrownAndNotCached() {
+        assertThrows(IllegalStateException.class, () -> {
+            cache.get("key", () -> {
+                throw new IllegalStateException();
+            });
+        });
+        assertEquals(0, cache.getSize());
+        assertEquals("value", cache.get("key", () -> "value"));
+    }
+
+    @Test
+    public void givenCachedValues_whenPatchAll_thenPatchedInPlace() {
+        cache.get("key", () -> "value");
+        cache.patchAll(v -> v + "-patched");
+        assertEquals("value-patched", cache.get("key", () -> "other"));
+        assertEquals(1, cache.getLoads());
+    }
+
+    @Test
+    public void givenInvalidationDuringLoad_whenLoadCompletes_thenResultNotCached() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        var stale = executor.submit(() -> cache.get("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "stale";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        cache.invalidateAll();
+        release.countDown();
+        assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals("fresh", cache.get("key", () -> "fresh"));
+    }
+
+    @Test
+    public void givenConcurrentMisses_whenGet_thenLoadedOnce() throws Exception {
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var loads = new AtomicInteger();
+        var futures = new ArrayList<Future<String>>();
+        for(int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.get("key", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return "value";
+                });
+            }));
+        }
+        start.countDown();
+        for(var future : futures) assertEquals("value", future.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(threads - 1, cache.getHits());
+    }
+}
@@ -3,7 +3,9 @@ package ft.projects.forum.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
 import ft.projects.forum.model.ForumCommentRequest;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.security.filter.JwtFilter;
 import ft.projects.forum.service.ForumCommentService;
 import org.junit.jupiter.api.Test;
@@ -16,10 +18,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.never;
+import static org.mockito.BDDMockito.times;
+import static org.mockito.BDDMockito.verify;
 import static org.mockito.BDDMockito.willThrow;
 
 @WebMvcTest(ForumCommentController.class)
@@ -56,6 +64,25 @@ public class ForumCommentControllerTest {
         res.andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    public void givenCommentQueued_whenCreateComment_thenStatusAccepted() throws Exception {
+        given(commentService.createComment(any())).willReturn(true);
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/comments/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ForumCommentRequest(null, null))));
+        res.andExpect(MockMvcResultMatchers.status().isAccepted());
+    }
+
+    @Test
+    public void givenQueueFull_whenCreateComment_thenStatusServiceUnavailable() throws Exception {
+        willThrow(new ForumOverloadException(ForumExceptions.COMMENT_QUEUE_FULL, 1)).given(commentService).createComment(any());
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/comments/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ForumCommentRequest(null, null))));
+        res.andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+    }
+
     @Test
     public void givenServiceNotThrow_whenGetCommentsForThread_thenStatusOk() throws Exception {
         var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/comments")
@@ -63,9 +90,43 @@ public class ForumCommentControllerTest {
         res.andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    public void givenCursor_whenGetCommentsForThread_thenPageReturned() throws Exception {
+        var threadId = UUID.randomUUID();
+        given(commentService.getCommentsForThread(threadId, "", 20)).willReturn(new ForumPageResponse<>(List.of(), "next"));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/comments")
+                .param("id", threadId.toString())
+                .param("cursor", ""));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("next"));
+        verify(commentService, never()).writeCommentsForThread(any(), any());
+    }
+
+    @Test
+    public void givenSizeWithoutCursor_whenGetCommentsForThread_thenFirstPageReturned() throws Exception {
+        var threadId = UUID.randomUUID();
+        given(commentService.getCommentsForThread(threadId, null, 5)).willReturn(new ForumPageResponse<>(List.of(), "next"));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/comments")
+                .param("id", threadId.toString())
+                .param("size", "5"));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("next"));
+        verify(commentService, never()).writeCommentsForThread(any(), any());
+    }
+
+    @Test
+    public void givenNoCursorOrSize_whenGetCommentsForThread_thenEveryCommentStreamed() throws Exception {
+        var threadId = UUID.randomUUID();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/comments")
+                .param("id", threadId.toString()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        verify(commentService, times(1)).writeCommentsForThread(eq(threadId), any());
+        verify(commentService, never()).getCommentsForThread(any(), any(), anyInt());
+    }
+
     @Test
     public void givenServiceThrows_whenGetCommentsForThread_thenStatusBadRequest() throws Exception {
-        given(commentService.getCommentsForThread(any())).willThrow(new ForumException(ForumExceptions.INVALID_ID));
+        willThrow(new ForumException(ForumExceptions.INVALID_ID)).given(commentService).writeCommentsForThread(any(), any());
         var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/comments")
                 .param("id", UUID.randomUUID().toString()));
         res.andExpect(MockMvcResultMatchers.status().isBadRequest());
@@ -81,7 +142,7 @@ public class ForumCommentControllerTest {
 
     @Test
     public void givenServiceThrows_whenUpdateContent_thenStatusBadRequest() throws Exception {
-        willThrow(new ForumException(ForumExceptions.INVALID_ID)).given(commentService).updateContent(any(), any());
+        willThrow(new ForumException(ForumExceptions.INVALID_ID)).given(commentService).updateContent(any(), any(), any());
         var res = mockMvc.perform(MockMvcRequestBuilders.put("/api/comments/content")
                 .param("id", UUID.randomUUID().toString())
                 .param("content", ""));
@@ -0,0 +1,54 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.security.filter.JwtFilter;
+import ft.projects.forum.service.ForumDeletionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.UUID;
+
+import static org.mockito.BDDMockito.*;
+
+@WebMvcTest(ForumDeletionController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ForumDeletionControllerTest {
+
+    private final MockMvc mockMvc;
+    @MockBean
+    private ForumDeletionService deletionService;
+    @MockBean
+    private JwtFilter jwtFilter;
+
+    @Autowired
+    public ForumDeletionControllerTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @Test
+    public void givenRunningJob_whenGetDeletion_thenProgress() throws Exception {
+        var uuid = UUID.randomUUID();
+        given(deletionService.getJob(uuid)).willReturn(new ForumDeletionResponse(uuid, ForumDeletionStatus.RUNNING, 10_000, 4_000));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/deletions/" + uuid));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(10_000))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted").value(4_000));
+    }
+
+    @Test
+    public void givenUnknownJob_whenGetDeletion_thenStatusBadRequest() throws Exception {
+        given(deletionService.getJob(any())).willThrow(new ForumException(ForumExceptions.INVALID_ID));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/deletions/" + UUID.randomUUID()));
+        res.andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
@@ -0,0 +1,40 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.security.filter.JwtFilter;
+import ft.projects.forum.service.ForumExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.mockito.BDDMockito.*;
+
+@WebMvcTest(ForumExportController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ForumExportControllerTest {
+
+    private final MockMvc mockMvc;
+    @MockBean
+    private ForumExportService exportService;
+    @MockBean
+    private JwtFilter jwtFilter;
+
+    @Autowired
+    public ForumExportControllerTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @Test
+    public void givenServiceNotThrow_whenExport_thenGzipAttachment() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/export"));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/gzip"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"forum-export.ndjson.gz\""));
+        verify(exportService, times(1)).export(any());
+    }
+}
@@ -0,0 +1,54 @@
+package ft.projects.forum.controller;
+
+import ft.projects.forum.model.ForumImportResponse;
+import ft.projects.forum.security.filter.JwtFilter;
+import ft.projects.forum.service.ForumImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.mockito.BDDMockito.*;
+
+@WebMvcTest(ForumImportController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ForumImportControllerTest {
+
+    private final MockMvc mockMvc;
+    @MockBean
+    private ForumImportService importService;
+    @MockBean
+    private JwtFilter jwtFilter;
+
+    @Autowired
+    public ForumImportControllerTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @Test
+    public void givenNdjsonBody_whenImport_thenSummaryReturned() throws Exception {
+        given(importService.importNdjson(any())).willReturn(new ForumImportResponse(1, 2, 3, 1, List.of("line 4: INVALID_TITLE"), false));
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/import")
+                .contentType("application/x-ndjson")
+                .content("{}\n"));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.threads").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0]").value("line 4: INVALID_TITLE"));
+    }
+
+    @Test
+    public void givenJsonBody_whenImport_thenStatusUnsupportedMediaType() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"));
+        res.andExpect(MockMvcResultMatchers.status().isUnsupportedMediaType());
+        verify(importService, never()).importNdjson(any());
+    }
+}
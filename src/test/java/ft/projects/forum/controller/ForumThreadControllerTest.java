@@ -3,6 +3,8 @@ package ft.projects.forum.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
 import ft.projects.forum.model.ForumThreadRequest;
 import ft.projects.forum.security.filter.JwtFilter;
 import ft.projects.forum.service.ForumThreadService;
@@ -62,11 +64,53 @@ class ForumThreadControllerTest {
 
     @Test
     public void givenServiceThrows_whenGetThreads_thenStatusBadRequest() throws Exception {
-        given(threadService.getThreads(anyInt(), anyInt(), anyBoolean())).willThrow(new ForumException(ForumExceptions.INVALID_PAGE));
+        willThrow(new ForumException(ForumExceptions.INVALID_PAGE)).given(threadService).writeThreads(anyInt(), anyInt(), anyBoolean(), anyString(), any());
         var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads"));
         res.andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    public void givenActivitySort_whenGetThreads_thenPassedToService() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads")
+                .param("sort", "activity"));
+        res.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(threadService, times(1)).writeThreads(eq(0), eq(5), eq(true), eq("activity"), any());
+    }
+
+    @Test
+    public void givenCursor_whenGetThreads_thenCursorModeUsed() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads")
+                .param("cursor", ""));
+        res.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(threadService, times(1)).getThreads("", 5, true);
+        verify(threadService, never()).writeThreads(anyInt(), anyInt(), anyBoolean(), anyString(), any());
+    }
+
+    @Test
+    public void givenSummaryView_whenGetThreads_thenSummaryModeUsed() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads")
+                .param("view", "summary")
+                .param("cursor", "abc"));
+        res.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(threadService, times(1)).getThreadSummaries("abc", 20, true);
+        verify(threadService, never()).getThreads(anyString(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    public void givenServiceNotThrow_whenGetThread_thenStatusOk() throws Exception {
+        var id = UUID.randomUUID();
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads/" + id));
+        res.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(threadService, times(1)).getThreadDetail(id, 20);
+    }
+
+    @Test
+    public void givenServiceThrows_whenGetThread_thenStatusBadRequest() throws Exception {
+        given(threadService.getThreadDetail(any(), anyInt())).willThrow(new ForumException(ForumExceptions.INVALID_ID));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/threads/" + UUID.randomUUID()));
+        res.andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     public void givenServiceNotThrow_whenUpdateContent_thenStatusNoContent() throws Exception {
         var res = mockMvc.perform(MockMvcRequestBuilders.put("/api/threads/content")
@@ -75,9 +119,20 @@ class ForumThreadControllerTest {
         res.andExpect(MockMvcResultMatchers.status().isNoContent());
     }
 
+    @Test
+    public void givenVersion_whenUpdateContent_thenPassedToService() throws Exception {
+        var uuid = UUID.randomUUID();
+        var res = mockMvc.perform(MockMvcRequestBuilders.put("/api/threads/content")
+                .param("id", uuid.toString())
+                .param("content", "content")
+                .param("version", "4"));
+        res.andExpect(MockMvcResultMatchers.status().isNoContent());
+        verify(threadService, times(1)).updateContent(uuid, "content", 4L);
+    }
+
     @Test
     public void givenServiceThrows_whenUpdateContent_thenStatusBadRequest() throws Exception {
-        willThrow(new ForumException(ForumExceptions.INVALID_CONTENT)).given(threadService).updateContent(any(), any());
+        willThrow(new ForumException(ForumExceptions.INVALID_CONTENT)).given(threadService).updateContent(any(), any(), any());
         var res = mockMvc.perform(MockMvcRequestBuilders.put("/api/threads/content")
                 .param("id", UUID.randomUUID().toString())
                 .param("content", ""));
@@ -103,11 +158,23 @@ class ForumThreadControllerTest {
 
     @Test
     public void givenServiceNotThrow_whenDeleteThread_thenStatusNoContent() throws Exception {
+        given(threadService.deleteThread(any())).willReturn(new ForumDeletionResponse(UUID.randomUUID(), ForumDeletionStatus.DONE, 1, 1));
         var res = mockMvc.perform(MockMvcRequestBuilders.delete("/api/threads/delete")
                 .param("id", UUID.randomUUID().toString()));
         res.andExpect(MockMvcResultMatchers.status().isNoContent());
     }
 
+    @Test
+    public void givenBackgroundDeletion_whenDeleteThread_thenStatusAccepted() throws Exception {
+        var deletion = new ForumDeletionResponse(UUID.randomUUID(), ForumDeletionStatus.QUEUED, 10_000, 0);
+        given(threadService.deleteThread(any())).willReturn(deletion);
+        var res = mockMvc.perform(MockMvcRequestBuilders.delete("/api/threads/delete")
+                .param("id", UUID.randomUUID().toString()));
+        res.andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.uuid").value(deletion.uuid().toString()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"));
+    }
+
     @Test
     public void givenServiceThrows_whenDeleteThread_thenStatusBadRequest() throws Exception {
         willThrow(new ForumException(ForumExceptions.INVALID_ID)).given(threadService).deleteThread(any());
@@ -3,7 +3,14 @@ package ft.projects.forum.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.exception.ForumUnauthorizedException;
+import ft.projects.forum.model.ForumDeletionResponse;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.model.ForumPageResponse;
 import ft.projects.forum.model.ForumUserRequest;
+import ft.projects.forum.model.ForumUserResponse;
+import ft.projects.forum.model.RefreshTokenRequest;
 import ft.projects.forum.security.filter.JwtFilter;
 import ft.projects.forum.service.ForumUserService;
 import org.junit.jupiter.api.Test;
@@ -16,6 +23,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
 import static org.mockito.BDDMockito.*;
 
 @WebMvcTest(ForumUserController.class)
@@ -52,6 +63,16 @@ class ForumUserControllerTest {
         res.andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    public void givenHashingOverloaded_whenRegister_thenStatusServiceUnavailable() throws Exception {
+        doThrow(new ForumOverloadException(ForumExceptions.PASSWORD_HASHING_OVERLOADED, 1)).when(userService).register(any());
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ForumUserRequest(null, null, null))));
+        res.andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+        res.andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+    }
+
     @Test
     public void whenLogin_thenStatusOk() throws Exception {
         var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/users/login"));
@@ -59,11 +80,57 @@ class ForumUserControllerTest {
     }
 
     @Test
-    public void whenGetUsers_thenStatusOk() throws Exception {
-        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/users"));
+    public void whenRefresh_thenStatusOk() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/users/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh"))));
         res.andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    public void givenServiceThrows_whenRefresh_thenStatusUnauthorized() throws Exception {
+        given(userService.refresh(any())).willThrow(new ForumUnauthorizedException(ForumExceptions.INVALID_REFRESH_TOKEN));
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/users/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh"))));
+        res.andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+
+    @Test
+    public void whenLogout_thenStatusNoContent() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.post("/api/users/logout"));
+        res.andExpect(MockMvcResultMatchers.status().isNoContent());
+        verify(userService, times(1)).logout();
+    }
+
+    @Test
+    public void whenGetUsers_thenStreamedAsArray() throws Exception {
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/users")
+                .param("prefix", "a"));
+        res.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(userService, times(1)).writeUsers(eq("a"), any());
+        verify(userService, never()).getUsers(any(), anyInt(), any());
+    }
+
+    @Test
+    public void givenSize_whenGetUsers_thenFirstPageReturned() throws Exception {
+        given(userService.getUsers(null, 2, "")).willReturn(new ForumPageResponse<>(List.of(new ForumUserResponse(TEST_USERNAME)), "next"));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/users")
+                .param("size", "2"));
+        res.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].username").value(TEST_USERNAME))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("next"));
+        verify(userService, never()).writeUsers(any(), any());
+    }
+
+    @Test
+    public void givenServiceThrows_whenGetUsers_thenStatusBadRequest() throws Exception {
+        given(userService.getUsers(any(), anyInt(), any())).willThrow(new ForumException(ForumExceptions.INVALID_SIZE));
+        var res = mockMvc.perform(MockMvcRequestBuilders.get("/api/users")
+                .param("size", "0"));
+        res.andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     public void givenServiceNotThrow_whenUpdateUsername_thenStatusNoContent() throws Exception {
         var res = mockMvc.perform(MockMvcRequestBuilders.put("/api/users/username")
@@ -96,7 +163,16 @@ class ForumUserControllerTest {
 
     @Test
     public void whenDelete_thenStatusNoContent() throws Exception {
+        given(userService.delete()).willReturn(new ForumDeletionResponse(UUID.randomUUID(), ForumDeletionStatus.DONE, 1, 1));
         var res = mockMvc.perform(MockMvcRequestBuilders.delete("/api/users/delete"));
         res.andExpect(MockMvcResultMatchers.status().isNoContent());
     }
+
+    @Test
+    public void givenBackgroundDeletion_whenDelete_thenStatusAccepted() throws Exception {
+        given(userService.delete()).willReturn(new ForumDeletionResponse(UUID.randomUUID(), ForumDeletionStatus.RUNNING, 10_000, 1_000));
+        var res = mockMvc.perform(MockMvcRequestBuilders.delete("/api/users/delete"));
+        res.andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted").value(1_000));
+    }
 }
\ No newline at end of file
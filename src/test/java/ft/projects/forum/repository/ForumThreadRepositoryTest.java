@@ -0,0 +1,291 @@
+package ft.projects.forum.repository;
+
+import ft.projects.forum.AbstractIntegrationTest;
+import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumUser;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ForumThreadRepositoryTest extends AbstractIntegrationTest {
+
+    private final ForumThreadRepository threadRepository;
+    private final ForumUserRepository userRepository;
+    private final ForumCommentRepository commentRepository;
+    private final EntityManager entityManager;
+    private final Statistics statistics;
+
+    @Autowired
+    public ForumThreadRepositoryTest(ForumThreadRepository threadRepository, ForumUserRepository userRepository, ForumCommentRepository commentRepository, EntityManager entityManager) {
+        this.threadRepository = threadRepository;
+        this.userRepository = userRepository;
+        this.commentRepository = commentRepository;
+        this.entityManager = entityManager;
+        this.statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @BeforeEach
+    public void setup() {
+        commentRepository.deleteAllInBatch();
+        threadRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        var publishedAt = Instant.now();
+        for(int u = 0; u < 10; u++) {
+            var user = userRepository.save(ForumUser.builder()
+                    .username(TEST_USERNAME + u)
+                    .build()
+            );
+            for(int t = 0; t < 5; t++) {
+                threadRepository.save(ForumThread.builder()
+                        .user(user)
+                        .title(TEST_THREAD_TITLE)
+                        .content(TEST_THREAD_CONTENT)
+                        .excerpt(ForumThread.excerptOf(TEST_THREAD_CONTENT))
+                        .publishedAt(publishedAt.minusSeconds(u * 5L + t))
+                        .build()
+                );
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void givenAnyPageSize_whenFindViews_thenSingleStatement() {
+        for(var size : new int[] { 5, 20, 50 }) {
+            statistics.clear();
+            var views = threadRepository.findViews(PageRequest.of(0, size, Sort.by("publishedAt", "uuid").descending()));
+            assertEquals(size, views.size());
+            assertTrue(views.stream().allMatch(v -> v.creator().startsWith(TEST_USERNAME)));
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        }
+    }
+
+    @Test
+    public void givenAnyPageSize_whenFindLatestViews_thenSingleStatement() {
+        for(var size : new int[] { 5, 20, 50 }) {
+            statistics.clear();
+            var views = threadRepository.findLatestViews(Limit.of(size));
+            assertEquals(size, views.size());
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        }
+    }
+
+    @Test
+    public void givenThread_whenFindStatusById_thenSingleStatementWithoutEntityLoad() {
+        var thread = threadRepository.findAll().get(0);
+        entityManager.clear();
+        statistics.clear();
+        var status = threadRepository.findStatusById(thread.getUuid()).get();
+        assertTrue(status.exists());
+        assertFalse(status.closed());
+        assertEquals(thread.getUser().getUuid(), status.ownerId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(threadRepository.findStatusById(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    public void givenOwnerAndVersion_whenUpdateContent_thenSingleGuardedStatement() {
+        var thread = threadRepository.findAll().get(0);
+        var ownerId = thread.getUser().getUuid();
+        entityManager.clear();
+        statistics.clear();
+        assertEquals(0, threadRepository.updateContent(thread.getUuid(), UUID.randomUUID(), "other", "other", null));
+        assertEquals(1, threadRepository.updateContent(thread.getUuid(), ownerId, "first", "first", thread.getVersion()));
+        assertEquals(0, threadRepository.updateContent(thread.getUuid(), ownerId, "stale", "stale", thread.getVersion()));
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        var updated = threadRepository.findById(thread.getUuid()).get();
+        assertEquals("first", updated.getContent());
+        assertEquals(thread.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    public void givenCommentWrites_whenIncrementAndDecrement_thenCountersMaintained() {
+        var latest = threadRepository.findLatestViews(Limit.of(1)).get(0);
+        var later = latest.publishedAt().plusSeconds(10);
+        assertEquals(1, threadRepository.incrementCommentCount(latest.uuid(), 1, later));
+        assertEquals(1, threadRepository.incrementCommentCount(latest.uuid(), 1, latest.publishedAt().plusSeconds(5)));
+        assertEquals(1, threadRepository.decrementCommentCount(latest.uuid()));
+        entityManager.clear();
+        var thread = threadRepository.findById(latest.uuid()).get();
+        assertEquals(1, thread.getCommentCount());
+        assertEquals(later, thread.getLastActivityAt());
+        assertEquals(1, threadRepository.decrementCommentCount(latest.uuid()));
+        assertEquals(0, threadRepository.decrementCommentCount(latest.uuid()));
+    }
+
+    @Test
+    public void givenDriftedCounters_whenReconcile_thenCountersMatchComments() {
+        var latest = threadRepository.findLatestViews(Limit.of(1)).get(0);
+        var thread = threadRepository.getReferenceById(latest.uuid());
+        var user = userRepository.findByUsername(TEST_USERNAME + 0).get();
+        entityManager.persist(ForumComment.builder()
+                .thread(thread)
+                .user(user)
+                .content(TEST_COMMENT_CONTENT)
+                .publishedAt(latest.publishedAt().plusSeconds(1))
+                .build()
+        );
+        threadRepository.incrementCommentCount(latest.uuid(), 2, latest.publishedAt());
+        entityManager.flush();
+        var threadIds = threadRepository.findIdsAfter(new UUID(0, 0), Limit.of(100));
+        assertEquals(50, threadIds.size());
+        assertEquals(50, threadRepository.reconcileCommentCounters(threadIds));
+        entityManager.clear();
+        var reconciled = threadRepository.findById(latest.uuid()).get();
+        assertEquals(1, reconciled.getCommentCount());
+        assertEquals(latest.publishedAt().plusSeconds(1), reconciled.getLastActivityAt());
+        assertEquals(0, threadRepository.reconcileCommentCounters(threadIds));
+    }
+
+    @Test
+    public void givenComments_whenFindLatestSummaries_thenCountsWithoutContent() {
+        var latest = threadRepository.findLatestViews(Limit.of(1)).get(0);
+        var thread = threadRepository.getReferenceById(latest.uuid());
+        var user = userRepository.findByUsername(TEST_USERNAME + 0).get();
+        for(int i = 0; i < 3; i++) {
+            entityManager.persist(ForumComment.builder()
+                    .thread(thread)
+                    .user(user)
+                    .content(TEST_COMMENT_CONTENT)
+                    .publishedAt(latest.publishedAt().plusSeconds(i + 1))
+                    .build()
+            );
+        }
+        threadRepository.recountComments(List.of(latest.uuid()));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        var summaries = threadRepository.findLatestSummaries(Limit.of(20));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(20, summaries.size());
+        assertEquals(3, summaries.get(0).commentCount());
+        assertEquals(latest.publishedAt().plusSeconds(3), summaries.get(0).lastActivityAt());
+        assertEquals(TEST_THREAD_CONTENT, summaries.get(0).excerpt());
+        assertEquals(0, summaries.get(1).commentCount());
+        assertEquals(summaries.get(1).publishedAt(), summaries.get(1).lastActivityAt());
+    }
+
+    @Test
+    public void givenCommentsWithSharedTimestamp_whenFindViewsByThreadAfter_thenEveryCommentOnceInOrder() {
+        var latest = threadRepository.findLatestViews(Limit.of(1)).get(0);
+        var thread = threadRepository.getReferenceById(latest.uuid());
+        var user = userRepository.findByUsername(TEST_USERNAME + 0).get();
+        for(int i = 0; i < 7; i++) {
+            entityManager.persist(ForumComment.builder()
+                    .thread(thread)
+                    .user(user)
+                    .content(TEST_COMMENT_CONTENT)
+                    .publishedAt(latest.publishedAt().plusSeconds(i / 3))
+                    .build()
+            );
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        var page = commentRepository.findViewsByThread(latest.uuid(), Limit.of(3));
+        var seen = new ArrayList<>(page);
+        while(page.size() == 3) {
+            var last = page.get(2);
+            page = commentRepository.findViewsByThreadAfter(latest.uuid(), last.publishedAt(), last.uuid(), Limit.of(3));
+            seen.addAll(page);
+        }
+        assertEquals(7, seen.stream().map(c -> c.uuid()).distinct().count());
+        assertEquals(seen.stream().map(c -> c.publishedAt()).sorted().toList(), seen.stream().map(c -> c.publishedAt()).toList());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void givenThreadWithManyComments_whenLoadDetail_thenTwoStatementsWithoutEntityLoad() {
+        var latest = threadRepository.findLatestViews(Limit.of(1)).get(0);
+        var thread = threadRepository.getReferenceById(latest.uuid());
+        var user = userRepository.findByUsername(TEST_USERNAME + 1).get();
+        for(int i = 0; i < 50; i++) {
+            entityManager.persist(ForumComment.builder()
+                    .thread(thread)
+                    .user(user)
+                    .content(TEST_COMMENT_CONTENT)
+                    .publishedAt(latest.publishedAt().plusSeconds(i + 1))
+                    .build()
+            );
+        }
+        threadRepository.incrementCommentCount(latest.uuid(), 50, latest.publishedAt().plusSeconds(50));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        var detail = threadRepository.findDetailById(latest.uuid()).get();
+        var comments = commentRepository.findViewsByThread(latest.uuid(), Limit.of(21));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(TEST_USERNAME + 0, detail.creator());
+        assertEquals(50, detail.commentCount());
+        assertEquals(21, comments.size());
+        assertEquals(TEST_USERNAME + 1, comments.get(0).creator());
+    }
+
+    @Test
+    public void givenUserWithComments_whenBulkDelete_thenRowsGoneAndOtherCountersRecounted() {
+        var author = userRepository.findByUsername(TEST_USERNAME + 0).get();
+        var other = threadRepository.findAll().stream()
+                .filter(t -> !t.getUser().getUuid().equals(author.getUuid()))
+                .findFirst()
+                .get();
+        entityManager.persist(ForumComment.builder()
+                .thread(other)
+                .user(author)
+                .content(TEST_COMMENT_CONTENT)
+                .publishedAt(Instant.now())
+                .build()
+        );
+        threadRepository.incrementCommentCount(other.getUuid(), 1, Instant.now());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(1, commentRepository.countByUserOrThreadOwner(author.getUuid()));
+        var commentIds = commentRepository.findIdsByUser(author.getUuid(), Limit.of(10));
+        var threadIds = commentRepository.findThreadIdsByUuids(commentIds);
+        assertEquals(1, commentRepository.deleteByUuids(commentIds));
+        assertEquals(1, threadRepository.recountComments(threadIds));
+        var ownThreadIds = threadRepository.findIdsByUser(author.getUuid(), Limit.of(10));
+        assertEquals(5, ownThreadIds.size());
+        assertEquals(0, commentRepository.deleteByThreads(ownThreadIds));
+        assertEquals(5, threadRepository.deleteByUuids(ownThreadIds));
+        assertEquals(1, userRepository.deleteByUuid(author.getUuid()));
+        entityManager.clear();
+        assertEquals(0, threadRepository.findById(other.getUuid()).get().getCommentCount());
+        assertEquals(45, threadRepository.count());
+    }
+
+    @Test
+    public void givenCursor_whenFindViewsBefore_thenSeekPastCursor() {
+        var first = threadRepository.findLatestViews(Limit.of(10));
+        var last = first.get(9);
+        var next = threadRepository.findViewsBefore(last.publishedAt(), last.uuid(), Limit.of(10));
+        assertEquals(10, next.size());
+        assertTrue(next.stream().noneMatch(v -> first.stream().anyMatch(f -> f.uuid().equals(v.uuid()))));
+        assertTrue(next.get(0).publishedAt().compareTo(last.publishedAt()) <= 0);
+    }
+}
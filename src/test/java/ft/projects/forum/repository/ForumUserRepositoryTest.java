@@ -7,6 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static ft.projects.forum.Constants.TEST_USERNAME;
@@ -39,6 +46,60 @@ class ForumUserRepositoryTest extends AbstractIntegrationTest {
         assertEquals(user.getUsername(), res.get().getUsername());
     }
 
+    @Test
+    public void givenUsers_whenFindViewsAfter_thenPrefixFilteredInUsernameOrder() {
+        for(var username : List.of("bob", "alice", "anna", "a_z", "carol")) {
+            userRepository.save(ForumUser.builder().username(username).password("hash").build());
+        }
+        var first = userRepository.findViewsAfter("a%", "", new UUID(0, 0), Limit.of(2));
+        assertEquals(List.of("a_z", "alice"), first.stream().map(u -> u.username()).toList());
+        var second = userRepository.findViewsAfter("a%", "alice", first.get(1).uuid(), Limit.of(2));
+        assertEquals(List.of("anna"), second.stream().map(u -> u.username()).toList());
+        assertEquals(1, userRepository.findViewsAfter("a!_%", "", new UUID(0, 0), Limit.of(10)).size());
+    }
+
+    @Test
+    public void givenDuplicateUsernamesOnPageBoundary_whenFindViewsAfter_thenNoneSkipped() {
+        for(int i = 0; i < 3; i++) {
+            userRepository.save(ForumUser.builder().username("alice").password("hash").build());
+        }
+        var first = userRepository.findViewsAfter("%", "", new UUID(0, 0), Limit.of(2));
+        var second = userRepository.findViewsAfter("%", first.get(1).username(), first.get(1).uuid(), Limit.of(2));
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertFalse(first.contains(second.get(0)));
+    }
+
+    @Test
+    public void givenTombstonedUser_whenFindViewsAfter_thenHidden() {
+        userRepository.save(ForumUser.builder().username("deleted-" + UUID.randomUUID()).build());
+        userRepository.save(ForumUser.builder().username(TEST_USERNAME).password("hash").build());
+        var res = userRepository.findViewsAfter("%", "", new UUID(0, 0), Limit.of(10));
+        assertEquals(List.of(TEST_USERNAME), res.stream().map(u -> u.username()).toList());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void givenUsers_whenForEachResponse_thenAllStreamed() {
+        for(var username : List.of("bob", "alice", "carol")) {
+            userRepository.save(ForumUser.builder().username(username).password("hash").build());
+        }
+        userRepository.save(ForumUser.builder().username("deleted-" + UUID.randomUUID()).build());
+        var usernames = new ArrayList<String>();
+        userRepository.forEachResponse("%", u -> usernames.add(u.username()));
+        assertEquals(List.of("alice", "bob", "carol"), usernames);
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void givenTombstonedUser_whenFindTombstonedIds_thenOnlyTombstonedReturned() {
+        var user = userRepository.save(ForumUser.builder().username(TEST_USERNAME).password("hash").build());
+        var other = userRepository.save(ForumUser.builder().username("deleted-name").password("hash").build());
+        assertEquals(1, userRepository.tombstone(user.getUuid(), "deleted-" + user.getUuid()));
+        assertEquals(List.of(user.getUuid()), userRepository.findTombstonedIds());
+        assertNotEquals(List.of(other.getUuid()), userRepository.findTombstonedIds());
+    }
+
     @Test
     public void givenUserNotExist_whenFindByUsername_thenUserAbsent() {
         var res = userRepository.findByUsername(TEST_USERNAME);
@@ -0,0 +1,83 @@
+package ft.projects.forum.security.crypto;
+
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final PasswordEncoder delegate = mock(PasswordEncoder.class);
+    private final BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 5_000, 3);
+
+    @AfterEach
+    public void shutdown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    public void givenIdleExecutor_whenEncodeAndMatches_thenDelegated() {
+        given(delegate.encode("password")).willReturn("encoded");
+        given(delegate.matches("password", "encoded")).willReturn(true);
+        assertEquals("encoded", passwordEncoder.encode("password"));
+        assertTrue(passwordEncoder.matches("password", "encoded"));
+        assertEquals(2, passwordEncoder.getHashes());
+        assertEquals(0, passwordEncoder.getRejections());
+    }
+
+    @Test
+    public void givenDelegateThrows_whenEncode_thenSameExceptionThrown() {
+        given(delegate.encode(any())).willThrow(new IllegalArgumentException());
+        assertThrows(IllegalArgumentException.class, () -> {
+            passwordEncoder.encode("password");
+        });
+    }
+
+    @Test
+    public void givenSaturatedExecutor_whenEncode_thenRejectedWithRetryAfter() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        given(delegate.encode("slow")).willAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "encoded";
+        });
+        var running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("slow"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        var queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("slow"));
+        while(passwordEncoder.getQueueSize() == 0) Thread.onSpinWait();
+        var e = assertThrows(ForumOverloadException.class, () -> {
+            passwordEncoder.encode("slow");
+        });
+        assertEquals(ForumExceptions.PASSWORD_HASHING_OVERLOADED.name(), e.getMessage());
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1, passwordEncoder.getRejections());
+        release.countDown();
+        assertEquals("encoded", running.get(5, TimeUnit.SECONDS));
+        assertEquals("encoded", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void givenSlowHash_whenTimeoutElapses_thenRejected() {
+        var slowEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 50, 1);
+        var release = new CountDownLatch(1);
+        given(delegate.matches(any(), any())).willAnswer(invocation -> release.await(5, TimeUnit.SECONDS));
+        try {
+            assertThrows(ForumOverloadException.class, () -> {
+                slowEncoder.matches("password", "encoded");
+            });
+            assertEquals(1, slowEncoder.getRejections());
+        } finally {
+            release.countDown();
+            slowEncoder.shutdown();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.MutableClock;
+import ft.projects.forum.model.ForumRole;
+import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumPrincipalServiceTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final long TTL = 60_000L;
+
+    private final ForumUserRepository userRepository = mock(ForumUserRepository.class);
+    private final MutableClock clock = new MutableClock();
+    private final ForumPrincipalService principalService = new ForumPrincipalServiceImpl(userRepository, clock, 100, TTL, TTL, false);
+    private final ForumUser user = ForumUser.builder()
+            .uuid(UUID.randomUUID())
+            .username(TEST_USERNAME)
+            .timezone(TEST_TIMEZONE)
+            .role(ForumRole.ROLE_USER)
+            .build();
+
+    @BeforeEach
+    public void setup() {
+        clock.setMillis(NOW);
+        given(userRepository.findByUsername(TEST_USERNAME)).willReturn(Optional.of(user));
+    }
+
+    @Test
+    public void givenRepeatedLookups_whenGetPrincipal_thenLoadedOnce() {
+        var first = principalService.getPrincipal(TEST_USERNAME);
+        var second = principalService.getPrincipal(TEST_USERNAME);
+        verify(userRepository, times(1)).findByUsername(TEST_USERNAME);
+        assertEquals(first, second);
+        assertEquals(user.getUuid(), first.uuid());
+        assertEquals(ForumRole.ROLE_USER, first.role());
+        assertEquals(1, principalService.getHits());
+        assertEquals(1, principalService.getMisses());
+    }
+
+    @Test
+    public void givenTtlPassed_whenGetPrincipal_thenReloaded() {
+        principalService.getPrincipal(TEST_USERNAME);
+        clock.setMillis(NOW + TTL);
+        principalService.getPrincipal(TEST_USERNAME);
+        verify(userRepository, times(2)).findByUsername(TEST_USERNAME);
+    }
+
+    @Test
+    public void givenInvalidated_whenGetPrincipal_thenReloaded() {
+        principalService.getPrincipal(TEST_USERNAME);
+        principalService.invalidate(user.getUuid(), TEST_USERNAME);
+        principalService.getPrincipal(TEST_USERNAME);
+        verify(userRepository, times(2)).findByUsername(TEST_USERNAME);
+    }
+
+    @Test
+    public void givenStatelessTokensAndMatchingVersion_whenGetPrincipal_thenClaimsUsed() {
+        var statelessService = new ForumPrincipalServiceImpl(userRepository, clock, 100, TTL, TTL, true);
+        given(userRepository.findTokenVersionByUuid(user.getUuid())).willReturn(Optional.of(0L));
+        var principal = ForumPrincipal.from(user);
+        var res = statelessService.getPrincipal(token(principal));
+        statelessService.getPrincipal(token(principal));
+        assertEquals(principal, res);
+        verify(userRepository, never()).findByUsername(any());
+        verify(userRepository, times(1)).findTokenVersionByUuid(user.getUuid());
+    }
+
+    @Test
+    public void givenTtlAboveRefreshInterval_whenVersionBumpedElsewhere_thenStaleWithinRefreshInterval() {
+        var statelessService = new ForumPrincipalServiceImpl(userRepository, clock, 100, TTL, 5_000, true);
+        given(userRepository.findTokenVersionByUuid(user.getUuid())).willReturn(Optional.of(0L)).willReturn(Optional.of(1L));
+        var principal = ForumPrincipal.from(user);
+        statelessService.getPrincipal(token(principal));
+        clock.setMillis(NOW + 5_000);
+        assertThrows(CredentialsExpiredException.class, () -> {
+            statelessService.getPrincipal(token(principal));
+        });
+    }
+
+    @Test
+    public void givenStatelessTokensAndStaleVersion_whenGetPrincipal_thenThrow() {
+        var statelessService = new ForumPrincipalServiceImpl(userRepository, clock, 100, TTL, TTL, true);
+        given(userRepository.findTokenVersionByUuid(user.getUuid())).willReturn(Optional.of(1L));
+        assertThrows(CredentialsExpiredException.class, () -> {
+            statelessService.getPrincipal(token(ForumPrincipal.from(user)));
+        });
+    }
+
+    @Test
+    public void givenStatefulTokens_whenGetPrincipal_thenClaimsIgnored() {
+        var claims = new ForumPrincipal(user.getUuid(), TEST_USERNAME, ForumRole.ROLE_ADMIN, TEST_TIMEZONE, 0);
+        var res = principalService.getPrincipal(token(claims));
+        assertEquals(ForumRole.ROLE_USER, res.role());
+        verify(userRepository, times(1)).findByUsername(TEST_USERNAME);
+    }
+
+    @Test
+    public void givenStaleVersion_whenGetPrincipal_thenThrow() {
+        var claims = new ForumPrincipal(user.getUuid(), TEST_USERNAME, ForumRole.ROLE_USER, TEST_TIMEZONE, 1);
+        assertThrows(CredentialsExpiredException.class, () -> {
+            principalService.getPrincipal(token(claims));
+        });
+    }
+
+    @Test
+    public void givenTokenWithoutClaims_whenGetPrincipal_thenThrow() {
+        assertThrows(CredentialsExpiredException.class, () -> {
+            principalService.getPrincipal(token(null));
+        });
+    }
+
+    @Test
+    public void givenUserNotExist_whenGetPrincipal_thenThrow() {
+        given(userRepository.findByUsername(ADMIN_USERNAME)).willReturn(Optional.empty());
+        assertThrows(UsernameNotFoundException.class, () -> {
+            principalService.getPrincipal(ADMIN_USERNAME);
+        });
+    }
+
+    private VerifiedToken token(ForumPrincipal principal) {
+        return new VerifiedToken("jwt", null, TEST_USERNAME, null, null, principal);
+    }
+}
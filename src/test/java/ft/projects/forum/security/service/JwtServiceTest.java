@@ -0,0 +1,73 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.MutableClock;
+import ft.projects.forum.model.ForumRole;
+import ft.projects.forum.security.model.ForumPrincipal;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class JwtServiceTest {
+
+    private static final String SIGNING_KEY = "771d02d0825052bb9100e8fa5cea671dd071271c1620d938f286fbbbbb50f213";
+    private static final long NOW = 1_700_000_000_000L;
+    private static final ForumPrincipal PRINCIPAL = new ForumPrincipal(UUID.randomUUID(), TEST_USERNAME, ForumRole.ROLE_USER, TEST_TIMEZONE, 0);
+
+    private final MutableClock clock = new MutableClock();
+    private final TokenRevocationService revocationService = mock(TokenRevocationService.class);
+    private final JwtService jwtService = new JwtServiceImpl(revocationService, clock, SIGNING_KEY, 600_000L, 100);
+
+    @Test
+    public void givenIssuedToken_whenVerify_thenSameClaims() {
+        clock.setMillis(NOW);
+        var issued = jwtService.getToken(PRINCIPAL);
+        var res = jwtService.verify(issued.token());
+        assertEquals(TEST_USERNAME, res.subject());
+        assertEquals(issued.expiration(), res.expiration());
+        assertEquals(issued.id(), res.id());
+        assertEquals(issued.digest(), res.digest());
+    }
+
+    @Test
+    public void givenIssuedToken_whenVerifyUncached_thenPrincipalFromClaims() {
+        clock.setMillis(NOW);
+        var issuer = new JwtServiceImpl(revocationService, clock, SIGNING_KEY, 600_000L, 100);
+        var res = jwtService.verify(issuer.getToken(PRINCIPAL).token());
+        assertEquals(PRINCIPAL, res.principal());
+    }
+
+    @Test
+    public void givenTokenSignedWithOtherKey_whenVerify_thenThrow() {
+        clock.setMillis(NOW);
+        var other = new JwtServiceImpl(revocationService, clock, SIGNING_KEY.replace('7', '8'), 600_000L, 100);
+        var token = other.getToken(PRINCIPAL).token();
+        assertThrows(JwtException.class, () -> {
+            jwtService.verify(token);
+        });
+    }
+
+    @Test
+    public void givenExpiredToken_whenVerify_thenThrow() {
+        clock.setMillis(NOW);
+        var token = jwtService.getToken(PRINCIPAL).token();
+        clock.setMillis(NOW + 700_000L);
+        assertThrows(JwtException.class, () -> {
+            jwtService.verify(token);
+        });
+    }
+
+    @Test
+    public void givenCurrentToken_whenInvalidate_thenRevoked() {
+        clock.setMillis(NOW);
+        var token = jwtService.getToken(PRINCIPAL);
+        jwtService.setToken(token);
+        jwtService.invalidate();
+        jwtService.clearToken();
+        verify(revocationService, times(1)).revoke(token.digest(), token.expiration());
+    }
+}
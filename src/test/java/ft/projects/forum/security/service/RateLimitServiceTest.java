@@ -0,0 +1,102 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.MutableClock;
+import ft.projects.forum.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitServiceTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final RateLimitService rateLimitService = new RateLimitServiceImpl(new RateLimitProperties(60_000, List.of(
+            new RateLimitProperties.Group("writes", List.of("POST"), List.of("/api/comments/**"), 5, 1_000),
+            new RateLimitProperties.Group("reads", null, List.of("/api/**"), 100, 1_000)
+    )), clock);
+
+    private MockHttpServletRequest request(String method, String path) {
+        var request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    @Test
+    public void givenBurstAtCapacity_whenTryAcquire_thenNextRejectedWithRetryAfter() {
+        clock.setMillis(NOW);
+        var request = request("POST", "/api/comments/create");
+        for(int i = 0; i < 5; i++) assertEquals(0, rateLimitService.tryAcquire(request, "user"));
+        assertEquals(200, rateLimitService.tryAcquire(request, "user"));
+        assertEquals(1, rateLimitService.getRejections());
+        clock.setMillis(NOW + 200);
+        assertEquals(0, rateLimitService.tryAcquire(request, "user"));
+        assertTrue(rateLimitService.tryAcquire(request, "user") > 0);
+    }
+
+    @Test
+    public void givenDifferentKeys_whenTryAcquire_thenBucketsIndependent() {
+        clock.setMillis(NOW);
+        var request = request("POST", "/api/comments/create");
+        for(int i = 0; i < 5; i++) assertEquals(0, rateLimitService.tryAcquire(request, "first"));
+        assertTrue(rateLimitService.tryAcquire(request, "first") > 0);
+        assertEquals(0, rateLimitService.tryAcquire(request, "second"));
+    }
+
+    @Test
+    public void givenRouteGroups_whenTryAcquire_thenFirstMatchingGroupApplies() {
+        clock.setMillis(NOW);
+        for(int i = 0; i < 5; i++) rateLimitService.tryAcquire(request("POST", "/api/comments/create"), "user");
+        assertTrue(rateLimitService.tryAcquire(request("POST", "/api/comments/create"), "user") > 0);
+        assertEquals(0, rateLimitService.tryAcquire(request("GET", "/api/comments"), "user"));
+        for(int i = 0; i < 1_000; i++) assertEquals(0, rateLimitService.tryAcquire(request("GET", "/swagger-ui.html"), "user"));
+    }
+
+    @Test
+    public void givenRefilledBuckets_whenEvictIdle_thenRemoved() {
+        clock.setMillis(NOW);
+        var request = request("POST", "/api/comments/create");
+        rateLimitService.tryAcquire(request, "first");
+        for(int i = 0; i < 5; i++) rateLimitService.tryAcquire(request, "second");
+        assertEquals(2, rateLimitService.getSize());
+        clock.setMillis(NOW + 200);
+        rateLimitService.evictIdle();
+        assertEquals(1, rateLimitService.getSize());
+        clock.setMillis(NOW + 1_000);
+        rateLimitService.evictIdle();
+        assertEquals(0, rateLimitService.getSize());
+    }
+
+    @Test
+    public void givenConcurrentRequests_whenTryAcquire_thenExactlyCapacityAdmitted() throws Exception {
+        clock.setMillis(NOW);
+        var request = request("GET", "/api/threads");
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var admitted = new AtomicInteger();
+        var futures = new ArrayList<Future<?>>();
+        for(int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for(int i = 0; i < 1_000; i++) {
+                    if(rateLimitService.tryAcquire(request, "user") == 0) admitted.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(var future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(100, admitted.get());
+    }
+}
@@ -0,0 +1,118 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.MutableClock;
+import ft.projects.forum.exception.ForumUnauthorizedException;
+import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.model.RefreshToken;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.repository.RefreshTokenRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.TokenDigest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class RefreshTokenServiceTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final ForumUserRepository userRepository = mock(ForumUserRepository.class);
+    private final RefreshTokenService refreshTokenService = new RefreshTokenServiceImpl(refreshTokenRepository, userRepository, clock, 10_000);
+    private final ForumUser user = ForumUser.builder()
+            .uuid(UUID.randomUUID())
+            .username(TEST_USERNAME)
+            .timezone(TEST_TIMEZONE)
+            .tokenVersion(3)
+            .build();
+
+    private RefreshToken stored(String token, long tokenVersion, long expiresAt) {
+        var digest = TokenDigest.of(token);
+        var stored = RefreshToken.builder()
+                .id(1L)
+                .digestHigh(digest.high())
+                .digestLow(digest.low())
+                .userUuid(user.getUuid())
+                .tokenVersion(tokenVersion)
+                .expiresAt(Instant.ofEpochMilli(expiresAt))
+                .build();
+        given(refreshTokenRepository.findByDigestHighAndDigestLow(digest.high(), digest.low())).willReturn(Optional.of(stored));
+        return stored;
+    }
+
+    @Test
+    public void whenIssue_thenOnlyDigestStored() {
+        clock.setMillis(NOW);
+        var issued = refreshTokenService.issue(ForumPrincipal.from(user));
+        var digest = TokenDigest.of(issued.token());
+        assertEquals(Instant.ofEpochMilli(NOW + 10_000), issued.expiration());
+        verify(refreshTokenRepository, times(1)).save(argThat(r -> r.getDigestHigh() == digest.high()
+                && r.getDigestLow() == digest.low()
+                && r.getUserUuid().equals(user.getUuid())
+                && r.getTokenVersion() == 3));
+    }
+
+    @Test
+    public void givenValidToken_whenRotate_thenOldDeletedAndNewIssued() {
+        clock.setMillis(NOW);
+        stored("refresh", 3, NOW + 1000);
+        given(refreshTokenRepository.deleteIfPresent(1L)).willReturn(1);
+        given(userRepository.findById(user.getUuid())).willReturn(Optional.of(user));
+        var rotation = refreshTokenService.rotate("refresh");
+        assertEquals(ForumPrincipal.from(user), rotation.principal());
+        assertNotEquals("refresh", rotation.refreshToken().token());
+        verify(refreshTokenRepository, times(1)).deleteIfPresent(1L);
+        verify(refreshTokenRepository, times(1)).save(any());
+    }
+
+    @Test
+    public void givenAlreadyRotatedToken_whenRotate_thenThrow() {
+        clock.setMillis(NOW);
+        stored("refresh", 3, NOW + 1000);
+        given(refreshTokenRepository.deleteIfPresent(1L)).willReturn(0);
+        assertThrows(ForumUnauthorizedException.class, () -> {
+            refreshTokenService.rotate("refresh");
+        });
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenExpiredToken_whenRotate_thenThrow() {
+        clock.setMillis(NOW);
+        stored("refresh", 3, NOW);
+        given(refreshTokenRepository.deleteIfPresent(1L)).willReturn(1);
+        assertThrows(ForumUnauthorizedException.class, () -> {
+            refreshTokenService.rotate("refresh");
+        });
+    }
+
+    @Test
+    public void givenStaleTokenVersion_whenRotate_thenThrow() {
+        clock.setMillis(NOW);
+        stored("refresh", 2, NOW + 1000);
+        given(refreshTokenRepository.deleteIfPresent(1L)).willReturn(1);
+        given(userRepository.findById(user.getUuid())).willReturn(Optional.of(user));
+        assertThrows(ForumUnauthorizedException.class, () -> {
+            refreshTokenService.rotate("refresh");
+        });
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenUnknownToken_whenRotate_thenThrow() {
+        given(refreshTokenRepository.findByDigestHighAndDigestLow(anyLong(), anyLong())).willReturn(Optional.empty());
+        assertThrows(ForumUnauthorizedException.class, () -> {
+            refreshTokenService.rotate("unknown");
+        });
+        assertThrows(ForumUnauthorizedException.class, () -> {
+            refreshTokenService.rotate(null);
+        });
+    }
+}
@@ -1,18 +1,32 @@
 package ft.projects.forum.security.service;
 
+import ft.projects.forum.model.ForumRole;
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.model.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
+import static ft.projects.forum.Constants.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
 
 class SecurityContextServiceTest {
 
-    private final SecurityContextService contextService = new SecurityContextServiceImpl();
+    private final ForumUserRepository userRepository = mock(ForumUserRepository.class);
+    private final SecurityContextService contextService = new SecurityContextServiceImpl(userRepository);
+
+    @AfterEach
+    public void clear() {
+        SecurityContextHolder.clearContext();
+    }
 
     @Test
     public void givenValidAuthAndPrincipal_whenGetUserFromContext_thenUserReturned() {
@@ -23,6 +37,57 @@ class SecurityContextServiceTest {
         var res = contextService.getUserFromContext();
         assertNotNull(res);
         assertEquals(user, res);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    public void givenForumPrincipal_whenGetUserFromContext_thenUserLoaded() {
+        var user = ForumUser.builder()
+                .uuid(UUID.randomUUID())
+                .username(TEST_USERNAME)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                ForumPrincipal.from(user), null, List.of()
+        ));
+        given(userRepository.findById(user.getUuid())).willReturn(Optional.of(user));
+        var res = contextService.getUserFromContext();
+        assertEquals(user, res);
+    }
+
+    @Test
+    public void givenForumPrincipal_whenGetUserReferenceFromContext_thenReferenceReturned() {
+        var principal = new ForumPrincipal(UUID.randomUUID(), TEST_USERNAME, ForumRole.ROLE_USER, TEST_TIMEZONE, 0);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of()
+        ));
+        var reference = new ForumUser();
+        given(userRepository.getReferenceById(principal.uuid())).willReturn(reference);
+        assertEquals(reference, contextService.getUserReferenceFromContext());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    public void givenForumPrincipal_whenGetPrincipalFromContext_thenPrincipalReturned() {
+        var principal = new ForumPrincipal(UUID.randomUUID(), TEST_USERNAME, ForumRole.ROLE_USER, TEST_TIMEZONE, 0);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of()
+        ));
+        assertEquals(principal, contextService.getPrincipalFromContext());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    public void givenUserDetails_whenGetPrincipalFromContext_thenPrincipalReturned() {
+        var user = ForumUser.builder()
+                .username(TEST_USERNAME)
+                .timezone(TEST_TIMEZONE)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(user), null, List.of()
+        ));
+        var res = contextService.getPrincipalFromContext();
+        assertEquals(TEST_USERNAME, res.username());
+        assertEquals(TEST_TIMEZONE, res.timezone());
     }
 
     @Test
@@ -41,4 +106,4 @@ class SecurityContextServiceTest {
             contextService.getUserFromContext();
         });
     }
-}
\ No newline at end of file
+}
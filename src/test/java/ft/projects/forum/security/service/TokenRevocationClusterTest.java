@@ -0,0 +1,78 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.AbstractIntegrationTest;
+import ft.projects.forum.ForumApplication;
+import ft.projects.forum.security.model.TokenDigest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationClusterTest extends AbstractIntegrationTest {
+
+    private static ConfigurableApplicationContext firstNode;
+    private static ConfigurableApplicationContext secondNode;
+
+    @BeforeAll
+    public static void startNodes() {
+        firstNode = startNode();
+        secondNode = startNode();
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        firstNode.close();
+        secondNode.close();
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(ForumApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + mySQLContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + mySQLContainer.getUsername(),
+                        "spring.datasource.password=" + mySQLContainer.getPassword(),
+                        "revocation-refresh-interval=100"
+                )
+                .run();
+    }
+
+    private static void awaitRevoked(TokenRevocationService revocationService, TokenDigest digest, boolean expected) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5_000;
+        while(revocationService.isRevoked(digest) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, revocationService.isRevoked(digest));
+    }
+
+    @Test
+    public void givenTokenRevokedOnFirstNode_whenSecondNodeRefreshes_thenRevokedOnBoth() throws InterruptedException {
+        var first = firstNode.getBean(TokenRevocationService.class);
+        var second = secondNode.getBean(TokenRevocationService.class);
+        var digest = TokenDigest.of(UUID.randomUUID().toString());
+        assertFalse(second.isRevoked(digest));
+        first.revoke(digest, Instant.now().plusSeconds(60));
+        assertTrue(first.isRevoked(digest));
+        awaitRevoked(second, digest, true);
+    }
+
+    @Test
+    public void givenTokenExpired_whenPurged_thenForgottenOnBothNodes() throws InterruptedException {
+        var first = firstNode.getBean(TokenRevocationService.class);
+        var second = secondNode.getBean(TokenRevocationService.class);
+        var digest = TokenDigest.of(UUID.randomUUID().toString());
+        first.revoke(digest, Instant.now().plusSeconds(1));
+        awaitRevoked(second, digest, true);
+        Thread.sleep(1_000);
+        first.purgeExpired();
+        second.purgeExpired();
+        assertFalse(first.isRevoked(digest));
+        assertFalse(second.isRevoked(digest));
+    }
+}
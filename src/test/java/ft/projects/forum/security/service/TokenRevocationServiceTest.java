@@ -0,0 +1,146 @@
+package ft.projects.forum.security.service;
+
+import ft.projects.forum.MutableClock;
+import ft.projects.forum.model.RevokedToken;
+import ft.projects.forum.repository.RevokedTokenRepository;
+import ft.projects.forum.security.model.TokenDigest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class TokenRevocationServiceTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+    private final TokenRevocationService revocationService = new TokenRevocationServiceImpl(revokedTokenRepository, clock, 1 << 20, 5, 5_000);
+
+    @Test
+    public void givenRevokedToken_whenIsRevoked_thenTrue() {
+        clock.setMillis(NOW);
+        var digest = TokenDigest.of("token");
+        revocationService.revoke(digest, Instant.ofEpochMilli(NOW + 1000));
+        assertTrue(revocationService.isRevoked(TokenDigest.of("token")));
+        assertFalse(revocationService.isRevoked(TokenDigest.of("other")));
+        assertEquals(1, revocationService.getSize());
+        verify(revokedTokenRepository, times(1)).save(argThat(r -> r.getDigestHigh() == digest.high() && r.getDigestLow() == digest.low()));
+    }
+
+    @Test
+    public void givenRowsFromOtherNode_whenRefresh_thenRevokedLocally() {
+        clock.setMillis(NOW);
+        var digest = TokenDigest.of("token");
+        given(revokedTokenRepository.findActiveSince(anyLong(), any(), any())).willReturn(List.of(RevokedToken.builder()
+                .id(7L)
+                .digestHigh(digest.high())
+                .digestLow(digest.low())
+                .expiresAt(Instant.ofEpochMilli(NOW + 1000))
+                .build()
+        ));
+        revocationService.refresh();
+        assertTrue(revocationService.isRevoked(digest));
+        revocationService.refresh();
+        verify(revokedTokenRepository, times(1)).findActiveSince(eq(0L), any(), any());
+        verify(revokedTokenRepository, times(1)).findActiveSince(eq(7L), any(), any());
+    }
+
+    @Test
+    public void givenAlreadyExpiredToken_whenRevoke_thenNotStored() {
+        clock.setMillis(NOW);
+        revocationService.revoke(TokenDigest.of("token"), Instant.ofEpochMilli(NOW));
+        assertEquals(0, revocationService.getSize());
+    }
+
+    @Test
+    public void givenExpiredToken_whenIsRevoked_thenFalseAndEvicted() {
+        clock.setMillis(NOW);
+        var digest = TokenDigest.of("token");
+        revocationService.revoke(digest, Instant.ofEpochMilli(NOW + 1000));
+        clock.setMillis(NOW + 1000);
+        assertFalse(revocationService.isRevoked(digest));
+        assertEquals(0, revocationService.getSize());
+        assertEquals(1, revocationService.getEvictions());
+    }
+
+    @Test
+    public void givenExpiredTokens_whenPurgeExpired_thenOnlyExpiredEvicted() {
+        clock.setMillis(NOW);
+        revocationService.revoke(TokenDigest.of("short"), Instant.ofEpochMilli(NOW + 1000));
+        revocationService.revoke(TokenDigest.of("long"), Instant.ofEpochMilli(NOW + 5000));
+        clock.setMillis(NOW + 2000);
+        revocationService.purgeExpired();
+        assertEquals(1, revocationService.getSize());
+        assertEquals(1, revocationService.getEvictions());
+        assertTrue(revocationService.isRevoked(TokenDigest.of("long")));
+        verify(revokedTokenRepository, times(1)).deleteExpired(Instant.ofEpochMilli(NOW + 2000));
+    }
+
+    @Test
+    public void givenConcurrentRevokesAndChecks_whenAllDone_thenEveryRevokedTokenVisible() throws Exception {
+        clock.setMillis(NOW);
+        int threads = 8;
+        int tokensPerThread = 5_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var misses = new AtomicInteger();
+        var tokens = new ArrayList<String>();
+        var futures = new ArrayList<Future<?>>();
+        for(int t = 0; t < threads; t++) {
+            var own = new ArrayList<String>();
+            for(int i = 0; i < tokensPerThread; i++) own.add(UUID.randomUUID().toString());
+            tokens.addAll(own);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for(var token : own) {
+                    var digest = TokenDigest.of(token);
+                    revocationService.revoke(digest, Instant.ofEpochMilli(NOW + 60_000));
+                    if(!revocationService.isRevoked(digest)) misses.incrementAndGet();
+                    revocationService.isRevoked(TokenDigest.of(token + "-not-revoked"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(var future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(0, misses.get());
+        assertEquals(threads * tokensPerThread, revocationService.getSize());
+        assertTrue(tokens.stream().allMatch(token -> revocationService.isRevoked(TokenDigest.of(token))));
+    }
+
+    @Test
+    public void givenConcurrentPurgeAndChecks_whenTokensExpire_thenAllEvictedOnce() throws Exception {
+        clock.setMillis(NOW);
+        int count = 20_000;
+        for(int i = 0; i < count; i++) {
+            revocationService.revoke(TokenDigest.of("token-" + i), Instant.ofEpochMilli(NOW + 1000));
+        }
+        clock.setMillis(NOW + 1000);
+        var executor = Executors.newFixedThreadPool(4);
+        var futures = new ArrayList<Future<?>>();
+        futures.add(executor.submit(revocationService::purgeExpired));
+        for(int t = 0; t < 3; t++) {
+            futures.add(executor.submit(() -> {
+                for(int i = 0; i < count; i++) {
+                    assertFalse(revocationService.isRevoked(TokenDigest.of("token-" + i)));
+                }
+            }));
+        }
+        for(var future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(0, revocationService.getSize());
+        assertEquals(count, revocationService.getEvictions());
+    }
+}
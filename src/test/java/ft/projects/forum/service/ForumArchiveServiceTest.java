@@ -0,0 +1,215 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumDeletionJobRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumArchiveServiceTest {
+
+    @TempDir
+    private Path directory;
+    private final ForumThreadRepository threadRepository = mock(ForumThreadRepository.class);
+    private final ForumCommentRepository commentRepository = mock(ForumCommentRepository.class);
+    private final ForumDeletionJobRepository jobRepository = mock(ForumDeletionJobRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ForumArchiveService archiveService;
+
+    @AfterEach
+    public void clean() {
+        if(archiveService != null) archiveService.shutdown();
+    }
+
+    private ForumArchiveService archiveService(boolean enabled) throws Exception {
+        archiveService = newArchiveService(enabled, true);
+        return archiveService;
+    }
+
+    private ForumArchiveService newArchiveService(boolean enabled, boolean writer) throws Exception {
+        return new ForumArchiveServiceImpl(threadRepository, commentRepository, jobRepository, transactionManager, objectMapper, Clock.systemUTC(), enabled, writer, directory.toString(), 1_000, 10, 1 << 20, 0);
+    }
+
+    private ForumThread thread(boolean closed) {
+        return ForumThread.builder()
+                .uuid(UUID.randomUUID())
+                .user(ForumUser.builder().uuid(UUID.randomUUID()).username(TEST_USERNAME).build())
+                .title(TEST_THREAD_TITLE)
+                .content(TEST_THREAD_CONTENT)
+                .publishedAt(Instant.EPOCH)
+                .isClosed(closed)
+                .closedAt(closed ? Instant.EPOCH : null)
+                .build();
+    }
+
+    @Test
+    public void givenColdClosedThread_whenArchive_thenReadableAndDeleted() throws Exception {
+        var service = archiveService(true);
+        var thread = thread(true);
+        var comment = new ForumArchivedComment(UUID.randomUUID(), thread.getUser().getUuid(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.EPOCH);
+        given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+        given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+        given(commentRepository.findArchivedByThread(thread.getUuid())).willReturn(List.of(comment));
+        assertEquals(1, service.archive());
+        InOrder order = inOrder(threadRepository, commentRepository, transactionManager);
+        order.verify(threadRepository).findLockedById(thread.getUuid());
+        order.verify(commentRepository).findArchivedByThread(thread.getUuid());
+        order.verify(commentRepository).deleteByThread(thread.getUuid());
+        order.verify(threadRepository).deleteByUuid(thread.getUuid());
+        order.verify(transactionManager).commit(any());
+        assertTrue(service.isArchived(thread.getUuid()));
+        assertEquals(Optional.of(thread.getUser().getUuid()), service.getArchivedOwner(thread.getUuid()));
+        var archived = service.getArchivedThread(thread.getUuid()).get();
+        assertEquals(thread.getUser().getUuid(), archived.ownerId());
+        assertEquals(TEST_THREAD_CONTENT, archived.content());
+        assertEquals(List.of(comment), archived.comments());
+        assertEquals(1, service.getArchivedThreads());
+        assertEquals(1, service.getArchivedComments());
+    }
+
+    @Test
+    public void givenArchivedThread_whenReopened_thenStillReadable() throws Exception {
+        var thread = thread(true);
+        given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+        given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+        archiveService(true).archive();
+        archiveService.shutdown();
+        assertEquals(TEST_THREAD_TITLE, archiveService(true).getArchivedThread(thread.getUuid()).get().title());
+    }
+
+    @Test
+    public void givenThreadReopenedBeforeArchive_whenArchive_thenSkipped() throws Exception {
+        var service = archiveService(true);
+        var thread = thread(false);
+        given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+        given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+        assertEquals(0, service.archive());
+        assertFalse(service.isArchived(thread.getUuid()));
+        verify(commentRepository, never()).findArchivedByThread(any());
+        verify(threadRepository, never()).deleteByUuid(any());
+    }
+
+    @Test
+    public void givenDeleteCommitFails_whenArchive_thenRecordRemovedAndCounted() throws Exception {
+        var service = archiveService(true);
+        var thread = thread(true);
+        given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+        given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+        willThrow(new CannotAcquireLockException("")).given(transactionManager).commit(any());
+        assertEquals(0, service.archive());
+        assertFalse(service.isArchived(thread.getUuid()));
+        assertEquals(1, service.getFailures());
+        archiveService.shutdown();
+        assertFalse(archiveService(true).isArchived(thread.getUuid()));
+    }
+
+    @Test
+    public void givenDeletedUser_whenArchive_thenOwnedThreadsRemovedAndCommentsRedacted() throws Exception {
+        var service = archiveService(true);
+        var owned = thread(true);
+        var other = thread(true);
+        var deleted = owned.getUser();
+        var comment = new ForumArchivedComment(UUID.randomUUID(), deleted.getUuid(), deleted.getUsername(), TEST_COMMENT_CONTENT, Instant.EPOCH);
+        given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(owned.getUuid(), other.getUuid())).willReturn(List.of());
+        given(threadRepository.findLockedById(owned.getUuid())).willReturn(Optional.of(owned));
+        given(threadRepository.findLockedById(other.getUuid())).willReturn(Optional.of(other));
+        given(commentRepository.findArchivedByThread(other.getUuid())).willReturn(List.of(comment));
+        assertEquals(2, service.archive());
+        given(jobRepository.findPurgePendingTargetIds()).willReturn(List.of(deleted.getUuid()));
+        service.archive();
+        assertFalse(service.isArchived(owned.getUuid()));
+        assertEquals(List.of(), service.getArchivedThread(other.getUuid()).get().comments());
+        verify(jobRepository).deletePurged(Set.of(deleted.getUuid()));
+        assertEquals(1, service.getPurgedUsers());
+        archiveService.shutdown();
+        assertFalse(archiveService(true).isArchived(owned.getUuid()));
+        assertTrue(archiveService.getArchivedThread(other.getUuid()).get().comments().isEmpty());
+    }
+
+    @Test
+    public void givenReader_whenWriterArchives_thenVisibleAfterRefresh() throws Exception {
+        var reader = newArchiveService(true, false);
+        try {
+            var thread = thread(true);
+            given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+            given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+            assertEquals(0, reader.archive());
+            assertEquals(1, archiveService(true).archive());
+            assertFalse(reader.isArchived(thread.getUuid()));
+            reader.refresh();
+            assertEquals(TEST_THREAD_TITLE, reader.getArchivedThread(thread.getUuid()).get().title());
+            verify(threadRepository, times(1)).findArchivableIds(any(), any());
+        } finally {
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void givenReaderBehindWriter_whenGetArchivedOwner_thenCaughtUpBeforeReportingMiss() throws Exception {
+        var reader = newArchiveService(true, false);
+        try {
+            var thread = thread(true);
+            given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid()));
+            given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+            assertEquals(1, archiveService(true).archive());
+            assertFalse(reader.isArchived(thread.getUuid()));
+            assertEquals(Optional.of(thread.getUser().getUuid()), reader.getArchivedOwner(thread.getUuid()));
+            assertTrue(reader.isArchived(thread.getUuid()));
+            assertEquals(Optional.empty(), reader.getArchivedOwner(UUID.randomUUID()));
+        } finally {
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void givenStaleReader_whenWriterRedactsAndCompacts_thenReaderReloadsAndReadsLatest() throws Exception {
+        var reader = newArchiveService(true, false);
+        try {
+            var thread = thread(true);
+            var deleted = ForumUser.builder().uuid(UUID.randomUUID()).username(TEST_USERNAME).build();
+            var comment = new ForumArchivedComment(UUID.randomUUID(), deleted.getUuid(), deleted.getUsername(), TEST_COMMENT_CONTENT, Instant.EPOCH);
+            given(threadRepository.findArchivableIds(any(), any())).willReturn(List.of(thread.getUuid())).willReturn(List.of());
+            given(threadRepository.findLockedById(thread.getUuid())).willReturn(Optional.of(thread));
+            given(commentRepository.findArchivedByThread(thread.getUuid())).willReturn(List.of(comment));
+            var writer = archiveService(true);
+            writer.archive();
+            reader.refresh();
+            assertEquals(1, reader.getArchivedThread(thread.getUuid()).get().comments().size());
+            given(jobRepository.findPurgePendingTargetIds()).willReturn(List.of(deleted.getUuid()));
+            writer.archive();
+            assertTrue(reader.getArchivedThread(thread.getUuid()).get().comments().isEmpty());
+            assertEquals(0, reader.getFailures());
+        } finally {
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void givenDisabled_whenArchive_thenNothingTouched() throws Exception {
+        var service = archiveService(false);
+        assertEquals(0, service.archive());
+        assertTrue(service.getArchivedThread(UUID.randomUUID()).isEmpty());
+        verify(threadRepository, never()).findArchivableIds(any(), any());
+    }
+}
@@ -0,0 +1,181 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumQueuedComment;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumCommentQueueServiceTest {
+
+    private final ForumThreadService threadService = mock(ForumThreadService.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private ForumCommentQueueService queueService;
+
+    @AfterEach
+    public void clean() {
+        if(queueService != null) queueService.shutdown();
+    }
+
+    private ForumCommentQueueService queue(boolean enabled, int capacity) {
+        return queue(enabled, capacity, 5_000);
+    }
+
+    private ForumCommentQueueService queue(boolean enabled, int capacity, long drainTimeoutMillis) {
+        queueService = new ForumCommentQueueServiceImpl(threadService, entityManager, transactionManager, enabled, capacity, 100, 10, 1, drainTimeoutMillis);
+        return queueService;
+    }
+
+    private ForumQueuedComment comment(UUID threadId, long publishedAt) {
+        return new ForumQueuedComment(threadId, UUID.randomUUID(), TEST_COMMENT_CONTENT, Instant.ofEpochSecond(publishedAt));
+    }
+
+    @Test
+    public void givenQueuedComments_whenShutdown_thenAllWrittenWithGroupedCounters() {
+        var queue = queue(true, 1_000);
+        var threadId = UUID.randomUUID();
+        var otherThreadId = UUID.randomUUID();
+        for(int i = 1; i <= 50; i++) queue.enqueue(comment(i % 2 == 0 ? threadId : otherThreadId, i));
+        queue.shutdown();
+        assertEquals(50, queue.getWritten());
+        assertEquals(0, queue.getQueueSize());
+        verify(entityManager, times(50)).persist(any(ForumComment.class));
+        verify(threadService, atLeastOnce()).recordCommentsCreated(eq(threadId), anyInt(), any());
+        verify(threadService, never()).recordCommentsCreated(any(), eq(0), any());
+        assertTrue(queue.getBatches() <= 50);
+    }
+
+    @Test
+    public void givenSingleBatch_whenWritten_thenOneCounterUpdatePerThread() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).willReturn(null).given(transactionManager).getTransaction(any());
+        var queue = queue(true, 1_000);
+        var threadId = UUID.randomUUID();
+        queue.enqueue(comment(UUID.randomUUID(), 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for(int i = 1; i <= 10; i++) queue.enqueue(comment(threadId, i));
+        release.countDown();
+        queue.shutdown();
+        verify(threadService, times(1)).recordCommentsCreated(threadId, 10, Instant.ofEpochSecond(10));
+        assertEquals(2, queue.getBatches());
+    }
+
+    @Test
+    public void givenPoisonComment_whenBatchFails_thenOthersWrittenIndividually() throws Exception {
+        var poison = comment(UUID.randomUUID(), 1);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).willReturn(null).given(transactionManager).getTransaction(any());
+        willThrow(new PersistenceException()).given(threadService).recordCommentsCreated(eq(poison.threadId()), anyInt(), any());
+        var queue = queue(true, 1_000);
+        queue.enqueue(comment(UUID.randomUUID(), 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.enqueue(poison);
+        queue.enqueue(comment(UUID.randomUUID(), 2));
+        release.countDown();
+        queue.shutdown();
+        assertEquals(2, queue.getWritten());
+        assertEquals(1, queue.getDropped());
+    }
+
+    @Test
+    public void givenFullQueue_whenEnqueue_thenOverloaded() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(transactionManager).getTransaction(any());
+        var queue = queue(true, 1);
+        queue.enqueue(comment(UUID.randomUUID(), 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.enqueue(comment(UUID.randomUUID(), 2));
+        assertThrows(ForumOverloadException.class, () -> queue.enqueue(comment(UUID.randomUUID(), 3)));
+        assertEquals(1, queue.getRejections());
+        release.countDown();
+    }
+
+    @Test
+    public void givenStuckWriter_whenShutdown_thenReturnsAfterDrainTimeout() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(transactionManager).getTransaction(any());
+        var queue = queue(true, 10, 50);
+        queue.enqueue(comment(UUID.randomUUID(), 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.enqueue(comment(UUID.randomUUID(), 2));
+        var start = System.nanoTime();
+        queue.shutdown();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, queue.getQueueSize());
+        release.countDown();
+    }
+
+    @Test
+    public void givenDisabled_whenEnqueue_thenOverloaded() {
+        var queue = queue(false, 10);
+        assertFalse(queue.isEnabled());
+        assertThrows(ForumOverloadException.class, () -> queue.enqueue(comment(UUID.randomUUID(), 1)));
+    }
+
+    @Test
+    public void givenShutdown_whenEnqueue_thenOverloaded() {
+        var queue = queue(true, 10);
+        queue.shutdown();
+        assertThrows(ForumOverloadException.class, () -> queue.enqueue(comment(UUID.randomUUID(), 1)));
+    }
+
+    @Test
+    public void givenConcurrentEnqueues_whenShutdown_thenEveryAcceptedCommentWritten() throws Exception {
+        var queue = queue(true, 10);
+        var accepted = new AtomicInteger();
+        var producers = new ArrayList<Thread>();
+        for(int i = 0; i < 4; i++) {
+            var producer = new Thread(() -> {
+                try {
+                    while(true) {
+                        queue.enqueue(comment(UUID.randomUUID(), 1));
+                        accepted.incrementAndGet();
+                    }
+                } catch(ForumOverloadException ignored) {
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        Thread.sleep(50);
+        queue.shutdown();
+        for(var producer : producers) producer.join(5_000);
+        assertEquals(accepted.get(), queue.getWritten());
+        assertEquals(0, queue.getQueueSize());
+    }
+}
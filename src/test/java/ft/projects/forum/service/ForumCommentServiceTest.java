@@ -1,19 +1,31 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
 import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumArchivedThread;
 import ft.projects.forum.model.ForumComment;
 import ft.projects.forum.model.ForumCommentRequest;
+import ft.projects.forum.model.ForumCommentView;
 import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadStatus;
 import ft.projects.forum.model.ForumUser;
 import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.service.SecurityContextService;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static ft.projects.forum.Constants.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,37 +36,74 @@ class ForumCommentServiceTest {
     private final ForumCommentRepository commentRepository = mock(ForumCommentRepository.class);
     private final SecurityContextService contextService = mock(SecurityContextService.class);
     private final ForumThreadService threadService = mock(ForumThreadService.class);
+    private final ForumCommentQueueService commentQueueService = mock(ForumCommentQueueService.class);
+    private final ForumArchiveService archiveService = mock(ForumArchiveService.class);
     private final DateTimeFormatter formatter = mock(DateTimeFormatter.class);
-    private final ForumCommentService commentService = new ForumCommentServiceImpl(commentRepository, contextService, threadService, formatter);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ForumThreadStatus OPEN = new ForumThreadStatus(true, false, UUID.randomUUID());
+
+    private final ForumCommentService commentService = new ForumCommentServiceImpl(commentRepository, contextService, threadService, commentQueueService, archiveService, formatter, 2);
 
     @Test
     public void givenValidRequest_whenCreateComment_thenVerifyCalls() {
-        given(threadService.getThread(any())).willReturn(new ForumThread());
-        commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), TEST_COMMENT_CONTENT));
-        verify(threadService, times(1)).getThread(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(commentRepository, times(1)).save(any());
+        var threadId = UUID.randomUUID();
+        var thread = ForumThread.builder().uuid(threadId).build();
+        given(threadService.getThreadStatus(threadId)).willReturn(OPEN);
+        given(threadService.getThreadReference(threadId)).willReturn(thread);
+        assertFalse(commentService.createComment(new ForumCommentRequest(threadId, TEST_COMMENT_CONTENT)));
+        verify(threadService, times(1)).getThreadStatus(threadId);
+        verify(contextService, times(1)).getUserReferenceFromContext();
+        verify(commentRepository, times(1)).save(argThat(c -> c.getThread() == thread));
+        verify(threadService, times(1)).recordCommentsCreated(eq(threadId), eq(1), any());
+        verify(commentQueueService, never()).enqueue(any());
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenCreateComment_thenQueuedWithoutInsert() {
+        var threadId = UUID.randomUUID();
+        var userId = UUID.randomUUID();
+        given(threadService.getThreadStatus(threadId)).willReturn(OPEN);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().uuid(userId).build()));
+        given(commentQueueService.isEnabled()).willReturn(true);
+        assertTrue(commentService.createComment(new ForumCommentRequest(threadId, TEST_COMMENT_CONTENT)));
+        verify(commentQueueService, times(1)).enqueue(argThat(c -> c.threadId().equals(threadId) && c.userId().equals(userId) && c.content().equals(TEST_COMMENT_CONTENT)));
+        verify(commentRepository, never()).save(any());
+        verify(threadService, never()).getThreadReference(any());
+        verify(threadService, never()).recordCommentsCreated(any(), anyInt(), any());
+    }
+
+    @Test
+    public void givenWriteBehindEnabledAndInvalidContent_whenCreateComment_thenThrowBeforeQueue() {
+        given(threadService.getThreadStatus(any())).willReturn(OPEN);
+        given(commentQueueService.isEnabled()).willReturn(true);
+        assertThrows(ForumException.class, () -> {
+            commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), ""));
+        });
+        verify(commentQueueService, never()).enqueue(any());
     }
 
     @Test
     public void givenThreadClosed_whenCreateComment_thenThrow() {
-        given(threadService.getThread(any())).willReturn(ForumThread.builder().isClosed(true).build());
+        given(threadService.getThreadStatus(any())).willReturn(new ForumThreadStatus(true, true, UUID.randomUUID()));
         assertThrows(ForumException.class, () -> {
              commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), TEST_COMMENT_CONTENT));
         });
+        verify(threadService, never()).recordCommentsCreated(any(), anyInt(), any());
     }
 
     @Test
     public void givenInvalidId_whenCreateComment_thenThrow() {
-        given(threadService.getThread(any())).willThrow(new ForumException(ForumExceptions.INVALID_ID));
-        assertThrows(ForumException.class, () -> {
+        given(threadService.getThreadStatus(any())).willReturn(ForumThreadStatus.MISSING);
+        var e = assertThrows(ForumException.class, () -> {
             commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), TEST_COMMENT_CONTENT));
         });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(commentRepository, never()).save(any());
     }
 
     @Test
     public void givenInvalidContent_whenCreateComment_thenThrow() {
-        given(threadService.getThread(any())).willReturn(new ForumThread());
+        given(threadService.getThreadStatus(any())).willReturn(OPEN);
         assertThrows(ForumException.class, () -> {
             commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), null));
         });
@@ -62,135 +111,237 @@ class ForumCommentServiceTest {
 
     @Test
     public void givenInvalidContent_whenCreateComment_thenThrow2() {
-        given(threadService.getThread(any())).willReturn(new ForumThread());
+        given(threadService.getThreadStatus(any())).willReturn(OPEN);
         assertThrows(ForumException.class, () -> {
             commentService.createComment(new ForumCommentRequest(UUID.randomUUID(), ""));
         });
     }
 
     @Test
-    public void givenValidId_whenGetCommentsForThread_thenVerifyCalls() {
-        given(threadService.getThread(any())).willReturn(ForumThread.builder().comments(List.of()).build());
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        var res = commentService.getCommentsForThread(UUID.randomUUID());
-        verify(threadService, times(1)).getThread(any());
-        verify(contextService, times(1)).getUserFromContext();
-        assertNotNull(res);
+    public void givenValidId_whenGetCommentsForThread_thenStreamedInOrder() throws Exception {
+        var threadId = UUID.randomUUID();
+        var first = new ForumCommentView(UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.ofEpochSecond(1), 0);
+        var second = new ForumCommentView(UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.ofEpochSecond(2), 0);
+        given(threadService.threadExists(threadId)).willReturn(true);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        willCallRealMethod().given(commentRepository).forEachViewByThread(any(), any());
+        given(commentRepository.streamViewsByThread(threadId)).willReturn(Stream.of(first, second));
+        var res = writeCommentsForThread(threadId);
+        assertEquals(2, res.size());
+        assertEquals(first.uuid().toString(), res.get(0).get("uuid").asText());
+        assertEquals(TEST_USERNAME, res.get(0).get("creator").asText());
+        assertEquals(TEST_COMMENT_CONTENT, res.get(1).get("content").asText());
+        verify(contextService, times(1)).getPrincipalFromContext();
+    }
+
+    @Test
+    public void givenArchivedThread_whenGetCommentsForThread_thenReadFromArchive() throws Exception {
+        var threadId = UUID.randomUUID();
+        var comment = new ForumArchivedComment(UUID.randomUUID(), UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.ofEpochSecond(1));
+        given(threadService.threadExists(threadId)).willReturn(true);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(archiveService.getArchivedThread(threadId)).willReturn(Optional.of(new ForumArchivedThread(threadId, UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.EPOCH, Instant.EPOCH, Instant.EPOCH, List.of(comment))));
+        var res = writeCommentsForThread(threadId);
+        assertEquals(1, res.size());
+        assertEquals(comment.uuid().toString(), res.get(0).get("uuid").asText());
+        verify(commentRepository, never()).streamViewsByThread(any());
     }
 
     @Test
     public void givenInvalidId_whenGetCommentsForThread_thenThrow() {
-        given(threadService.getThread(any())).willThrow(new ForumException(ForumExceptions.INVALID_ID));
+        given(threadService.threadExists(any())).willReturn(false);
         assertThrows(ForumException.class, () -> {
-            commentService.getCommentsForThread(UUID.randomUUID());
+            writeCommentsForThread(UUID.randomUUID());
+        });
+        verify(commentRepository, never()).streamViewsByThread(any());
+    }
+
+    @Test
+    public void givenMoreCommentsThanSize_whenGetCommentsForThread_thenSeekFromLastComment() {
+        var threadId = UUID.randomUUID();
+        var comments = List.of(view(1), view(2), view(3));
+        given(threadService.threadExists(threadId)).willReturn(true);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(commentRepository.findViewsByThread(threadId, Limit.of(3))).willReturn(comments);
+        var first = commentService.getCommentsForThread(threadId, "", 2);
+        assertEquals(2, first.items().size());
+        assertEquals(comments.get(1).uuid(), first.items().get(1).uuid());
+        assertNotNull(first.nextCursor());
+        given(commentRepository.findViewsByThreadAfter(threadId, comments.get(1).publishedAt(), comments.get(1).uuid(), Limit.of(3))).willReturn(List.of(comments.get(2)));
+        var second = commentService.getCommentsForThread(threadId, first.nextCursor(), 2);
+        assertEquals(List.of(comments.get(2).uuid()), second.items().stream().map(c -> c.uuid()).toList());
+        assertNull(second.nextCursor());
+        verify(commentRepository, never()).streamViewsByThread(any());
+    }
+
+    @Test
+    public void givenArchivedThread_whenGetCommentsForThread_thenPagedFromArchive() {
+        var threadId = UUID.randomUUID();
+        var comments = List.of(archivedComment(1), archivedComment(2), archivedComment(3));
+        given(threadService.threadExists(threadId)).willReturn(true);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(archiveService.getArchivedThread(threadId)).willReturn(Optional.of(new ForumArchivedThread(threadId, UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.EPOCH, Instant.EPOCH, Instant.EPOCH, comments)));
+        var first = commentService.getCommentsForThread(threadId, "", 2);
+        var second = commentService.getCommentsForThread(threadId, first.nextCursor(), 2);
+        assertEquals(comments.get(2).uuid(), second.items().get(0).uuid());
+        assertNull(second.nextCursor());
+        verify(commentRepository, never()).findViewsByThread(any(), any());
+    }
+
+    @Test
+    public void givenInvalidSize_whenGetCommentsForThread_thenThrow() {
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.getCommentsForThread(UUID.randomUUID(), "", 3);
         });
+        assertEquals(ForumExceptions.INVALID_SIZE.name(), e.getMessage());
+    }
+
+    @Test
+    public void givenInvalidId_whenGetCommentsForThreadByCursor_thenThrow() {
+        given(threadService.threadExists(any())).willReturn(false);
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.getCommentsForThread(UUID.randomUUID(), "", 2);
+        });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(commentRepository, never()).findViewsByThread(any(), any());
     }
 
     @Test
     public void givenValidRequest_whenUpdateContent_thenVerifyCalls() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(user);
-        commentService.updateContent(UUID.randomUUID(), TEST_COMMENT_CONTENT);
-        verify(commentRepository, times(1)).findById(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(commentRepository, times(1)).save(any());
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(commentRepository.updateContent(uuid, user.getUuid(), TEST_COMMENT_CONTENT, null)).willReturn(1);
+        commentService.updateContent(uuid, TEST_COMMENT_CONTENT, null);
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(commentRepository, times(1)).updateContent(uuid, user.getUuid(), TEST_COMMENT_CONTENT, null);
+        verify(commentRepository, never()).findById(any());
+        verify(commentRepository, never()).findOwnerIdByUuid(any());
+        verify(commentRepository, never()).save(any());
     }
 
     @Test
     public void givenInvalidOwner_whenUpdateContent_thenThrow() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        assertThrows(ForumException.class, () -> {
-            commentService.updateContent(UUID.randomUUID(), TEST_COMMENT_CONTENT);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(commentRepository.findOwnerIdByUuid(any())).willReturn(Optional.of(UUID.randomUUID()));
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.updateContent(UUID.randomUUID(), TEST_COMMENT_CONTENT, null);
         });
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
     }
 
     @Test
     public void givenInvalidId_whenUpdateContent_thenThrow() {
-        given(commentRepository.findById(any())).willReturn(Optional.empty());
-        assertThrows(ForumException.class, () -> {
-            commentService.updateContent(UUID.randomUUID(), TEST_COMMENT_CONTENT);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(commentRepository.findOwnerIdByUuid(any())).willReturn(Optional.empty());
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.updateContent(UUID.randomUUID(), TEST_COMMENT_CONTENT, null);
         });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+    }
+
+    @Test
+    public void givenStaleVersion_whenUpdateContent_thenThrowConflict() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(commentRepository.updateContent(uuid, user.getUuid(), TEST_COMMENT_CONTENT, 2L)).willReturn(0);
+        given(commentRepository.findOwnerIdByUuid(uuid)).willReturn(Optional.of(user.getUuid()));
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.updateContent(uuid, TEST_COMMENT_CONTENT, 2L);
+        });
+        assertEquals(ForumExceptions.VERSION_CONFLICT.name(), e.getMessage());
     }
 
     @Test
     public void givenInvalidContent_whenUpdateContent_thenThrow() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(user);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
         assertThrows(ForumException.class, () -> {
-            commentService.updateContent(UUID.randomUUID(), null);
+            commentService.updateContent(UUID.randomUUID(), null, null);
         });
+        verify(commentRepository, never()).updateContent(any(), any(), any(), any());
     }
 
     @Test
     public void givenInvalidContent_whenUpdateContent_thenThrow2() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(user);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
         assertThrows(ForumException.class, () -> {
-            commentService.updateContent(UUID.randomUUID(), "");
+            commentService.updateContent(UUID.randomUUID(), "", null);
         });
+        verify(commentRepository, never()).updateContent(any(), any(), any(), any());
     }
 
     @Test
     public void givenValidRequest_whenDeleteComment_thenVerifyCalls() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(user);
-        commentService.deleteComment(UUID.randomUUID());
-        verify(commentRepository, times(1)).findById(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(commentRepository, times(1)).delete(any());
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        var threadId = UUID.randomUUID();
+        given(commentRepository.findThreadIdByUuid(uuid)).willReturn(Optional.of(threadId));
+        given(commentRepository.deleteOwned(uuid, user.getUuid())).willReturn(1);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        commentService.deleteComment(uuid);
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(commentRepository, times(1)).deleteOwned(uuid, user.getUuid());
+        verify(commentRepository, never()).findById(any());
+        verify(commentRepository, never()).delete(any());
+        verify(threadService, times(1)).recordCommentDeleted(threadId);
     }
 
     @Test
     public void givenInvalidOwner_whenDeleteComment_thenThrow() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var comment = ForumComment.builder()
-                .user(user)
-                .build();
-        given(commentRepository.findById(any())).willReturn(Optional.of(comment));
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        assertThrows(ForumException.class, () -> {
+        given(commentRepository.findThreadIdByUuid(any())).willReturn(Optional.of(UUID.randomUUID()));
+        given(commentRepository.deleteOwned(any(), any())).willReturn(0);
+        given(commentRepository.findOwnerIdByUuid(any())).willReturn(Optional.of(UUID.randomUUID()));
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        var e = assertThrows(ForumException.class, () -> {
             commentService.deleteComment(UUID.randomUUID());
         });
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
+        verify(threadService, never()).recordCommentDeleted(any());
+    }
+
+    @Test
+    public void givenDeletedConcurrently_whenDeleteComment_thenThrowInvalidId() {
+        given(commentRepository.findThreadIdByUuid(any())).willReturn(Optional.of(UUID.randomUUID()));
+        given(commentRepository.deleteOwned(any(), any())).willReturn(0);
+        given(commentRepository.findOwnerIdByUuid(any())).willReturn(Optional.empty());
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        var e = assertThrows(ForumException.class, () -> {
+            commentService.deleteComment(UUID.randomUUID());
+        });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(threadService, never()).recordCommentDeleted(any());
     }
 
     @Test
     public void givenInvalidId_whenDeleteComment_thenThrow() {
-        given(commentRepository.findById(any())).willReturn(Optional.empty());
-        assertThrows(ForumException.class, () -> {
+        given(commentRepository.findThreadIdByUuid(any())).willReturn(Optional.empty());
+        var e = assertThrows(ForumException.class, () -> {
             commentService.deleteComment(UUID.randomUUID());
         });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(commentRepository, never()).deleteOwned(any(), any());
+    }
+
+    private ForumCommentView view(int second) {
+        return new ForumCommentView(UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.ofEpochSecond(second), 0);
+    }
+
+    private ForumArchivedComment archivedComment(int second) {
+        return new ForumArchivedComment(UUID.randomUUID(), UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.ofEpochSecond(second));
+    }
+
+    private ForumUser owner() {
+        return ForumUser.builder()
+                .uuid(UUID.randomUUID())
+                .username(TEST_USERNAME)
+                .build();
+    }
+    private JsonNode writeCommentsForThread(UUID threadId) throws IOException {
+        var json = new StringWriter();
+        try(var generator = objectMapper.createGenerator(json)) {
+            commentService.writeCommentsForThread(threadId, generator);
+        }
+        return objectMapper.readTree(json.toString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,346 @@
+package ft.projects.forum.service;
+
+import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.exception.ForumOverloadException;
+import ft.projects.forum.model.ForumDeletionJob;
+import ft.projects.forum.model.ForumDeletionStatus;
+import ft.projects.forum.model.ForumDeletionTarget;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumDeletionJobRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import ft.projects.forum.repository.ForumUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumDeletionServiceTest {
+
+    private static final UUID OWNER = UUID.randomUUID();
+
+    private final ForumUserRepository userRepository = mock(ForumUserRepository.class);
+    private final ForumThreadRepository threadRepository = mock(ForumThreadRepository.class);
+    private final ForumCommentRepository commentRepository = mock(ForumCommentRepository.class);
+    private final ForumDeletionJobRepository jobRepository = mock(ForumDeletionJobRepository.class);
+    private final ForumArchiveService archiveService = mock(ForumArchiveService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ForumDeletionService deletionService = newService(16, 4);
+
+    private ForumDeletionServiceImpl newService(int jobCacheSize, int queueCapacity) {
+        return new ForumDeletionServiceImpl(userRepository, threadRepository, commentRepository, jobRepository, archiveService, transactionManager, Clock.systemUTC(), 2, 10, jobCacheSize, 60_000, queueCapacity, 1, 60_000);
+    }
+
+    @AfterEach
+    public void clean() {
+        deletionService.shutdown();
+    }
+
+    @Test
+    public void givenSmallThread_whenDeleteThread_thenOneTransactionWithoutJobRecord() {
+        var uuid = UUID.randomUUID();
+        given(commentRepository.countByOwnedThread(uuid, OWNER)).willReturn(3L);
+        given(commentRepository.deleteByOwnedThread(uuid, OWNER)).willReturn(3);
+        given(threadRepository.deleteOwned(uuid, OWNER)).willReturn(1);
+        var deleted = new ArrayList<Collection<UUID>>();
+        deletionService.addThreadDeletionListener(deleted::add);
+        var res = deletionService.deleteThread(uuid, OWNER, IllegalStateException::new);
+        assertEquals(List.of(List.of(uuid)), deleted);
+        assertEquals(ForumDeletionStatus.DONE, res.status());
+        assertEquals(4, res.total());
+        assertEquals(4, res.deleted());
+        assertEquals(4, deletionService.getDeletedRows());
+        assertEquals(0, deletionService.getBackgroundJobs());
+        InOrder order = inOrder(commentRepository, threadRepository);
+        order.verify(commentRepository).deleteByOwnedThread(uuid, OWNER);
+        order.verify(threadRepository).deleteOwned(uuid, OWNER);
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(commentRepository, never()).findIdsByOwnedThread(any(), any(), any());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    public void givenLargeThread_whenDeleteThread_thenBackgroundJobTracked() throws Exception {
+        var uuid = UUID.randomUUID();
+        given(commentRepository.countByOwnedThread(uuid, OWNER)).willReturn(100L);
+        var release = new CountDownLatch(1);
+        given(commentRepository.findIdsByOwnedThread(eq(uuid), eq(OWNER), any())).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        given(commentRepository.deleteByOwnedThread(uuid, OWNER)).willReturn(100);
+        given(threadRepository.deleteOwned(uuid, OWNER)).willReturn(1);
+        var res = deletionService.deleteThread(uuid, OWNER, IllegalStateException::new);
+        assertNotEquals(ForumDeletionStatus.DONE, res.status());
+        assertEquals(101, res.total());
+        release.countDown();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(deletionService.getJob(res.uuid()).status() != ForumDeletionStatus.DONE && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        var job = deletionService.getJob(res.uuid());
+        assertEquals(ForumDeletionStatus.DONE, job.status());
+        assertEquals(101, job.deleted());
+        assertEquals(1, deletionService.getBackgroundJobs());
+        verify(jobRepository).saveAndFlush(argThat(j -> j.getTarget() == ForumDeletionTarget.THREAD && uuid.equals(j.getTargetId()) && OWNER.equals(j.getOwnerId())));
+        verify(jobRepository).deleteByUuid(res.uuid());
+    }
+
+    @Test
+    public void givenUser_whenDeleteUser_thenTombstonedAndDeletedInDependencyOrder() {
+        var uuid = UUID.randomUUID();
+        var commented = List.of(UUID.randomUUID());
+        var threadIds = List.of(UUID.randomUUID());
+        var onOwnThreads = List.of(UUID.randomUUID());
+        var ownThreads = List.of(UUID.randomUUID());
+        given(commentRepository.countByUserOrThreadOwner(uuid)).willReturn(2L);
+        given(threadRepository.countByUser(uuid)).willReturn(1L);
+        given(commentRepository.findIdsByUser(eq(uuid), any())).willReturn(commented);
+        given(commentRepository.findThreadIdsByUuids(commented)).willReturn(threadIds);
+        given(commentRepository.findIdsByThreadOwner(eq(uuid), any())).willReturn(onOwnThreads);
+        given(commentRepository.deleteByUuids(any())).willReturn(1);
+        given(threadRepository.findIdsByUser(eq(uuid), any())).willReturn(ownThreads);
+        given(threadRepository.deleteByUuids(ownThreads)).willReturn(1);
+        given(userRepository.deleteByUuid(uuid)).willReturn(1);
+        var res = deletionService.deleteUser(uuid);
+        assertEquals(ForumDeletionStatus.DONE, res.status());
+        assertEquals(4, res.deleted());
+        InOrder order = inOrder(userRepository, commentRepository, threadRepository);
+        order.verify(userRepository).tombstone(uuid, "deleted-" + uuid);
+        order.verify(commentRepository).deleteByUuids(commented);
+        order.verify(threadRepository).recountComments(threadIds);
+        order.verify(commentRepository).deleteByUuids(onOwnThreads);
+        order.verify(commentRepository).deleteByThreads(ownThreads);
+        order.verify(threadRepository).deleteByUuids(ownThreads);
+        order.verify(userRepository).deleteByUuid(uuid);
+        verify(jobRepository).save(argThat(j -> j.getTarget() == ForumDeletionTarget.USER && uuid.equals(j.getTargetId())));
+        verify(jobRepository).deleteByUuid(res.uuid());
+    }
+
+    @Test
+    public void givenManyThreads_whenDeleteUser_thenThreadsDeletedInChunks() {
+        var uuid = UUID.randomUUID();
+        var first = List.of(UUID.randomUUID(), UUID.randomUUID());
+        var second = List.of(UUID.randomUUID());
+        given(commentRepository.findIdsByUser(eq(uuid), any())).willReturn(List.of());
+        given(commentRepository.findIdsByThreadOwner(eq(uuid), any())).willReturn(List.of());
+        given(threadRepository.countByUser(uuid)).willReturn(3L);
+        given(threadRepository.findIdsByUser(eq(uuid), any())).willReturn(first).willReturn(second);
+        given(threadRepository.deleteByUuids(first)).willReturn(2);
+        given(threadRepository.deleteByUuids(second)).willReturn(1);
+        given(userRepository.deleteByUuid(uuid)).willReturn(1);
+        var deleted = new ArrayList<Collection<UUID>>();
+        deletionService.addThreadDeletionListener(deleted::add);
+        var res = deletionService.deleteUser(uuid);
+        assertEquals(4, res.deleted());
+        assertEquals(List.of(first, second), deleted);
+        verify(threadRepository, times(2)).findIdsByUser(eq(uuid), any());
+        verify(transactionManager, times(6)).commit(any());
+    }
+
+    @Test
+    public void givenArchiveEnabled_whenDeleteUser_thenRowDeletedAndPurgeLeftPending() {
+        var uuid = UUID.randomUUID();
+        given(archiveService.isEnabled()).willReturn(true);
+        given(commentRepository.findIdsByUser(eq(uuid), any())).willReturn(List.of());
+        given(commentRepository.findIdsByThreadOwner(eq(uuid), any())).willReturn(List.of());
+        given(threadRepository.findIdsByUser(eq(uuid), any())).willReturn(List.of());
+        var res = deletionService.deleteUser(uuid);
+        assertEquals(ForumDeletionStatus.DONE, res.status());
+        verify(userRepository).tombstone(uuid, "deleted-" + uuid);
+        verify(userRepository).deleteByUuid(uuid);
+        verify(jobRepository).markPurgePending(res.uuid());
+        verify(jobRepository, never()).deleteByUuid(any());
+    }
+
+    @Test
+    public void givenExpiredJobs_whenResumeDeletions_thenOnlyClaimedJobsRun() throws Exception {
+        var user = job(ForumDeletionTarget.USER, UUID.randomUUID(), null);
+        var thread = job(ForumDeletionTarget.THREAD, UUID.randomUUID(), OWNER);
+        var taken = job(ForumDeletionTarget.USER, UUID.randomUUID(), null);
+        given(jobRepository.findExpired(any(), any())).willReturn(List.of(user, thread, taken));
+        given(jobRepository.claim(eq(user.getUuid()), any(), any())).willReturn(1);
+        given(jobRepository.claim(eq(thread.getUuid()), any(), any())).willReturn(1);
+        given(jobRepository.claim(eq(taken.getUuid()), any(), any())).willReturn(0);
+        given(commentRepository.findIdsByUser(any(), any())).willReturn(List.of());
+        given(commentRepository.findIdsByThreadOwner(any(), any())).willReturn(List.of());
+        given(threadRepository.findIdsByUser(any(), any())).willReturn(List.of());
+        given(commentRepository.findIdsByOwnedThread(any(), any(), any())).willReturn(List.of());
+        given(threadRepository.deleteOwned(thread.getTargetId(), OWNER)).willReturn(1);
+        assertEquals(2, deletionService.resumeDeletions());
+        awaitDone(user.getUuid());
+        awaitDone(thread.getUuid());
+        verify(userRepository, times(1)).deleteByUuid(user.getTargetId());
+        verify(userRepository, never()).deleteByUuid(taken.getTargetId());
+        verify(threadRepository, times(1)).deleteOwned(thread.getTargetId(), OWNER);
+        assertThrows(ForumException.class, () -> deletionService.getJob(taken.getUuid()));
+    }
+
+    @Test
+    public void givenFailingJob_whenResumeDeletions_thenFailureCountedNotThrown() throws Exception {
+        var user = job(ForumDeletionTarget.USER, UUID.randomUUID(), null);
+        var broken = job(ForumDeletionTarget.USER, UUID.randomUUID(), null);
+        given(jobRepository.findExpired(any(), any())).willReturn(List.of(broken, user));
+        given(jobRepository.claim(eq(broken.getUuid()), any(), any())).willThrow(new IllegalStateException());
+        given(jobRepository.claim(eq(user.getUuid()), any(), any())).willReturn(1);
+        given(commentRepository.findIdsByUser(eq(user.getTargetId()), any())).willThrow(new IllegalStateException());
+        assertEquals(1, deletionService.resumeDeletions());
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(deletionService.getJob(user.getUuid()).status() != ForumDeletionStatus.FAILED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ForumDeletionStatus.FAILED, deletionService.getJob(user.getUuid()).status());
+        assertEquals(1, deletionService.getFailedJobs());
+        verify(jobRepository, never()).deleteByUuid(user.getUuid());
+    }
+
+    @Test
+    public void givenLegacyTombstones_whenResumeDeletions_thenAdoptedAsUnclaimedJobs() {
+        var adopted = UUID.randomUUID();
+        var tracked = UUID.randomUUID();
+        given(userRepository.findTombstonedIds()).willReturn(List.of(adopted, tracked));
+        given(jobRepository.existsByTargetId(tracked)).willReturn(true);
+        deletionService.resumeDeletions();
+        verify(jobRepository, times(1)).saveAndFlush(argThat(j -> j.getTarget() == ForumDeletionTarget.USER
+                && adopted.equals(j.getTargetId())
+                && Instant.EPOCH.equals(j.getClaimedAt())));
+    }
+
+    @Test
+    public void givenMoreRunningJobsThanCacheSize_whenGetJob_thenRunningJobsNotEvicted() throws Exception {
+        var service = newService(1, 4);
+        var release = new CountDownLatch(1);
+        given(commentRepository.countByOwnedThread(any(), any())).willReturn(100L);
+        given(commentRepository.findIdsByOwnedThread(any(), any(), any())).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        try {
+            var first = service.deleteThread(UUID.randomUUID(), OWNER, IllegalStateException::new);
+            var second = service.deleteThread(UUID.randomUUID(), OWNER, IllegalStateException::new);
+            var third = service.deleteThread(UUID.randomUUID(), OWNER, IllegalStateException::new);
+            assertNotNull(service.getJob(first.uuid()));
+            assertNotNull(service.getJob(second.uuid()));
+            assertNotNull(service.getJob(third.uuid()));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void givenInlineFailure_whenDeleteThread_thenRethrown() {
+        var uuid = UUID.randomUUID();
+        given(commentRepository.deleteByOwnedThread(uuid, OWNER)).willThrow(new IllegalStateException());
+        assertThrows(IllegalStateException.class, () -> deletionService.deleteThread(uuid, OWNER, IllegalArgumentException::new));
+        assertEquals(1, deletionService.getFailedJobs());
+        assertEquals(0, deletionService.getActiveJobs());
+    }
+
+    @Test
+    public void givenThreadNotOwned_whenDeleteThread_thenFailureThrownAndNothingNotified() {
+        var uuid = UUID.randomUUID();
+        given(threadRepository.deleteOwned(uuid, OWNER)).willReturn(0);
+        var deleted = new ArrayList<Collection<UUID>>();
+        deletionService.addThreadDeletionListener(deleted::add);
+        var e = assertThrows(ForumException.class, () -> deletionService.deleteThread(uuid, OWNER, () -> new ForumException(ForumExceptions.INVALID_OWNER)));
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
+        assertTrue(deleted.isEmpty());
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    public void givenThreadAlreadyBeingDeleted_whenDeleteThread_thenFailureThrown() {
+        var uuid = UUID.randomUUID();
+        given(commentRepository.countByOwnedThread(uuid, OWNER)).willReturn(100L);
+        given(jobRepository.saveAndFlush(any())).willThrow(new DataIntegrityViolationException("target_id"));
+        var e = assertThrows(ForumException.class, () -> deletionService.deleteThread(uuid, OWNER, () -> new ForumException(ForumExceptions.INVALID_ID)));
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(threadRepository, never()).deleteOwned(any(), any());
+    }
+
+    @Test
+    public void givenFullQueue_whenDeleteLargeThread_thenOverloadedBeforeAnyWrite() throws Exception {
+        var service = newService(16, 1);
+        var release = new CountDownLatch(1);
+        given(commentRepository.countByOwnedThread(any(), any())).willReturn(100L);
+        given(commentRepository.findIdsByOwnedThread(any(), any(), any())).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        try {
+            service.deleteThread(UUID.randomUUID(), OWNER, IllegalStateException::new);
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(service.getActiveJobs() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            service.deleteThread(UUID.randomUUID(), OWNER, IllegalStateException::new);
+            var uuid = UUID.randomUUID();
+            assertThrows(ForumOverloadException.class, () -> service.deleteThread(uuid, OWNER, IllegalStateException::new));
+            verify(jobRepository, never()).saveAndFlush(argThat(j -> uuid.equals(j.getTargetId())));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void givenShutdown_whenDeleteLargeThread_thenRejectedAndRecordDropped() {
+        var uuid = UUID.randomUUID();
+        given(commentRepository.countByOwnedThread(uuid, OWNER)).willReturn(100L);
+        deletionService.shutdown();
+        assertThrows(ForumOverloadException.class, () -> deletionService.deleteThread(uuid, OWNER, IllegalStateException::new));
+        verify(jobRepository).saveAndFlush(argThat(j -> uuid.equals(j.getTargetId())));
+        verify(jobRepository).deleteByUuid(any());
+        assertEquals(1, deletionService.getFailedJobs());
+        assertEquals(0, deletionService.getBackgroundJobs());
+    }
+
+    @Test
+    public void givenShutdown_whenResumeDeletions_thenClaimReleasedAndJobReportedFailed() {
+        var record = job(ForumDeletionTarget.USER, UUID.randomUUID(), null);
+        given(jobRepository.findExpired(any(), any())).willReturn(List.of(record));
+        given(jobRepository.claim(eq(record.getUuid()), any(), any())).willReturn(1);
+        deletionService.shutdown();
+        assertEquals(0, deletionService.resumeDeletions());
+        verify(jobRepository).release(record.getUuid());
+        assertEquals(ForumDeletionStatus.FAILED, deletionService.getJob(record.getUuid()).status());
+    }
+
+    private ForumDeletionJob job(ForumDeletionTarget target, UUID targetId, UUID ownerId) {
+        return ForumDeletionJob.builder()
+                .uuid(UUID.randomUUID())
+                .target(target)
+                .targetId(targetId)
+                .ownerId(ownerId)
+                .claimedAt(Instant.EPOCH)
+                .build();
+    }
+
+    private void awaitDone(UUID uuid) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(deletionService.getJob(uuid).status() != ForumDeletionStatus.DONE && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ForumDeletionStatus.DONE, deletionService.getJob(uuid).status());
+    }
+
+    @Test
+    public void givenUnknownJob_whenGetJob_thenThrow() {
+        assertThrows(ForumException.class, () -> deletionService.getJob(UUID.randomUUID()));
+    }
+}
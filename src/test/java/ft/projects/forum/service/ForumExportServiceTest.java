@@ -0,0 +1,107 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumArchivedThread;
+import ft.projects.forum.model.ForumCommentExport;
+import ft.projects.forum.model.ForumThreadExport;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumExportServiceTest {
+
+    private final ForumThreadRepository threadRepository = mock(ForumThreadRepository.class);
+    private final ForumCommentRepository commentRepository = mock(ForumCommentRepository.class);
+    private final ForumArchiveService archiveService = mock(ForumArchiveService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ForumExportService exportService = new ForumExportServiceImpl(threadRepository, commentRepository, archiveService, objectMapper);
+
+    @Test
+    public void givenThreadsAndComments_whenExport_thenGzipNdjsonLines() throws Exception {
+        var threadId = UUID.randomUUID();
+        var publishedAt = Instant.ofEpochSecond(1);
+        willCallRealMethod().given(threadRepository).forEachExport(any());
+        willCallRealMethod().given(commentRepository).forEachExport(any());
+        given(threadRepository.streamExports()).willReturn(Stream.of(new ForumThreadExport(threadId, TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt, true, 2, null)));
+        given(commentRepository.streamExports()).willReturn(Stream.of(
+                new ForumCommentExport(UUID.randomUUID(), threadId, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt),
+                new ForumCommentExport(UUID.randomUUID(), threadId, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt)
+        ));
+        var out = new ByteArrayOutputStream();
+        exportService.export(out);
+        var lines = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        var thread = objectMapper.readTree(lines[0]);
+        assertEquals("thread", thread.get("type").asText());
+        assertEquals(threadId.toString(), thread.get("uuid").asText());
+        assertEquals(publishedAt.toString(), thread.get("publishedAt").asText());
+        assertTrue(thread.get("closed").asBoolean());
+        assertTrue(thread.get("lastActivityAt").isNull());
+        assertFalse(thread.get("archived").asBoolean());
+        var comment = objectMapper.readTree(lines[2]);
+        assertEquals("comment", comment.get("type").asText());
+        assertEquals(threadId.toString(), comment.get("threadId").asText());
+        assertEquals(TEST_COMMENT_CONTENT, comment.get("content").asText());
+    }
+
+    @Test
+    public void givenArchivedThread_whenExport_thenThreadAndCommentsIncluded() throws Exception {
+        var threadId = UUID.randomUUID();
+        var comment = new ForumArchivedComment(UUID.randomUUID(), UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.EPOCH);
+        var archived = new ForumArchivedThread(threadId, UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.EPOCH, Instant.EPOCH, Instant.EPOCH, List.of(comment));
+        willAnswer(invocation -> {
+            invocation.<Consumer<ForumArchivedThread>>getArgument(0).accept(archived);
+            return null;
+        }).given(archiveService).forEachArchivedThread(any());
+        var out = new ByteArrayOutputStream();
+        exportService.export(out);
+        var lines = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        var thread = objectMapper.readTree(lines[0]);
+        assertEquals(threadId.toString(), thread.get("uuid").asText());
+        assertTrue(thread.get("closed").asBoolean());
+        assertTrue(thread.get("archived").asBoolean());
+        assertEquals(1, thread.get("commentCount").asLong());
+        var exported = objectMapper.readTree(lines[1]);
+        assertEquals("comment", exported.get("type").asText());
+        assertEquals(comment.uuid().toString(), exported.get("uuid").asText());
+        assertEquals(threadId.toString(), exported.get("threadId").asText());
+    }
+
+    @Test
+    public void givenBrokenOutput_whenExport_thenIOExceptionAndStreamClosed() {
+        var threads = Stream.generate(() -> new ForumThreadExport(UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.EPOCH, false, 0, Instant.EPOCH))
+                .limit(100_000);
+        var closed = new boolean[1];
+        willCallRealMethod().given(threadRepository).forEachExport(any());
+        given(threadRepository.streamExports()).willReturn(threads.onClose(() -> closed[0] = true));
+        var out = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if(++written > 1024) throw new IOException("broken pipe");
+            }
+        };
+        assertThrows(IOException.class, () -> exportService.export(out));
+        assertTrue(closed[0]);
+        verify(commentRepository, never()).forEachExport(any());
+    }
+}
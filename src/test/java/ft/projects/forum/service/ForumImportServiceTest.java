@@ -0,0 +1,231 @@
+package ft.projects.forum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumArchivedThread;
+import ft.projects.forum.model.ForumComment;
+import ft.projects.forum.model.ForumCommentExport;
+import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadExport;
+import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumCommentRepository;
+import ft.projects.forum.repository.ForumThreadRepository;
+import ft.projects.forum.repository.ForumUserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static ft.projects.forum.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class ForumImportServiceTest {
+
+    private static final String HASH = "$2a$10$" + "a".repeat(53);
+
+    private final ForumUserRepository userRepository = mock(ForumUserRepository.class);
+    private final ForumThreadRepository threadRepository = mock(ForumThreadRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ForumImportService importService = new ForumImportServiceImpl(userRepository, threadRepository, entityManager, transactionManager, new ObjectMapper().findAndRegisterModules(), Clock.systemUTC(), 3);
+    private final ArrayList<Object> persisted = new ArrayList<>();
+
+    private void recordPersists() {
+        willAnswer(invocation -> {
+            Object entity = invocation.getArgument(0);
+            if(entity instanceof ForumUser user) user.setUuid(UUID.randomUUID());
+            if(entity instanceof ForumThread thread) thread.setUuid(UUID.randomUUID());
+            persisted.add(entity);
+            return null;
+        }).given(entityManager).persist(any());
+    }
+
+    private ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String user(String username) {
+        return "{\"type\":\"user\",\"username\":\"" + username + "\",\"password\":\"" + HASH + "\",\"timezone\":\"" + TEST_TIMEZONE + "\"}";
+    }
+
+    private String thread(String creator, String... comments) {
+        return thread(null, creator, comments);
+    }
+
+    private String thread(UUID uuid, String creator, String... comments) {
+        var json = new StringBuilder("{\"type\":\"thread\",\"uuid\":" + (uuid == null ? "null" : "\"" + uuid + "\"") + ",\"creator\":\"" + creator + "\",\"title\":\"" + TEST_THREAD_TITLE + "\",\"content\":\"" + TEST_THREAD_CONTENT + "\",\"publishedAt\":\"2020-01-01T00:00:00Z\",\"comments\":[");
+        for(int i = 0; i < comments.length; i++) {
+            if(i > 0) json.append(',');
+            json.append("{\"creator\":\"").append(creator).append("\",\"content\":\"").append(comments[i]).append("\",\"publishedAt\":\"2020-01-0").append(i + 2).append("T00:00:00Z\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private String comment(UUID threadId, String creator) {
+        return "{\"type\":\"comment\",\"uuid\":\"" + UUID.randomUUID() + "\",\"threadId\":\"" + threadId + "\",\"creator\":\"" + creator + "\",\"content\":\"" + TEST_COMMENT_CONTENT + "\",\"publishedAt\":\"2020-02-01T00:00:00Z\"}";
+    }
+
+    @Test
+    public void givenUsersThreadsAndComments_whenImport_thenPersistedInChunks() throws Exception {
+        recordPersists();
+        var res = importService.importNdjson(ndjson(
+                user(TEST_USERNAME),
+                thread(TEST_USERNAME, TEST_COMMENT_CONTENT, TEST_COMMENT_CONTENT),
+                thread(TEST_USERNAME)
+        ));
+        assertEquals(1, res.users());
+        assertEquals(2, res.threads());
+        assertEquals(2, res.comments());
+        assertEquals(0, res.rejected());
+        assertEquals(5, persisted.size());
+        verify(transactionManager, times(2)).commit(any());
+        verify(entityManager, times(2)).clear();
+        var thread = (ForumThread) persisted.get(1);
+        assertEquals(2, thread.getCommentCount());
+        assertEquals(Instant.parse("2020-01-03T00:00:00Z"), thread.getLastActivityAt());
+        assertSame(thread, ((ForumComment) persisted.get(2)).getThread());
+        assertEquals(2, importService.getChunks());
+        assertEquals(2, importService.getImportedThreads());
+    }
+
+    @Test
+    public void givenExistingCreator_whenImportThread_thenReferencedById() throws Exception {
+        recordPersists();
+        var uuid = UUID.randomUUID();
+        var reference = ForumUser.builder().uuid(uuid).build();
+        given(userRepository.findUuidByUsername(TEST_USERNAME)).willReturn(Optional.of(uuid));
+        given(userRepository.getReferenceById(uuid)).willReturn(reference);
+        importService.importNdjson(ndjson(thread(TEST_USERNAME), thread(TEST_USERNAME)));
+        assertSame(reference, ((ForumThread) persisted.get(0)).getUser());
+        verify(userRepository, times(1)).findUuidByUsername(TEST_USERNAME);
+    }
+
+    @Test
+    public void givenInvalidLines_whenImport_thenRejectedWithLineNumbers() throws Exception {
+        recordPersists();
+        var res = importService.importNdjson(ndjson(
+                user(TEST_USERNAME),
+                user(TEST_USERNAME),
+                "{\"type\":\"user\",\"username\":\"other-user\",\"password\":\"plaintext\",\"timezone\":\"UTC\"}",
+                thread("missing-user"),
+                thread(TEST_USERNAME, "bad"),
+                "not json",
+                "",
+                thread(TEST_USERNAME)
+        ));
+        assertEquals(1, res.users());
+        assertEquals(1, res.threads());
+        assertEquals(5, res.rejected());
+        assertEquals(5, importService.getRejected());
+        assertEquals("line 2: USER_EXISTS", res.errors().get(0));
+        assertEquals("line 3: INVALID_PASSWORD", res.errors().get(1));
+        assertEquals("line 4: INVALID_USERNAME", res.errors().get(2));
+        assertEquals("line 5: INVALID_CONTENT", res.errors().get(3));
+        assertEquals("line 6: INVALID_IMPORT_LINE", res.errors().get(4));
+        assertEquals(2, persisted.size());
+    }
+
+    @Test
+    public void givenFailingChunk_whenImport_thenAbortedWithCommittedCounts() throws Exception {
+        recordPersists();
+        willDoNothing().willThrow(new IllegalStateException()).given(entityManager).flush();
+        var res = importService.importNdjson(ndjson(
+                user(TEST_USERNAME),
+                thread(TEST_USERNAME, TEST_COMMENT_CONTENT, TEST_COMMENT_CONTENT),
+                thread(TEST_USERNAME, TEST_COMMENT_CONTENT, TEST_COMMENT_CONTENT),
+                thread(TEST_USERNAME)
+        ));
+        assertTrue(res.aborted());
+        assertEquals(1, res.users());
+        assertEquals(1, res.threads());
+        assertEquals(2, res.comments());
+        assertEquals("line 3: IMPORT_CHUNK_FAILED", res.errors().get(0));
+        assertEquals(1, importService.getChunks());
+    }
+
+    @Test
+    public void givenEmptyBody_whenImport_thenNoTransaction() throws Exception {
+        var res = importService.importNdjson(ndjson());
+        assertEquals(0, res.threads());
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    public void givenStandaloneCommentLines_whenImport_thenResolvedToThreadsOfTheRun() throws Exception {
+        recordPersists();
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        var third = UUID.randomUUID();
+        var res = importService.importNdjson(ndjson(
+                user(TEST_USERNAME),
+                thread(first, TEST_USERNAME),
+                thread(second, TEST_USERNAME),
+                comment(first, TEST_USERNAME),
+                thread(third, TEST_USERNAME),
+                comment(third, TEST_USERNAME),
+                comment(UUID.randomUUID(), TEST_USERNAME)
+        ));
+        assertEquals(3, res.threads());
+        assertEquals(2, res.comments());
+        assertEquals(List.of("line 7: INVALID_ID"), res.errors());
+        var flushedThread = (ForumThread) persisted.get(1);
+        verify(threadRepository, times(1)).getReferenceById(flushedThread.getUuid());
+        verify(threadRepository, times(1)).incrementCommentCount(flushedThread.getUuid(), 1, Instant.parse("2020-02-01T00:00:00Z"));
+        var pendingThread = (ForumThread) persisted.get(4);
+        assertEquals(1, pendingThread.getCommentCount());
+        assertEquals(Instant.parse("2020-02-01T00:00:00Z"), pendingThread.getLastActivityAt());
+        assertSame(pendingThread, ((ForumComment) persisted.get(5)).getThread());
+    }
+
+    @Test
+    public void givenServiceExport_whenImport_thenEveryLineAccepted() throws Exception {
+        recordPersists();
+        var userId = UUID.randomUUID();
+        given(userRepository.findUuidByUsername(TEST_USERNAME)).willReturn(Optional.of(userId));
+        given(userRepository.getReferenceById(userId)).willReturn(ForumUser.builder().uuid(userId).build());
+        var commentRepository = mock(ForumCommentRepository.class);
+        var exportThreadRepository = mock(ForumThreadRepository.class);
+        var archiveService = mock(ForumArchiveService.class);
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        var publishedAt = Instant.parse("2020-01-01T00:00:00Z");
+        willCallRealMethod().given(exportThreadRepository).forEachExport(any());
+        willCallRealMethod().given(commentRepository).forEachExport(any());
+        given(exportThreadRepository.streamExports()).willReturn(Stream.of(
+                new ForumThreadExport(first, TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt, false, 2, publishedAt),
+                new ForumThreadExport(second, TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt, true, 1, publishedAt)
+        ));
+        given(commentRepository.streamExports()).willReturn(Stream.of(
+                new ForumCommentExport(UUID.randomUUID(), first, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt),
+                new ForumCommentExport(UUID.randomUUID(), first, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt),
+                new ForumCommentExport(UUID.randomUUID(), second, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt)
+        ));
+        var archivedId = UUID.randomUUID();
+        var archived = new ForumArchivedThread(archivedId, userId, TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt, publishedAt, publishedAt,
+                List.of(new ForumArchivedComment(UUID.randomUUID(), userId, TEST_USERNAME, TEST_COMMENT_CONTENT, publishedAt)));
+        willAnswer(invocation -> {
+            invocation.<Consumer<ForumArchivedThread>>getArgument(0).accept(archived);
+            return null;
+        }).given(archiveService).forEachArchivedThread(any());
+        var out = new ByteArrayOutputStream();
+        new ForumExportServiceImpl(exportThreadRepository, commentRepository, archiveService, new ObjectMapper()).export(out);
+        var res = importService.importNdjson(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(List.of(), res.errors());
+        assertEquals(0, res.rejected());
+        assertEquals(3, res.threads());
+        assertEquals(4, res.comments());
+    }
+}
@@ -1,20 +1,42 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
+import ft.projects.forum.model.ForumArchivedComment;
+import ft.projects.forum.model.ForumArchivedThread;
+import ft.projects.forum.model.ForumCommentView;
+import ft.projects.forum.model.ForumCursor;
 import ft.projects.forum.model.ForumThread;
+import ft.projects.forum.model.ForumThreadDetailView;
 import ft.projects.forum.model.ForumThreadRequest;
+import ft.projects.forum.model.ForumThreadStatus;
+import ft.projects.forum.model.ForumThreadSummary;
+import ft.projects.forum.model.ForumThreadView;
 import ft.projects.forum.model.ForumUser;
+import ft.projects.forum.repository.ForumCommentRepository;
 import ft.projects.forum.repository.ForumThreadRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
 import ft.projects.forum.security.service.SecurityContextService;
 import org.junit.jupiter.api.Test;
-import org.springframework.data.domain.Page;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -23,15 +45,37 @@ import static ft.projects.forum.Constants.*;
 class ForumThreadServiceTest {
 
     private final ForumThreadRepository threadRepository = mock(ForumThreadRepository.class);
+    private final ForumCommentRepository commentRepository = mock(ForumCommentRepository.class);
     private final SecurityContextService contextService = mock(SecurityContextService.class);
+    private final ForumDeletionService deletionService = mock(ForumDeletionService.class);
+    private final ForumArchiveService archiveService = mock(ForumArchiveService.class);
     private final DateTimeFormatter formatter = mock(DateTimeFormatter.class);
-    private final ForumThreadService threadService = new ForumThreadServiceImpl(threadRepository, contextService, formatter);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ForumThreadService threadService = new ForumThreadServiceImpl(threadRepository, commentRepository, contextService, deletionService, archiveService, formatter, Clock.systemUTC(), 100, 50, 2, 16, 60_000, 16, 60_000, 2);
 
     @Test
     public void givenValidForumThreadRequestObject_whenCreateForumThread_thenVerifyCalls() {
         threadService.createThread(new ForumThreadRequest(TEST_THREAD_TITLE, TEST_THREAD_CONTENT));
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).save(any());
+        verify(contextService, times(1)).getUserReferenceFromContext();
+        verify(threadRepository, times(1)).save(argThat(t -> TEST_THREAD_CONTENT.equals(t.getExcerpt())
+                && t.getCommentCount() == 0
+                && t.getPublishedAt().equals(t.getLastActivityAt())));
+    }
+
+    @Test
+    public void givenLongContent_whenCreateForumThread_thenExcerptTruncated() {
+        var content = "x".repeat(ForumThread.EXCERPT_LENGTH * 3);
+        threadService.createThread(new ForumThreadRequest(TEST_THREAD_TITLE, content));
+        verify(threadRepository, times(1)).save(argThat(t -> t.getContent().equals(content)
+                && t.getExcerpt().length() == ForumThread.EXCERPT_LENGTH));
+    }
+
+    @Test
+    public void givenSupplementaryCharacters_whenCreateForumThread_thenExcerptKeepsSurrogatePairs() {
+        var content = "x" + "\uD83D\uDE00".repeat(ForumThread.EXCERPT_LENGTH);
+        threadService.createThread(new ForumThreadRequest(TEST_THREAD_TITLE, content));
+        verify(threadRepository, times(1)).save(argThat(t -> t.getExcerpt().codePointCount(0, t.getExcerpt().length()) == ForumThread.EXCERPT_LENGTH
+                && !Character.isHighSurrogate(t.getExcerpt().charAt(t.getExcerpt().length() - 1))));
     }
 
     @Test
@@ -63,204 +107,555 @@ class ForumThreadServiceTest {
     }
 
     @Test
-    public void givenValidRequest_whenGetThreads_thenVerifyCalls() {
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        given(threadRepository.findAll((Pageable) any())).willReturn(Page.empty());
-        threadService.getThreads(1, 1, false);
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).findAll(PageRequest.of(1, 1, Sort.by("publishedAt")));
+    public void givenValidRequest_whenGetThreads_thenVerifyCalls() throws Exception {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findViews(any())).willReturn(List.of());
+        writeThreads(1, 1, false, "published");
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(threadRepository, times(1)).findViews(PageRequest.of(1, 1, Sort.by("publishedAt", "uuid")));
+        verify(threadRepository, never()).findAll((Pageable) any());
     }
 
     @Test
-    public void givenValidRequestDescending_whenGetThreads_thenVerifyCalls() {
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        given(threadRepository.findAll((Pageable) any())).willReturn(Page.empty());
-        threadService.getThreads(1, 1, true);
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).findAll(PageRequest.of(1, 1, Sort.by("publishedAt").descending()));
+    public void givenValidRequestDescending_whenGetThreads_thenVerifyCalls() throws Exception {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findViews(any())).willReturn(List.of());
+        writeThreads(1, 1, true, "published");
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(threadRepository, times(1)).findViews(PageRequest.of(1, 1, Sort.by("publishedAt", "uuid").descending()));
     }
 
     @Test
     public void givenInvalidPage_whenGetThreads_thenThrow() {
         assertThrows(ForumException.class, () -> {
-           threadService.getThreads(-1, 1, false);
+           writeThreads(-1, 1, false, "published");
         });
     }
 
     @Test
     public void givenInvalidSize_whenGetThreads_thenThrow() {
         assertThrows(ForumException.class, () -> {
-            threadService.getThreads(1, -1, false);
+            writeThreads(1, -1, false, "published");
         });
     }
 
     @Test
     public void givenInvalidSize_whenGetThreads_thenThrow2() {
         assertThrows(ForumException.class, () -> {
-            threadService.getThreads(1, 0, false);
+            writeThreads(1, 0, false, "published");
         });
     }
 
     @Test
-    public void givenValidRequest_whenUpdateContent_thenVerifyCalls() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(user);
-        threadService.updateContent(UUID.randomUUID(), TEST_THREAD_CONTENT);
-        verify(threadRepository, times(1)).findById(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).save(any());
+    public void givenActivitySort_whenGetThreads_thenSortedByLastActivity() throws Exception {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        willCallRealMethod().given(threadRepository).forEachView(any(), any());
+        given(threadRepository.streamViews(any())).willReturn(Stream.of(thread(2), thread(1)));
+        var res = writeThreads(0, 5, true, "activity");
+        assertEquals(2, res.size());
+        verify(threadRepository, times(1)).streamViews(PageRequest.of(0, 5, Sort.by("lastActivityAt", "uuid").descending()));
+        verify(threadRepository, never()).findViews(any());
     }
 
     @Test
-    public void givenInvalidId_whenUpdateContent_thenThrow() {
-        given(threadRepository.findById(any())).willReturn(Optional.empty());
+    public void givenInvalidSort_whenGetThreads_thenThrow() {
         assertThrows(ForumException.class, () -> {
-            threadService.updateContent(UUID.randomUUID(), TEST_THREAD_CONTENT);
+            writeThreads(0, 5, true, "title");
         });
     }
 
     @Test
-    public void givenInvalidOwner_whenUpdateContent_thenThrow() {
+    public void whenRecordComment_thenSingleStatementUpdates() {
+        var uuid = UUID.randomUUID();
+        var publishedAt = Instant.now();
+        threadService.recordCommentsCreated(uuid, 1, publishedAt);
+        threadService.recordCommentDeleted(uuid);
+        verify(threadRepository, times(1)).incrementCommentCount(uuid, 1, publishedAt);
+        verify(threadRepository, times(1)).decrementCommentCount(uuid);
+        verify(threadRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenFrontPage_whenGetThreadsTwice_thenLoadedOnce() throws Exception {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findViews(any())).willReturn(List.of(thread(1)));
+        writeThreads(0, 5, true, "published");
+        var res = writeThreads(0, 5, true, "published");
+        assertEquals(1, res.size());
+        verify(threadRepository, times(1)).findViews(any());
+        writeThreads(2, 5, true, "published");
+        writeThreads(2, 5, true, "published");
+        writeThreads(0, 5, true, "activity");
+        verify(threadRepository, times(1)).findViews(any());
+        verify(threadRepository, times(3)).forEachView(any(), any());
+    }
+
+    @Test
+    public void givenCachedFrontPage_whenCreateThread_thenReloaded() throws Exception {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findViews(any())).willReturn(List.of());
+        writeThreads(0, 5, true, "published");
+        threadService.createThread(new ForumThreadRequest(TEST_THREAD_TITLE, TEST_THREAD_CONTENT));
+        writeThreads(0, 5, true, "published");
+        verify(threadRepository, times(2)).findViews(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenCachedPages_whenThreadsDeletionCommitted_thenStatusAndFrontPageReloaded() throws Exception {
+        var listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(deletionService).addThreadDeletionListener(listener.capture());
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findViews(any())).willReturn(List.of());
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, UUID.randomUUID())), Optional.empty());
+        writeThreads(0, 5, true, "published");
+        assertTrue(threadService.threadExists(uuid));
+        listener.getValue().accept(List.of(uuid));
+        writeThreads(0, 5, true, "published");
+        assertFalse(threadService.threadExists(uuid));
+        verify(threadRepository, times(2)).findViews(any());
+        verify(threadRepository, times(2)).findStatusById(uuid);
+    }
+
+    @Test
+    public void givenBackgroundDeletion_whenDeleteThread_thenFrontPageKeptUntilCommitted() throws Exception {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.findViews(any())).willReturn(List.of());
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, user.getUuid())));
+        writeThreads(0, 5, true, "published");
+        threadService.deleteThread(uuid);
+        writeThreads(0, 5, true, "published");
+        verify(threadRepository, times(1)).findViews(any());
+    }
+
+    @Test
+    public void givenCachedFrontPage_whenUpdateContent_thenPatchedWithoutReload() throws Exception {
         var user = ForumUser.builder()
                 .username(TEST_USERNAME)
+                .timezone(TEST_TIMEZONE)
                 .build();
-        var thread = ForumThread.builder()
-                .user(user)
+        var view = thread(1);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.findViews(any())).willReturn(List.of(view));
+        given(threadRepository.updateContent(any(), any(), any(), any(), any())).willReturn(1);
+        writeThreads(0, 5, true, "published");
+        threadService.updateContent(view.uuid(), "updated content", null);
+        var res = writeThreads(0, 5, true, "published");
+        assertEquals("updated content", res.get(0).get("content").asText());
+        assertEquals(view.version() + 1, res.get(0).get("version").asLong());
+        verify(threadRepository, times(1)).findViews(any());
+    }
+
+    @Test
+    public void givenCachedFrontPage_whenUpdateClosed_thenVersionPatchedWithoutReload() throws Exception {
+        var user = ForumUser.builder()
+                .username(TEST_USERNAME)
+                .timezone(TEST_TIMEZONE)
                 .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
+        var view = thread(1);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.findViews(any())).willReturn(List.of(view));
+        given(threadRepository.updateClosed(any(), any(), anyBoolean(), any())).willReturn(1);
+        writeThreads(0, 5, true, "published");
+        threadService.updateClosed(view.uuid(), true);
+        var res = writeThreads(0, 5, true, "published");
+        assertEquals(view.content(), res.get(0).get("content").asText());
+        assertEquals(view.version() + 1, res.get(0).get("version").asLong());
+        verify(threadRepository, times(1)).findViews(any());
+    }
+
+    @Test
+    public void givenPageOverCap_whenGetThreads_thenThrow() {
         assertThrows(ForumException.class, () -> {
-            threadService.updateContent(UUID.randomUUID(), TEST_THREAD_CONTENT);
+            writeThreads(101, 1, false, "published");
+        });
+    }
+
+    @Test
+    public void givenSizeOverCap_whenGetThreads_thenThrow() {
+        assertThrows(ForumException.class, () -> {
+            writeThreads(1, 51, false, "published");
+        });
+    }
+
+    private JsonNode writeThreads(int page, int size, boolean descending, String sort) throws IOException {
+        var json = new StringWriter();
+        try(var generator = objectMapper.createGenerator(json)) {
+            threadService.writeThreads(page, size, descending, sort, generator);
+        }
+        return objectMapper.readTree(json.toString());
+    }
+
+    private ForumThreadView thread(long publishedAt) {
+        return new ForumThreadView(UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.ofEpochSecond(publishedAt), 0);
+    }
+
+    @Test
+    public void givenEmptyCursorAndMoreRows_whenGetThreads_thenFirstPageWithNextCursor() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        var threads = List.of(thread(3), thread(2), thread(1));
+        given(threadRepository.findLatestViews(Limit.of(3))).willReturn(threads);
+        var res = threadService.getThreads("", 2, true);
+        assertEquals(2, res.items().size());
+        assertEquals(threads.get(1).uuid(), res.items().get(1).uuid());
+        var cursor = ForumCursor.decode(res.nextCursor(), true);
+        assertEquals(threads.get(1).publishedAt(), cursor.publishedAt());
+        assertEquals(threads.get(1).uuid(), cursor.uuid());
+    }
+
+    @Test
+    public void givenCursor_whenGetThreads_thenSeekFromCursor() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        var uuid = UUID.randomUUID();
+        var cursor = new ForumCursor(Instant.ofEpochSecond(5), uuid, false).encode();
+        given(threadRepository.findViewsAfter(Instant.ofEpochSecond(5), uuid, Limit.of(3))).willReturn(List.of(thread(6)));
+        var res = threadService.getThreads(cursor, 2, false);
+        assertEquals(1, res.items().size());
+        assertNull(res.nextCursor());
+        verify(threadRepository, never()).findAll((Pageable) any());
+    }
+
+    @Test
+    public void givenEmptyCursor_whenGetThreadSummaries_thenSummariesMapped() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        var summary = new ForumThreadSummary(UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.ofEpochSecond(1), 3, Instant.ofEpochSecond(2));
+        given(threadRepository.findLatestSummaries(Limit.of(21))).willReturn(List.of(summary));
+        var res = threadService.getThreadSummaries("", 20, true);
+        assertEquals(1, res.items().size());
+        assertEquals(3, res.items().get(0).commentCount());
+        assertEquals(TEST_THREAD_CONTENT, res.items().get(0).excerpt());
+        assertNull(res.nextCursor());
+        verify(threadRepository, never()).findLatestViews(any());
+    }
+
+    @Test
+    public void givenThreadWithComments_whenGetThreadDetail_thenThreadAndFirstCommentPage() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        var uuid = UUID.randomUUID();
+        var publishedAt = Instant.now();
+        given(threadRepository.findDetailById(uuid)).willReturn(Optional.of(new ForumThreadDetailView(uuid, TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, publishedAt, 2, false, 3, publishedAt)));
+        given(commentRepository.findViewsByThread(uuid, Limit.of(3))).willReturn(List.of(
+                new ForumCommentView(UUID.randomUUID(), "first", TEST_COMMENT_CONTENT, publishedAt.plusSeconds(1), 0),
+                new ForumCommentView(UUID.randomUUID(), "second", TEST_COMMENT_CONTENT, publishedAt.plusSeconds(2), 0),
+                new ForumCommentView(UUID.randomUUID(), "third", TEST_COMMENT_CONTENT, publishedAt.plusSeconds(3), 0)
+        ));
+        var res = threadService.getThreadDetail(uuid, 2);
+        assertEquals(TEST_THREAD_CONTENT, res.content());
+        assertEquals(TEST_USERNAME, res.creator());
+        assertEquals(2, res.version());
+        assertEquals(3, res.commentCount());
+        assertEquals(List.of("first", "second"), res.comments().items().stream().map(c -> c.creator()).toList());
+        assertNotNull(res.comments().nextCursor());
+        verify(threadRepository, times(1)).findDetailById(uuid);
+        verify(commentRepository, times(1)).findViewsByThread(uuid, Limit.of(3));
+        verifyNoMoreInteractions(commentRepository);
+    }
+
+    @Test
+    public void givenThreadNotExist_whenGetThreadDetail_thenThrow() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        given(threadRepository.findDetailById(any())).willReturn(Optional.empty());
+        var e = assertThrows(ForumException.class, () -> {
+            threadService.getThreadDetail(UUID.randomUUID(), 2);
+        });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+        verify(commentRepository, never()).findViewsByThread(any(), any());
+    }
+
+    @Test
+    public void givenSizeOverCap_whenGetThreadDetail_thenThrow() {
+        assertThrows(ForumException.class, () -> {
+            threadService.getThreadDetail(UUID.randomUUID(), 51);
+        });
+        verify(threadRepository, never()).findDetailById(any());
+    }
+
+    @Test
+    public void givenInvalidCursor_whenGetThreads_thenThrow() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        assertThrows(ForumException.class, () -> {
+            threadService.getThreads("not-a-cursor", 2, true);
+        });
+        var ascending = new ForumCursor(Instant.ofEpochSecond(5), UUID.randomUUID(), false).encode();
+        assertThrows(ForumException.class, () -> {
+            threadService.getThreads(ascending, 2, true);
+        });
+    }
+
+    @Test
+    public void givenValidRequest_whenUpdateContent_thenVerifyCalls() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.updateContent(eq(uuid), eq(user.getUuid()), eq(TEST_THREAD_CONTENT), any(), isNull())).willReturn(1);
+        threadService.updateContent(uuid, TEST_THREAD_CONTENT, null);
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(threadRepository, times(1)).updateContent(uuid, user.getUuid(), TEST_THREAD_CONTENT, TEST_THREAD_CONTENT, null);
+        verify(threadRepository, never()).findById(any());
+        verify(threadRepository, never()).findStatusById(any());
+        verify(threadRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenInvalidId_whenUpdateContent_thenThrow() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(threadRepository.findStatusById(any())).willReturn(Optional.empty());
+        var e = assertThrows(ForumException.class, () -> {
+            threadService.updateContent(UUID.randomUUID(), TEST_THREAD_CONTENT, null);
+        });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
+    }
+
+    @Test
+    public void givenInvalidOwner_whenUpdateContent_thenThrow() {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(threadRepository.findStatusById(any())).willReturn(Optional.of(new ForumThreadStatus(true, false, UUID.randomUUID())));
+        var e = assertThrows(ForumException.class, () -> {
+            threadService.updateContent(UUID.randomUUID(), TEST_THREAD_CONTENT, null);
+        });
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
+    }
+
+    @Test
+    public void givenStaleVersion_whenUpdateContent_thenThrowConflict() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.updateContent(any(), any(), any(), any(), eq(3L))).willReturn(0);
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, user.getUuid())));
+        var e = assertThrows(ForumException.class, () -> {
+            threadService.updateContent(uuid, TEST_THREAD_CONTENT, 3L);
         });
+        assertEquals(ForumExceptions.VERSION_CONFLICT.name(), e.getMessage());
     }
 
     @Test
     public void givenInvalidContent_whenUpdateContent_thenThrow() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(user);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
         assertThrows(ForumException.class, () -> {
-            threadService.updateContent(UUID.randomUUID(), null);
+            threadService.updateContent(UUID.randomUUID(), null, null);
         });
+        verify(threadRepository, never()).updateContent(any(), any(), any(), any(), any());
     }
 
     @Test
     public void givenInvalidContent_whenUpdateContent_thenThrow2() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(user);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
         assertThrows(ForumException.class, () -> {
-            threadService.updateContent(UUID.randomUUID(), "");
+            threadService.updateContent(UUID.randomUUID(), "", null);
         });
+        verify(threadRepository, never()).updateContent(any(), any(), any(), any(), any());
     }
 
     @Test
     public void givenValidRequest_whenUpdateClosed_thenVerifyCalls() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(user);
-        threadService.updateClosed(UUID.randomUUID(), true);
-        verify(threadRepository, times(1)).findById(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).save(any());
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.updateClosed(eq(uuid), eq(user.getUuid()), eq(true), any())).willReturn(1);
+        threadService.updateClosed(uuid, true);
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(threadRepository, times(1)).updateClosed(eq(uuid), eq(user.getUuid()), eq(true), notNull());
+        verify(threadRepository, never()).findById(any());
+        verify(threadRepository, never()).save(any());
     }
 
     @Test
     public void givenInvalidId_whenUpdateClosed_thenThrow() {
-        given(threadRepository.findById(any())).willReturn(Optional.empty());
-        assertThrows(ForumException.class, () -> {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(threadRepository.findStatusById(any())).willReturn(Optional.empty());
+        var e = assertThrows(ForumException.class, () -> {
             threadService.updateClosed(UUID.randomUUID(), true);
         });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
     }
 
     @Test
     public void givenInvalidOwner_whenUpdateClosed_thenThrow() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        assertThrows(ForumException.class, () -> {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(threadRepository.findStatusById(any())).willReturn(Optional.of(new ForumThreadStatus(true, false, UUID.randomUUID())));
+        var e = assertThrows(ForumException.class, () -> {
             threadService.updateClosed(UUID.randomUUID(), true);
         });
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
     }
 
     @Test
     public void givenValidRequest_whenDeleteThread_thenVerifyCalls() {
-        var user = ForumUser.builder()
-                .username(TEST_USERNAME)
-                .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(user);
-        threadService.deleteThread(UUID.randomUUID());
-        verify(threadRepository, times(1)).findById(any());
-        verify(contextService, times(1)).getUserFromContext();
-        verify(threadRepository, times(1)).delete(any());
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        threadService.deleteThread(uuid);
+        verify(threadRepository, never()).findStatusById(any());
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(deletionService, times(1)).deleteThread(eq(uuid), eq(user.getUuid()), any());
+        verify(threadRepository, never()).delete(any());
     }
 
     @Test
     public void givenInvalidId_whenDeleteThread_thenThrow() {
-        given(threadRepository.findById(any())).willReturn(Optional.empty());
-        assertThrows(ForumException.class, () -> {
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        given(threadRepository.findStatusById(any())).willReturn(Optional.empty());
+        deletionFails();
+        var e = assertThrows(ForumException.class, () -> {
             threadService.deleteThread(UUID.randomUUID());
         });
+        assertEquals(ForumExceptions.INVALID_ID.name(), e.getMessage());
     }
 
     @Test
     public void givenInvalidOwner_whenDeleteThread_thenThrow() {
+        var uuid = UUID.randomUUID();
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, UUID.randomUUID())));
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(owner()));
+        deletionFails();
+        var e = assertThrows(ForumException.class, () -> {
+            threadService.deleteThread(uuid);
+        });
+        assertEquals(ForumExceptions.INVALID_OWNER.name(), e.getMessage());
+        assertTrue(threadService.threadExists(uuid));
+    }
+
+    @Test
+    public void givenStaleCachedOwner_whenDeleteThread_thenOwnershipDecidedByDelete() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, UUID.randomUUID())));
+        assertTrue(threadService.threadExists(uuid));
+        threadService.deleteThread(uuid);
+        verify(deletionService, times(1)).deleteThread(eq(uuid), eq(user.getUuid()), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deletionFails() {
+        given(deletionService.deleteThread(any(), any(), any())).willAnswer(invocation -> {
+            throw ((Supplier<? extends RuntimeException>) invocation.getArgument(2)).get();
+        });
+    }
+    @Test
+    public void givenThreadExists_whenGetThreadStatus_thenLoadedOnce() {
+        var uuid = UUID.randomUUID();
+        var ownerId = UUID.randomUUID();
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, ownerId)));
+        assertEquals(new ForumThreadStatus(true, false, ownerId), threadService.getThreadStatus(uuid));
+        assertTrue(threadService.threadExists(uuid));
+        verify(threadRepository, times(1)).findStatusById(uuid);
+        verify(threadRepository, never()).findById(any());
+    }
+
+    @Test
+    public void givenArchivedThread_whenGetThreadStatus_thenClosedFromArchive() {
+        var uuid = UUID.randomUUID();
+        var ownerId = UUID.randomUUID();
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.empty());
+        given(archiveService.getArchivedOwner(uuid)).willReturn(Optional.of(ownerId));
+        assertEquals(new ForumThreadStatus(true, true, ownerId), threadService.getThreadStatus(uuid));
+        verify(archiveService, never()).getArchivedThread(any());
+    }
+
+    @Test
+    public void givenArchivedThread_whenDeleteThread_thenRejected() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.empty());
+        given(archiveService.getArchivedOwner(uuid)).willReturn(Optional.of(user.getUuid()));
+        given(archiveService.isArchived(uuid)).willReturn(true);
+        deletionFails();
+        var e = assertThrows(ForumException.class, () -> threadService.deleteThread(uuid));
+        assertEquals(ForumExceptions.THREAD_ARCHIVED.name(), e.getMessage());
+        assertTrue(threadService.threadExists(uuid));
+    }
+
+    @Test
+    public void givenArchivedThread_whenGetThreadDetail_thenReadFromArchive() {
+        var uuid = UUID.randomUUID();
+        var comment = new ForumArchivedComment(UUID.randomUUID(), UUID.randomUUID(), TEST_USERNAME, TEST_COMMENT_CONTENT, Instant.EPOCH);
+        given(threadRepository.findDetailById(uuid)).willReturn(Optional.empty());
+        given(archiveService.getArchivedThread(uuid)).willReturn(Optional.of(new ForumArchivedThread(uuid, UUID.randomUUID(), TEST_USERNAME, TEST_THREAD_TITLE, TEST_THREAD_CONTENT, Instant.EPOCH, Instant.EPOCH, Instant.EPOCH, List.of(comment))));
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().timezone(TEST_TIMEZONE).build()));
+        var res = threadService.getThreadDetail(uuid, 5);
+        assertEquals(uuid, res.uuid());
+        assertEquals(TEST_THREAD_CONTENT, res.content());
+        assertTrue(res.closed());
+        assertEquals(1, res.commentCount());
+        assertEquals(TEST_USERNAME, res.comments().items().get(0).creator());
+        assertNull(res.comments().nextCursor());
+        verify(commentRepository, never()).findViewsByThread(any(), any());
+    }
+
+    @Test
+    public void givenOpenThread_whenUpdateClosed_thenClosedAtSetAndClearedOnReopen() {
+        var user = owner();
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(threadRepository.updateClosed(any(), any(), anyBoolean(), any())).willReturn(1);
+        threadService.updateClosed(uuid, true);
+        verify(threadRepository, times(1)).updateClosed(eq(uuid), eq(user.getUuid()), eq(true), notNull());
+        threadService.updateClosed(uuid, false);
+        verify(threadRepository, times(1)).updateClosed(eq(uuid), eq(user.getUuid()), eq(false), isNull());
+    }
+    @Test
+    public void givenThreadNotExist_whenGetThreadStatus_thenMissingCached() {
+        given(threadRepository.findStatusById(any())).willReturn(Optional.empty());
+        var uuid = UUID.randomUUID();
+        assertFalse(threadService.getThreadStatus(uuid).exists());
+        assertFalse(threadService.threadExists(uuid));
+        verify(threadRepository, times(1)).findStatusById(uuid);
+    }
+
+    @Test
+    public void givenCachedStatus_whenUpdateClosed_thenStatusUpdated() {
         var user = ForumUser.builder()
+                .uuid(UUID.randomUUID())
                 .username(TEST_USERNAME)
                 .build();
-        var thread = ForumThread.builder()
-                .user(user)
-                .build();
-        given(threadRepository.findById(any())).willReturn(Optional.of(thread));
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
-        assertThrows(ForumException.class, () -> {
-            threadService.deleteThread(UUID.randomUUID());
-        });
+        var uuid = UUID.randomUUID();
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, user.getUuid())));
+        given(threadRepository.updateClosed(any(), any(), anyBoolean(), any())).willReturn(1);
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        assertFalse(threadService.getThreadStatus(uuid).closed());
+        threadService.updateClosed(uuid, true);
+        assertTrue(threadService.getThreadStatus(uuid).closed());
+        verify(threadRepository, times(1)).findStatusById(uuid);
     }
 
     @Test
-    public void givenThreadExists_whenGetThread_thenVerifyCalls() {
-        given(threadRepository.findById(any())).willReturn(Optional.of(new ForumThread()));
-        var res = threadService.getThread(UUID.randomUUID());
-        verify(threadRepository, times(1)).findById(any());
-        assertNotNull(res);
+    public void givenCachedStatus_whenDeleteThread_thenStatusMissing() {
+        var user = ForumUser.builder()
+                .uuid(UUID.randomUUID())
+                .username(TEST_USERNAME)
+                .build();
+        var uuid = UUID.randomUUID();
+        given(threadRepository.findStatusById(uuid)).willReturn(Optional.of(new ForumThreadStatus(true, false, user.getUuid())));
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        assertTrue(threadService.threadExists(uuid));
+        threadService.deleteThread(uuid);
+        assertFalse(threadService.threadExists(uuid));
+        verify(threadRepository, times(1)).findStatusById(uuid);
     }
 
     @Test
-    public void givenThreadNotExist_whenGetThread_thenVerifyCalls() {
-        given(threadRepository.findById(any())).willReturn(Optional.empty());
-        assertThrows(ForumException.class, () -> {
-            threadService.getThread(UUID.randomUUID());
-        });
+    public void givenThreads_whenReconcileCommentCounters_thenReconciledInKeysetBatches() {
+        var first = List.of(UUID.randomUUID(), UUID.randomUUID());
+        var second = List.of(UUID.randomUUID());
+        given(threadRepository.findIdsAfter(new UUID(0, 0), Limit.of(2))).willReturn(first);
+        given(threadRepository.findIdsAfter(first.get(1), Limit.of(2))).willReturn(second);
+        given(threadRepository.reconcileCommentCounters(first)).willReturn(1);
+        given(threadRepository.reconcileCommentCounters(second)).willReturn(1);
+        assertEquals(2, threadService.reconcileCommentCounters());
+        verify(threadRepository, times(2)).findIdsAfter(any(), any());
+    }
+
+    private ForumUser owner() {
+        return ForumUser.builder()
+                .uuid(UUID.randomUUID())
+                .username(TEST_USERNAME)
+                .timezone(TEST_TIMEZONE)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,33 @@
 package ft.projects.forum.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ft.projects.forum.exception.ForumException;
+import ft.projects.forum.exception.ForumExceptions;
 import ft.projects.forum.model.ForumUser;
 import ft.projects.forum.model.ForumUserRequest;
+import ft.projects.forum.model.ForumUserResponse;
+import ft.projects.forum.model.ForumUserView;
+import ft.projects.forum.model.RefreshTokenRequest;
 import ft.projects.forum.repository.ForumUserRepository;
+import ft.projects.forum.security.model.ForumPrincipal;
+import ft.projects.forum.security.model.IssuedRefreshToken;
+import ft.projects.forum.security.model.RefreshTokenRotation;
+import ft.projects.forum.security.model.VerifiedToken;
+import ft.projects.forum.security.service.ForumPrincipalService;
 import ft.projects.forum.security.service.JwtService;
+import ft.projects.forum.security.service.RefreshTokenService;
 import ft.projects.forum.security.service.SecurityContextService;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.io.StringWriter;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -24,8 +39,11 @@ class ForumUserServiceTest {
     private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
     private final SecurityContextService contextService = mock(SecurityContextService.class);
     private final JwtService jwtService = mock(JwtService.class);
+    private final ForumPrincipalService principalService = mock(ForumPrincipalService.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final ForumDeletionService deletionService = mock(ForumDeletionService.class);
     private final DateTimeFormatter formatter = mock(DateTimeFormatter.class);
-    private final ForumUserService userService = new ForumUserServiceImpl(userRepository, passwordEncoder, contextService, jwtService, formatter);
+    private final ForumUserService userService = new ForumUserServiceImpl(userRepository, passwordEncoder, contextService, jwtService, principalService, refreshTokenService, deletionService, formatter, 2);
 
     @Test
     public void givenValidRequest_whenRegister_thenVerifyCalls() {
@@ -98,39 +116,125 @@ class ForumUserServiceTest {
                 .username(TEST_USERNAME)
                 .timezone(TEST_TIMEZONE)
                 .build();
-        given(contextService.getUserFromContext()).willReturn(user);
-        given(jwtService.getDate(any())).willReturn(new Date());
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(user));
+        given(jwtService.getToken(any())).willReturn(new VerifiedToken("jwt", null, TEST_USERNAME, Instant.now(), null, null));
+        given(refreshTokenService.issue(any())).willReturn(new IssuedRefreshToken("refresh", Instant.now()));
         var res = userService.login();
-        verify(contextService, times(1)).getUserFromContext();
-        verify(jwtService, times(1)).getToken(user.getUsername());
-        verify(jwtService, times(1)).getDate(any());
-        verify(formatter, times(1)).format(any());
+        verify(contextService, times(1)).getPrincipalFromContext();
+        verify(jwtService, times(1)).getToken(ForumPrincipal.from(user));
+        verify(refreshTokenService, times(1)).issue(ForumPrincipal.from(user));
+        verify(formatter, times(2)).format(any());
         assertNotNull(res);
     }
 
     @Test
-    public void whenGetUsers_thenVerifyCalls() {
-        var user = ForumUser.builder()
+    public void whenRefresh_thenVerifyCalls() {
+        var principal = ForumPrincipal.from(ForumUser.builder()
                 .username(TEST_USERNAME)
                 .timezone(TEST_TIMEZONE)
-                .build();
-        given(userRepository.findAll()).willReturn(List.of(user));
-        var res = userService.getUsers();
-        verify(userRepository, times(1)).findAll();
-        assertNotNull(res);
-        assertEquals(1, res.size());
-        assertEquals(user.getUsername(), res.get(0).username());
+                .build());
+        given(refreshTokenService.rotate("refresh")).willReturn(new RefreshTokenRotation(principal, new IssuedRefreshToken("rotated", Instant.now())));
+        given(jwtService.getToken(any())).willReturn(new VerifiedToken("jwt", null, TEST_USERNAME, Instant.now(), null, null));
+        var res = userService.refresh(new RefreshTokenRequest("refresh"));
+        verify(jwtService, times(1)).getToken(principal);
+        verify(contextService, never()).getPrincipalFromContext();
+        verifyNoInteractions(passwordEncoder);
+        assertEquals("jwt", res.token());
+        assertEquals("rotated", res.refreshToken());
+    }
+
+    @Test
+    public void whenLogout_thenVerifyCalls() {
+        var principal = ForumPrincipal.from(ForumUser.builder()
+                .uuid(UUID.randomUUID())
+                .username(TEST_USERNAME)
+                .timezone(TEST_TIMEZONE)
+                .build());
+        given(contextService.getPrincipalFromContext()).willReturn(principal);
+        userService.logout();
+        verify(jwtService, times(1)).invalidate();
+        verify(refreshTokenService, times(1)).revokeAll(principal.uuid());
+    }
+
+    @Test
+    public void whenGetUsers_thenVerifyCalls() {
+        given(userRepository.findViewsAfter("%", "", new UUID(0, 0), Limit.of(3))).willReturn(List.of(new ForumUserView(UUID.randomUUID(), TEST_USERNAME)));
+        var res = userService.getUsers("", 2, "");
+        verify(userRepository, times(1)).findViewsAfter("%", "", new UUID(0, 0), Limit.of(3));
+        verify(userRepository, never()).findAll();
+        assertEquals(1, res.items().size());
+        assertEquals(TEST_USERNAME, res.items().get(0).username());
+        assertNull(res.nextCursor());
+    }
+
+    @Test
+    public void givenMoreUsersThanSize_whenGetUsers_thenCursorContinuesAfterLastUsernameAndUuid() {
+        var last = new ForumUserView(UUID.randomUUID(), "alice");
+        given(userRepository.findViewsAfter(any(), any(), any(), any())).willReturn(List.of(
+                new ForumUserView(UUID.randomUUID(), "alice"),
+                last,
+                new ForumUserView(UUID.randomUUID(), "alice")
+        ));
+        var res = userService.getUsers(null, 2, "");
+        assertEquals(2, res.items().size());
+        assertNotNull(res.nextCursor());
+        userService.getUsers(res.nextCursor(), 2, "");
+        verify(userRepository, times(1)).findViewsAfter("%", "alice", last.uuid(), Limit.of(3));
+    }
+
+    @Test
+    public void givenPrefixWithWildcards_whenGetUsers_thenEscaped() {
+        userService.getUsers("", 2, "a_b%c!");
+        verify(userRepository, times(1)).findViewsAfter("a!_b!%c!!%", "", new UUID(0, 0), Limit.of(3));
+    }
+
+    @Test
+    public void givenInvalidSize_whenGetUsers_thenThrow() {
+        var e = assertThrows(ForumException.class, () -> {
+            userService.getUsers("", 3, "");
+        });
+        assertEquals(ForumExceptions.INVALID_SIZE.name(), e.getMessage());
+        verify(userRepository, never()).findViewsAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    public void givenInvalidCursor_whenGetUsers_thenThrow() {
+        var e = assertThrows(ForumException.class, () -> {
+            userService.getUsers("not base64!", 2, "");
+        });
+        assertEquals(ForumExceptions.INVALID_CURSOR.name(), e.getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenWriteUsers_thenStreamedAsArray() throws Exception {
+        willAnswer(invocation -> {
+            var action = (Consumer<ForumUserResponse>) invocation.getArgument(1);
+            action.accept(new ForumUserResponse("alice"));
+            action.accept(new ForumUserResponse("bob"));
+            return null;
+        }).given(userRepository).forEachResponse(eq("a%"), any());
+        var objectMapper = new ObjectMapper();
+        var json = new StringWriter();
+        try(var generator = objectMapper.createGenerator(json)) {
+            userService.writeUsers("a", generator);
+        }
+        var res = objectMapper.readTree(json.toString());
+        assertEquals(2, res.size());
+        assertEquals("bob", res.get(1).get("username").asText());
+        verify(userRepository, never()).findAll();
     }
 
     @Test
     public void givenValidUsername_whenUpdateUsername_thenVerifyCalls() {
         given(userRepository.findByUsername(TEST_USERNAME)).willReturn(Optional.empty());
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
+        given(contextService.getUserFromContext()).willReturn(ForumUser.builder().username(ADMIN_USERNAME).build());
         userService.updateUsername(TEST_USERNAME);
         verify(userRepository, times(1)).findByUsername(TEST_USERNAME);
         verify(contextService, times(1)).getUserFromContext();
         verify(userRepository, times(1)).save(any());
-        verify(jwtService, times(1)).invalidate();
+        verify(principalService, times(1)).invalidate(any(), eq(ADMIN_USERNAME));
+        verify(userRepository, times(1)).save(argThat(u -> u.getTokenVersion() == 1));
     }
 
     @Test
@@ -159,12 +263,13 @@ class ForumUserServiceTest {
 
     @Test
     public void givenValidPassword_whenUpdatePassword_thenVerifyCalls() {
-        given(contextService.getUserFromContext()).willReturn(new ForumUser());
+        given(contextService.getUserFromContext()).willReturn(ForumUser.builder().username(TEST_USERNAME).build());
         userService.updatePassword(TEST_PASSWORD);
         verify(contextService, times(1)).getUserFromContext();
         verify(passwordEncoder, times(1)).encode(TEST_PASSWORD);
         verify(userRepository, times(1)).save(any());
-        verify(jwtService, times(1)).invalidate();
+        verify(principalService, times(1)).invalidate(any(), eq(TEST_USERNAME));
+        verify(userRepository, times(1)).save(argThat(u -> u.getTokenVersion() == 1));
     }
 
     @Test
@@ -183,9 +288,13 @@ class ForumUserServiceTest {
 
     @Test
     public void whenDelete_thenVerifyCalls() {
+        var uuid = UUID.randomUUID();
+        given(contextService.getPrincipalFromContext()).willReturn(ForumPrincipal.from(ForumUser.builder().uuid(uuid).username(TEST_USERNAME).build()));
         userService.delete();
-        verify(contextService, times(1)).getUserFromContext();
-        verify(userRepository, times(1)).delete(any());
-        verify(jwtService, times(1)).invalidate();
+        verify(contextService, never()).getUserFromContext();
+        verify(deletionService, times(1)).deleteUser(uuid);
+        verify(userRepository, never()).delete(any());
+        verify(refreshTokenService, times(1)).revokeAll(any());
+        verify(principalService, times(1)).invalidate(any(), eq(TEST_USERNAME));
     }
 }
\ No newline at end of file
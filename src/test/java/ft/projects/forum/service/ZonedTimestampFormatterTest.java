@@ -0,0 +1,38 @@
+package ft.projects.forum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZonedTimestampFormatterTest {
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Test
+    public void givenZoneWithDaylightSaving_whenFormat_thenSameAsZonedDateTime() {
+        var zone = ZoneId.of("Europe/Warsaw");
+        var timestamps = new ZonedTimestampFormatter(formatter, zone);
+        var winter = Instant.parse("2024-01-15T12:00:00Z");
+        var summer = Instant.parse("2024-07-15T12:00:00Z");
+        var transition = Instant.parse("2024-03-31T00:59:59.999Z");
+        for(var instant : new Instant[] { winter, summer, transition, transition.plusMillis(1) }) {
+            assertEquals(formatter.format(ZonedDateTime.ofInstant(instant, zone)), timestamps.format(instant));
+        }
+    }
+
+    @Test
+    public void givenFixedOffsetZone_whenFormat_thenOffsetApplied() {
+        var timestamps = new ZonedTimestampFormatter(formatter, ZoneId.of("UTC"));
+        assertEquals("1970-01-01 00:00:01", timestamps.format(Instant.ofEpochSecond(1)));
+    }
+
+    @Test
+    public void givenNull_whenFormat_thenNull() {
+        assertNull(new ZonedTimestampFormatter(formatter, ZoneId.of("UTC")).format(null));
+    }
+}